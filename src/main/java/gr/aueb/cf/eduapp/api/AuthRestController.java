@@ -1,20 +1,30 @@
 package gr.aueb.cf.eduapp.api;
 
 import gr.aueb.cf.eduapp.authentication.AuthenticationService;
+import gr.aueb.cf.eduapp.authentication.JwtClaims;
+import gr.aueb.cf.eduapp.core.ClientIpResolver;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
 import gr.aueb.cf.eduapp.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.eduapp.dto.AuthenticationResponseDTO;
+import gr.aueb.cf.eduapp.dto.LogoutRequestDTO;
 import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
+import gr.aueb.cf.eduapp.dto.TokenRefreshRequestDTO;
+import gr.aueb.cf.eduapp.dto.TokenRefreshResponseDTO;
+import gr.aueb.cf.eduapp.security.LoginRateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -22,6 +32,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthRestController {
 
     private final AuthenticationService authenticationService;
+    private final LoginRateLimiter loginRateLimiter;
 
     @Operation(
             summary = "Authenticate user",
@@ -36,12 +47,77 @@ public class AuthRestController {
                             content = @Content),
                     @ApiResponse(
                             responseCode = "400",  description = "Bad request - Missing/invalid parameters",
-                            content = @Content)
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "429",  description = "Too many login attempts",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
             }
     )
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO) {
+    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO,
+                                                                  HttpServletRequest request)
+            throws AppTooManyRequestsException {
+
+        // Throttled before any user lookup or password hashing
+        loginRateLimiter.checkAllowed(authenticationRequestDTO.username(), ClientIpResolver.resolve(request));
         AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
         return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
     }
+
+    @Operation(
+            summary = "Refresh access token",
+            description = "Exchanges a refresh token for a new access token and a new refresh token. " +
+                    "The presented refresh token can not be used again.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Token refreshed",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TokenRefreshResponseDTO.class))),
+                    @ApiResponse(
+                            responseCode = "401", description = "Unauthorized - Invalid, expired or reused refresh token",
+                            content = @Content)
+            }
+    )
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenRefreshResponseDTO> refresh(@Valid @RequestBody TokenRefreshRequestDTO tokenRefreshRequestDTO) {
+        return ResponseEntity.ok(authenticationService.refresh(tokenRefreshRequestDTO));
+    }
+
+    @Operation(
+            summary = "Logout",
+            description = "Revokes the current access token and, if given, the refresh token of the session",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Logged out", content = @Content),
+                    @ApiResponse(responseCode = "401", description = "Not Authenticated", content = @Content)
+            }
+    )
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Nullable @RequestBody(required = false) LogoutRequestDTO logoutRequestDTO,
+                                       Authentication authentication) {
+        if (authentication != null && authentication.getDetails() instanceof JwtClaims claims) {
+            authenticationService.logout(claims, logoutRequestDTO);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Force sign-out of a user",
+            description = "Invalidates every access and refresh token of the user",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "User signed out", content = @Content),
+                    @ApiResponse(
+                            responseCode = "404", description = "User not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
+            }
+    )
+    @PostMapping("/users/{username}/sign-out")
+    public ResponseEntity<Void> forceSignOut(@PathVariable String username) throws AppObjectNotFoundException {
+        authenticationService.forceSignOut(username);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,12 +1,26 @@
 package gr.aueb.cf.eduapp.api;
 
+import gr.aueb.cf.eduapp.core.ClientIpResolver;
+import gr.aueb.cf.eduapp.core.ConditionalRequests;
+import gr.aueb.cf.eduapp.core.FileResponseWriter;
+import gr.aueb.cf.eduapp.core.enums.ExportFormat;
+import gr.aueb.cf.eduapp.core.enums.ImportFormat;
 import gr.aueb.cf.eduapp.core.exceptions.*;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.KeysetPaginated;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.AttachmentUploadDTO;
+import gr.aueb.cf.eduapp.dto.AvailabilityReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.ResourceVersionDTO;
 import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
+import gr.aueb.cf.eduapp.dto.TeacherImportResultDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
+import gr.aueb.cf.eduapp.service.IAvailabilityService;
+import gr.aueb.cf.eduapp.service.ITeacherExportService;
+import gr.aueb.cf.eduapp.service.ITeacherImportService;
 import gr.aueb.cf.eduapp.service.ITeacherService;
 import gr.aueb.cf.eduapp.validator.TeacherInsertValidator;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,10 +28,17 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
@@ -25,10 +46,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
 import java.net.URI;
+import java.security.Principal;
+import java.util.Locale;
 import java.util.Objects;
 
 @RestController
@@ -36,7 +60,14 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class TeacherRestController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType TEXT_CSV_UTF8 = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
     private final ITeacherService teacherService;
+    private final IAvailabilityService availabilityService;
+    private final ITeacherImportService teacherImportService;
+    private final ITeacherExportService teacherExportService;
 //    private final TeacherInsertValidator teacherInsertValidator;         // Alternative validation
 
     @Operation(
@@ -95,8 +126,75 @@ public class TeacherRestController {
                 .body(teacherReadOnlyDTO);
     }
 
+    @Operation(
+            summary = "Bulk import teachers",
+            description = """
+                    Streams a CSV (with header row) or NDJSON (one teacher insert object per line) body.
+                    Rows are validated like single registrations and committed in batches;
+                    invalid or duplicate rows are skipped and listed in the report.
+                    CSV columns: firstname, lastname, username, password, vat, fatherName, fatherLastname,
+                    motherName, motherLastname, dateOfBirth (yyyy-MM-dd), gender, role (optional, default TEACHER),
+                    amka, identityNumber, placeOfBirth, municipalityOfRegistration, isActive (optional, default true)""",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Import finished, see the per-row report",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TeacherImportResultDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Missing CSV columns",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503", description = "Another import is running",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PostMapping(value = "/teachers/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<TeacherImportResultDTO> importTeachers(HttpServletRequest request)
+            throws IOException, AppObjectInvalidArgumentException {
+
+        // Read from the request stream, not a multipart part, so the upload is never held whole
+        ImportFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV)
+                ? ImportFormat.CSV : ImportFormat.NDJSON;
+        return ResponseEntity.ok(teacherImportService.importTeachers(request.getInputStream(), format));
+    }
+
+    @Operation(
+            summary = "Check availability of registration fields",
+            description = "For each given field, true if the value is free. Meant for as-you-type checks in the registration form",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Availability returned",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AvailabilityReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "429", description = "Too many checks",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @GetMapping("/teachers/availability")
+    public ResponseEntity<AvailabilityReadOnlyDTO> checkAvailability(
+            @RequestParam(required = false) String username, @RequestParam(required = false) String vat,
+            @RequestParam(required = false) String amka, @RequestParam(required = false) String identityNumber,
+            HttpServletRequest request) throws AppTooManyRequestsException {
+
+        return ResponseEntity.ok(availabilityService.checkAvailability(username, vat, amka, identityNumber,
+                ClientIpResolver.resolve(request)));
+    }
+
     @Operation(
             summary = "Get all teachers paginated",
+            description = "count=EXACT (default) counts the total, cached until the next teacher write; " +
+                    "count=ESTIMATE reads it from the table statistics; count=NONE leaves totalElements and totalPages null. " +
+                    "Responses carry a weak ETag and Last-Modified that change with any teacher write; " +
+                    "If-None-Match or If-Modified-Since with a current value is answered with 304.",
             security = @SecurityRequirement(name = "Bearer Authentication"),
             responses = {
                     @ApiResponse(
@@ -118,6 +216,7 @@ public class TeacherRestController {
                                         )
                             )
                     ),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the given ETag or date"),
                     @ApiResponse(
                             responseCode = "401", description = "Not Authenticated",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
@@ -128,15 +227,23 @@ public class TeacherRestController {
     )
     @GetMapping("/teachers")
     public ResponseEntity<Paginated<TeacherReadOnlyDTO>> getPaginatedTeachers(
-        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size
+        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+        @RequestParam(defaultValue = "EXACT") CountMode count, HttpServletRequest request
     ) {
+        ResourceVersionDTO version = teacherService.getPaginatedTeachersVersion(page, size, count);
+        if (ConditionalRequests.notModified(request, version.eTag(), version.lastModified())) {
+            return notModified(version);
+        }
 //        Page<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size);
-        Paginated<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size);
-        return ResponseEntity.ok(teachersPage);
+        Paginated<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size, count);
+        return withVersion(ResponseEntity.ok(), version).body(teachersPage);
     }
 
     @Operation(
             summary = "Get all teachers paginated and filtered",
+            description = "The count field of the filters works as the count parameter of GET /teachers. " +
+                    "Conditional requests work as in GET /teachers: the search only reads, so a current " +
+                    "If-None-Match is answered with 304 although the method is POST.",
             security = @SecurityRequirement(name = "Bearer Authentication"),
             responses = {
                     @ApiResponse(
@@ -156,6 +263,7 @@ public class TeacherRestController {
                                                 }"""
                                     ))
                     ),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the given ETag or date"),
                     @ApiResponse(
                             responseCode = "401", description = "Unauthorized",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
@@ -166,21 +274,148 @@ public class TeacherRestController {
     )
     @PostMapping("/teachers/search")
     public ResponseEntity<Paginated<TeacherReadOnlyDTO>> getFilteredAndPaginatedTeachers(
-            @Nullable @RequestBody TeacherFilters filters)  {
+            @Nullable @RequestBody TeacherFilters filters, HttpServletRequest request)  {
 
         if (filters == null) filters = TeacherFilters.builder().build();
+        ResourceVersionDTO version = teacherService.getTeachersFilteredVersion(filters);
+        if (ConditionalRequests.notModified(request, version.eTag(), version.lastModified())) {
+            return notModified(version);
+        }
         Paginated<TeacherReadOnlyDTO> dtoPaginated = teacherService.getTeachersFilteredPaginated(filters);
-        return ResponseEntity.ok(dtoPaginated);
+        return withVersion(ResponseEntity.ok(), version).body(dtoPaginated);
+    }
+
+    @Operation(
+            summary = "Get all teachers by keyset (cursor) pagination",
+            description = "Start without a cursor and pass the nextCursor of each page to get the next one. " +
+                    "Deep pages cost the same as the first. A total is counted only with count=EXACT or ESTIMATE.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Teachers returned",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = KeysetPaginated.class,
+                                    example = """
+                                                {
+                                                  "data": [
+                                                    { "id": 11, "uuid": "...", ... },
+                                                    { "id": 12, "uuid": "...", ... }
+                                                  ],
+                                                  "pageSize": 2,
+                                                  "numberOfElements": 2,
+                                                  "nextCursor": "MXxJRHxBU0N8MTI",
+                                                  "totalElements": null
+                                                }"""
+                            ))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Unsupported sort field or invalid cursor",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "401", description = "Not Authenticated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
+            }
+    )
+    @GetMapping("/teachers/keyset")
+    public ResponseEntity<KeysetPaginated<TeacherReadOnlyDTO>> getKeysetPaginatedTeachers(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "5") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "ASC") Sort.Direction sortDirection,
+            @RequestParam(defaultValue = "NONE") CountMode count
+    ) throws AppObjectInvalidArgumentException {
+        TeacherFilters filters = TeacherFilters.builder().build();
+        filters.setCursor(cursor);
+        filters.setPageSize(size);
+        filters.setSortBy(sortBy);
+        filters.setSortDirection(sortDirection);
+        filters.setCount(count);
+        return ResponseEntity.ok(teacherService.getTeachersKeysetPaginated(filters));
+    }
+
+    @Operation(
+            summary = "Get teachers filtered, by keyset (cursor) pagination",
+            description = "Same filters as /teachers/search; page is ignored, cursor continues from the previous page.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Teachers returned",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = KeysetPaginated.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Unsupported sort field or invalid cursor",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "401", description = "Unauthorized",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
+            }
+    )
+    @PostMapping("/teachers/search/keyset")
+    public ResponseEntity<KeysetPaginated<TeacherReadOnlyDTO>> getFilteredAndKeysetPaginatedTeachers(
+            @Nullable @RequestBody TeacherFilters filters) throws AppObjectInvalidArgumentException {
+
+        if (filters == null) filters = TeacherFilters.builder().build();
+        return ResponseEntity.ok(teacherService.getTeachersKeysetPaginated(filters));
+    }
+
+    @Operation(
+            summary = "Export teachers as NDJSON or CSV",
+            description = """
+                    Streams every teacher selected by the filters (as in /teachers/search) in id order,                     straight from a database cursor: no paging, and memory does not grow with the number of rows.                     format=ndjson (default) writes one teacher object per line; format=csv writes a header row and                     the columns id, uuid, isActive, firstname, lastname, vat, amka, identityNumber.""",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Teachers streamed"),
+                    @ApiResponse(
+                            responseCode = "400", description = "Unsupported format",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @GetMapping("/teachers/export")
+    public ResponseEntity<StreamingResponseBody> exportTeachers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String uuid, @RequestParam(required = false) String userVat,
+            @RequestParam(required = false) String userAmka, @RequestParam(required = false) Boolean active
+    ) throws AppObjectInvalidArgumentException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("ExportFormat", "Unsupported export format " + format);
+        }
+        TeacherFilters filters = TeacherFilters.builder().uuid(uuid).userVat(userVat).userAmka(userAmka)
+                .active(active).build();
+
+        // Written after the handler returns, on an async request thread, so the query runs while the
+        // response is being sent
+        StreamingResponseBody body = output -> teacherExportService.exportTeachers(filters, exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == ExportFormat.CSV ? TEXT_CSV_UTF8 : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("teachers." + exportFormat.name().toLowerCase(Locale.ROOT))
+                        .build().toString())
+                .body(body);
     }
 
     @Operation(
             summary = "Get one teacher by uuid",
+            description = "Responses carry a strong ETag and Last-Modified; If-None-Match or If-Modified-Since " +
+                    "with a current value is answered with 304 without loading the teacher.",
             security = @SecurityRequirement(name = "Bearer Authentication"),
             responses = {
                     @ApiResponse(
                             responseCode = "200", description = "Teacher returned",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = TeacherReadOnlyDTO.class))
                     ),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the given ETag or date"),
                     @ApiResponse(
                             responseCode = "404", description = "Teacher not found",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
@@ -196,11 +431,77 @@ public class TeacherRestController {
             }
     )
     @GetMapping("/teachers/{uuid}")
-    public ResponseEntity<TeacherReadOnlyDTO> getTeacherByUuid(@PathVariable String uuid)
+    public ResponseEntity<TeacherReadOnlyDTO> getTeacherByUuid(@PathVariable String uuid, HttpServletRequest request)
             throws AppObjectNotFoundException {
-        return ResponseEntity.ok(teacherService.getOneTeacher(uuid));
+        // Probed before the read: a write in between gives the new body an older tag, which
+        // only costs the client one more full download. The body is never older than the tag.
+        ResourceVersionDTO version = teacherService.getTeacherVersion(uuid);
+        if (ConditionalRequests.notModified(request, version.eTag(), version.lastModified())) {
+            return notModified(version);
+        }
+        return withVersion(ResponseEntity.ok(), version)
+                .body(teacherService.getOneTeacher(uuid, version.lastModified()));
     }
 
+    @Operation(
+            summary = "Download the AMKA file of a teacher",
+            description = "Supports single byte ranges (Range, If-Range) and conditional requests (If-None-Match)",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "File returned"),
+                    @ApiResponse(responseCode = "206", description = "Requested range returned"),
+                    @ApiResponse(responseCode = "304", description = "Not modified, the ETag matches If-None-Match"),
+                    @ApiResponse(responseCode = "416", description = "Range not satisfiable"),
+                    @ApiResponse(
+                            responseCode = "404", description = "Teacher or file not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @GetMapping("/teachers/{uuid}/attachments/amka")
+    public void downloadAmkaFile(@PathVariable String uuid, HttpServletRequest request, HttpServletResponse response)
+            throws AppObjectNotFoundException, IOException {
+        FileResponseWriter.write(teacherService.getAmkaFile(uuid), request, response);
+    }
+
+    @Operation(
+            summary = "Replace the AMKA file of a teacher with a completed upload",
+            description = "Completes a resumable upload (see /api/uploads) whose chunks have all been received",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "AMKA file replaced",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TeacherReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Validation error or upload incomplete",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404", description = "Teacher or upload not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PutMapping("/teachers/{uuid}/attachments/amka")
+    public ResponseEntity<TeacherReadOnlyDTO> attachAmkaUpload(@PathVariable String uuid,
+                                                               @Valid @RequestBody AttachmentUploadDTO attachmentUploadDTO,
+                                                               BindingResult bindingResult, Principal principal)
+            throws ValidationException, AppObjectNotFoundException, AppObjectNotAuthorizedException,
+            AppObjectInvalidArgumentException, IOException {
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+        return ResponseEntity.ok(teacherService.attachAmkaUpload(uuid, attachmentUploadDTO.uploadId(), principal.getName()));
+    }
 
     @Operation(
             summary = "Update a teacher",
@@ -252,4 +553,15 @@ public class TeacherRestController {
 
         return ResponseEntity.ok(teacherReadOnlyDTO);
     }
+
+    private static <T> ResponseEntity<T> notModified(ResourceVersionDTO version) {
+        return withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version).build();
+    }
+
+    // no-cache: clients may store the response, but revalidate before each use
+    private static ResponseEntity.BodyBuilder withVersion(ResponseEntity.BodyBuilder builder, ResourceVersionDTO version) {
+        builder.eTag(version.eTag()).cacheControl(CacheControl.noCache().cachePrivate());
+        if (version.lastModified() != null) builder.lastModified(version.lastModified());
+        return builder;
+    }
 }
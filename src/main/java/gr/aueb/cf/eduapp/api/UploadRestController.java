@@ -0,0 +1,137 @@
+package gr.aueb.cf.eduapp.api;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.exceptions.ValidationException;
+import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
+import gr.aueb.cf.eduapp.dto.UploadSessionInsertDTO;
+import gr.aueb.cf.eduapp.dto.UploadSessionReadOnlyDTO;
+import gr.aueb.cf.eduapp.service.IUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadRestController {
+
+    private final IUploadService uploadService;
+
+    @Operation(
+            summary = "Create a resumable upload",
+            description = """
+                    Starts a chunked upload of `size` bytes. The response gives the chunk size and count:
+                    chunk n (from 0) is bytes n * chunkSize up to the next chunk, the last one shorter.
+                    Put the chunks in any order, then complete the upload, e.g. as a teacher's AMKA file.""",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201", description = "Upload created",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Validation error or upload too large",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PostMapping
+    public ResponseEntity<UploadSessionReadOnlyDTO> createUpload(@Valid @RequestBody UploadSessionInsertDTO uploadSessionInsertDTO,
+                                                                 BindingResult bindingResult, Principal principal)
+            throws ValidationException, AppObjectInvalidArgumentException, IOException {
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+
+        UploadSessionReadOnlyDTO upload = uploadService.createUpload(uploadSessionInsertDTO, principal.getName());
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{uploadId}")
+                .buildAndExpand(upload.uploadId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);
+    }
+
+    @Operation(
+            summary = "Get the state of an upload",
+            description = "Lists the chunks still missing, e.g. to resume an interrupted upload",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Upload returned",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404", description = "Upload not found or expired",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionReadOnlyDTO> getUpload(@PathVariable String uploadId, Principal principal)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        return ResponseEntity.ok(uploadService.getUpload(uploadId, principal.getName()));
+    }
+
+    @Operation(
+            summary = "Put a chunk of an upload",
+            description = "The body is the raw chunk, exactly its length. Putting a chunk again overwrites it",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Chunk stored, upload returned",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Chunk out of range or of the wrong length",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404", description = "Upload not found or expired",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PutMapping(value = "/{uploadId}/chunks/{chunk}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionReadOnlyDTO> putChunk(@PathVariable String uploadId, @PathVariable int chunk,
+                                                             HttpServletRequest request, Principal principal)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException {
+        // Read from the request stream, straight into place
+        return ResponseEntity.ok(uploadService.writeChunk(uploadId, chunk, request.getInputStream(), principal.getName()));
+    }
+
+    @Operation(
+            summary = "Cancel an upload",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Upload cancelled"),
+                    @ApiResponse(
+                            responseCode = "404", description = "Upload not found or expired",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> cancelUpload(@PathVariable String uploadId, Principal principal)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        uploadService.cancelUpload(uploadId, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+}
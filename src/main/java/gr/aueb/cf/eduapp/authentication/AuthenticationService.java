@@ -1,10 +1,16 @@
 package gr.aueb.cf.eduapp.authentication;
 
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
 import gr.aueb.cf.eduapp.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.eduapp.dto.AuthenticationResponseDTO;
+import gr.aueb.cf.eduapp.dto.LogoutRequestDTO;
+import gr.aueb.cf.eduapp.dto.TokenRefreshRequestDTO;
+import gr.aueb.cf.eduapp.dto.TokenRefreshResponseDTO;
 import gr.aueb.cf.eduapp.model.User;
 import gr.aueb.cf.eduapp.repository.UserRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -12,9 +18,14 @@ import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthenticationService {
 
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserSecurityRegistry userSecurityRegistry;
+    private final UserRepository userRepository;
     private final AuthenticationManager authenticationManager;
 
     /**
@@ -27,7 +38,43 @@ public class AuthenticationService {
                 new UsernamePasswordAuthenticationToken(dto.username(), dto.password()));
 
         User user = (User) authentication.getPrincipal();
-        String token = jwtService.generateToken(authentication.getName(), user.getRole().name());
-        return new AuthenticationResponseDTO(user.getFirstname(), user.getLastname(), token);
+        String token = jwtService.generateToken(user);
+        String refreshToken = refreshTokenService.issue(user);
+        return new AuthenticationResponseDTO(user.getFirstname(), user.getLastname(), token, refreshToken);
+    }
+
+    /**
+     * Renews an expired (or about to expire) access token without a password
+     * verification. The presented refresh token is rotated.
+     */
+    public TokenRefreshResponseDTO refresh(TokenRefreshRequestDTO dto) {
+        return refreshTokenService.refresh(dto.refreshToken());
+    }
+
+    /**
+     * Revokes the access token of the current request (by jti) and,
+     * if given, the refresh token of the same session.
+     */
+    public void logout(JwtClaims claims, LogoutRequestDTO dto) {
+        tokenRevocationService.revoke(claims);
+        if (dto != null && dto.refreshToken() != null) {
+            refreshTokenService.revoke(dto.refreshToken());
+        }
+    }
+
+    /**
+     * Signs a user out of every session. Bumping the security version invalidates
+     * all access tokens of the user at once (their jtis are not known to the server),
+     * and all refresh tokens are revoked.
+     */
+    @Transactional
+    public void forceSignOut(String username) throws AppObjectNotFoundException {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new AppObjectNotFoundException("User", "User with username " + username + " not found"));
+
+        userRepository.incrementSecurityVersion(user.getId());
+        refreshTokenService.revokeAll(user.getId());
+        userSecurityRegistry.evictAfterCommit(user.getId());
+        log.info("User={} signed out from all sessions", username);
     }
 }
@@ -0,0 +1,46 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a token that has already been
+ * signature-verified. Built once per token by {@link JwtService#validateToken(String)},
+ * so callers never need to parse the same token again.
+ * <p>
+ * {@code userId}, {@code teacherUuid} and {@code version} are null for
+ * tokens issued without the user snapshot claims. {@code tokenId} (jti)
+ * identifies the token in the revocation list.
+ */
+public record JwtClaims(String tokenId, String subject, String role, Long userId, String teacherUuid, Long version,
+                        Instant issuedAt, Instant expiration) {
+
+    public static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                toLong(claims.get("uid", Number.class)),
+                claims.get("tuuid", String.class),
+                toLong(claims.get("ver", Number.class)),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+    }
+
+    public boolean hasUserSnapshot() {
+        return userId != null && version != null && role != null;
+    }
+
+    public boolean isExpired() {
+        return isExpiredAt(Instant.now());
+    }
+
+    public boolean isExpiredAt(Instant instant) {
+        return expiration != null && !expiration.isAfter(instant);
+    }
+
+    private static Long toLong(Number number) {
+        return number == null ? null : number.longValue();
+    }
+}
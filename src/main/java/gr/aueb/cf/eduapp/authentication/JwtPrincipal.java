@@ -0,0 +1,25 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal built only from the signed claims of an access token.
+ * Used instead of the {@code User} entity when claims-based authentication is enabled.
+ */
+public record JwtPrincipal(Long userId, String username, Role role, String teacherUuid) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
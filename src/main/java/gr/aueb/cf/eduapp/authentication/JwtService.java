@@ -1,10 +1,13 @@
 package gr.aueb.cf.eduapp.authentication;
 
+import gr.aueb.cf.eduapp.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -12,6 +15,8 @@ import org.springframework.stereotype.Service;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
@@ -23,23 +28,95 @@ public class JwtService {
     @Value("${app.security.jwt-expiration}")
     private long jwtExpiration;
 
+    @Value("${app.security.verified-token-cache-size:10000}")
+    private int verifiedTokenCacheSize;
+
+    // Key and parser are immutable and thread-safe, so they are built once
+    private Key signInKey;
+    private JwtParser jwtParser;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @PostConstruct
+    void init() {
+        signInKey = getSignInKey();
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        verifiedTokenCache = new VerifiedTokenCache(verifiedTokenCacheSize);
+    }
+
+    /**
+     * Issues a token that also carries the user snapshot claims
+     * (user id, teacher uuid and security version), so requests can be
+     * authenticated without loading the user from the database.
+     */
+    public String generateToken(User user) {
+        return generateToken(user.getUsername(), user.getRole().name(), user.getId(),
+                user.isTeacher() ? user.getTeacher().getUuid() : null, user.getSecurityVersion());
+    }
+
+    /**
+     * Same as {@link #generateToken(User)}, used when renewing a token from a refresh
+     * token where only the cached {@link UserSecuritySnapshot} is at hand.
+     */
+    public String generateToken(UserSecuritySnapshot snapshot) {
+        return generateToken(snapshot.username(), snapshot.role().name(), snapshot.userId(),
+                snapshot.teacherUuid(), snapshot.currentVersion());
+    }
+
+    private String generateToken(String username, String role, Long userId, String teacherUuid, Long version) {
+        var claims = new HashMap<String, Object>();
+        claims.put("role", role);
+        claims.put("uid", userId);
+        claims.put("ver", version == null ? 0L : version);
+        if (teacherUuid != null) claims.put("tuuid", teacherUuid);
+        return buildToken(username, claims);
+    }
+
     public String generateToken(String username, String role) {
         var claims = new HashMap<String, Object>();
         claims.put("role", role);
+        return buildToken(username, claims);
+    }
+
+    private String buildToken(String username, Map<String, Object> claims) {
         return Jwts
                 .builder()
                 .setIssuer("self") // todo
                 .setClaims(claims)
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString())     // jti, used by the revocation list
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the token signature and expiration once and returns its claims.
+     * Tokens verified before are served from a bounded cache until they expire,
+     * so repeat bearers skip the HMAC verification.
+     *
+     * @param token the compact JWS
+     * @return      the verified claims
+     * @throws io.jsonwebtoken.ExpiredJwtException  if the token has expired
+     * @throws io.jsonwebtoken.JwtException         if the token is malformed or the signature is invalid
+     */
+    public JwtClaims validateToken(String token) {
+        JwtClaims cached = verifiedTokenCache.get(token);
+        if (cached != null) return cached;
+
+        JwtClaims claims = JwtClaims.from(extractAllClaims(token));
+        verifiedTokenCache.put(token, claims);
+        return claims;
+    }
+
+    public boolean isTokenValid(JwtClaims claims, UserDetails userDetails) {
+        return claims.subject().equals(userDetails.getUsername()) && !claims.isExpired();
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String subject = extractSubject(token);
-        return (subject.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(validateToken(token), userDetails);
     }
 
     public String getStringClaim(String token, String claim) {
@@ -47,7 +124,7 @@ public class JwtService {
     }
 
     public String extractSubject(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return validateToken(token).subject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -55,19 +132,8 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
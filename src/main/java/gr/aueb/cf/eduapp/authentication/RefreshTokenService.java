@@ -0,0 +1,133 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.dto.TokenRefreshResponseDTO;
+import gr.aueb.cf.eduapp.model.RefreshToken;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.RefreshTokenRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Issues and rotates refresh tokens. A refresh costs one indexed lookup on
+ * {@code refresh_tokens.token_hash} and one HMAC for the new access token,
+ * instead of a full BCrypt password verification.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final UserSecurityRegistry userSecurityRegistry;
+    private final JwtService jwtService;
+    private final long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               UserSecurityRegistry userSecurityRegistry, JwtService jwtService,
+                               @Value("${app.security.refresh-expiration}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.userSecurityRegistry = userSecurityRegistry;
+        this.jwtService = jwtService;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    /**
+     * Creates a new refresh token for the user.
+     *
+     * @return the raw token, returned to the client once and never stored
+     */
+    @Transactional
+    public String issue(User user) {
+        return issue(user.getId());
+    }
+
+    /**
+     * Rotates the presented refresh token: revokes it and issues a new refresh token
+     * together with a new access token.
+     * <p>
+     * Presenting a token that was already used means it has leaked (or was replayed),
+     * so all refresh tokens of the user are revoked.
+     *
+     * @throws BadCredentialsException if the token is unknown, expired, revoked,
+     *                                 or the user is no longer active
+     */
+    @Transactional(dontRollbackOn = BadCredentialsException.class)
+    public TokenRefreshResponseDTO refresh(String rawToken) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        Long userId = refreshToken.getUser().getId();      // lazy proxy, id only - no user select
+        LocalDateTime now = LocalDateTime.now();
+
+        if (refreshToken.isRevoked() || refreshTokenRepository.revokeIfActive(refreshToken.getId(), now) == 0) {
+            refreshTokenRepository.revokeAllByUserId(userId, now);
+            log.warn("Reuse of refresh token detected for user with id={}, all refresh tokens revoked", userId);
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+
+        if (refreshToken.isExpired()) {
+            throw new BadCredentialsException("Expired refresh token");
+        }
+
+        UserSecuritySnapshot snapshot = userSecurityRegistry.getSnapshot(userId)
+                .filter(UserSecuritySnapshot::isEnabled)
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        return new TokenRefreshResponseDTO(jwtService.generateToken(snapshot), issue(userId));
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.revokeByTokenHash(hash(rawToken), LocalDateTime.now());
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(cron = "${app.security.refresh-cleanup-cron:0 0 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("{} expired refresh tokens deleted", deleted);
+    }
+
+    private String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUser(userRepository.getReferenceById(userId));
+        refreshToken.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000L));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.bloom.BloomFilter;
+import gr.aueb.cf.eduapp.model.RevokedToken;
+import gr.aueb.cf.eduapp.repository.RevokedTokenRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation list of access tokens, keyed by jti.
+ * <p>
+ * Every authenticated request asks {@link #isRevoked(String)}. The in-memory Bloom
+ * filter answers the common (not revoked) case without allocation or database access.
+ * Only on a Bloom hit, which is a revoked token or a rare false positive, is the
+ * exact {@code revoked_tokens} table consulted.
+ * <p>
+ * Bloom filters can not delete, so the filter is rebuilt from the table after
+ * expired rows are purged. The rebuild also picks up revocations made by other nodes.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter bloomFilter;
+
+    // Revocations made on this node, kept until expiry so a rebuild can never lose one
+    private final Map<String, Instant> localRevocations = new ConcurrentHashMap<>();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${app.security.revocation.expected-entries:100000}") long expectedRevocations,
+                                  @Value("${app.security.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) return false;
+        return revokedTokenRepository.existsById(jti);
+    }
+
+    @Transactional
+    public void revoke(JwtClaims claims) {
+        if (claims.tokenId() == null || claims.expiration() == null) return;
+
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.expiration(), ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(claims.tokenId(), claims.userId(), expiresAt));
+        localRevocations.put(claims.tokenId(), claims.expiration());
+        bloomFilter.put(claims.tokenId());
+        log.info("Token of user={} revoked", claims.subject());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<String> activeJtis = revokedTokenRepository.findActiveJtis(LocalDateTime.now());
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, activeJtis.size() * 2L), falsePositiveRate);
+        activeJtis.forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+
+        // Local revocations not yet committed (or made while rebuilding) when the table was read
+        Instant now = Instant.now();
+        localRevocations.values().removeIf(expiration -> expiration.isBefore(now));
+        localRevocations.keySet().forEach(rebuilt::put);
+        log.info("Revocation filter rebuilt with {} active entries", activeJtis.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval-ms:300000}")
+    @Transactional
+    public void purgeExpiredAndRebuild() {
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) log.info("{} expired revoked tokens deleted", deleted);
+        rebuild();
+    }
+}
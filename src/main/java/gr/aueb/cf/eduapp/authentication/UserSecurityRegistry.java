@@ -0,0 +1,103 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory table of {@link UserSecuritySnapshot}s keyed by user id.
+ * A snapshot is loaded from the database the first time a user is seen and
+ * is then served from memory until the user's role or active flag changes,
+ * at which point {@link #evictAfterCommit(Long)} drops it.
+ * <p>
+ * A load that was running while an eviction happened is returned but not cached, so a
+ * row read before a change is never cached after it. Snapshots are also served for at
+ * most {@code user-snapshot-ttl-ms}, to cover changes made through other instances.
+ */
+@Component
+@Slf4j
+public class UserSecurityRegistry {
+
+    private record Entry(UserSecuritySnapshot snapshot, long expiresAtNanos) {}
+
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, Entry> snapshots = new ConcurrentHashMap<>();
+    // Bumped by every eviction, before the entry is removed
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserSecurityRegistry(UserRepository userRepository,
+                                @Value("${app.security.user-snapshot-cache-size:50000}") int maxSize,
+                                @Value("${app.security.user-snapshot-ttl-ms:60000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+    }
+
+    public Optional<UserSecuritySnapshot> getSnapshot(Long userId) {
+        Entry cached = snapshots.get(userId);
+        if (cached != null && System.nanoTime() - cached.expiresAtNanos() < 0) return Optional.of(cached.snapshot());
+
+        long loadGeneration = generation.get();
+        Optional<UserSecuritySnapshot> loaded = userRepository.findSecuritySnapshotById(userId);
+        loaded.ifPresent(s -> {
+            if (snapshots.size() >= maxSize) evictSome();
+            // Runs under the lock of the key: an eviction either bumped the generation before, or removes the entry after
+            snapshots.compute(userId, (id, current) -> generation.get() == loadGeneration
+                    ? new Entry(s, System.nanoTime() + ttlNanos)
+                    : current);
+        });
+        return loaded;
+    }
+
+    public void evict(Long userId) {
+        generation.incrementAndGet();
+        snapshots.remove(userId);
+    }
+
+    /**
+     * Drops the snapshot once the current transaction commits, so a concurrent
+     * request can not reload (and cache) the pre-update row. Without an active
+     * transaction the snapshot is dropped immediately.
+     */
+    public void evictAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+                log.info("Security snapshot of user with id={} evicted", userId);
+            }
+        });
+    }
+
+    /**
+     * Makes room without bumping the generation: expired snapshots first, then arbitrary ones.
+     */
+    private void evictSome() {
+        long now = System.nanoTime();
+        snapshots.values().removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+        if (snapshots.size() < maxSize) return;
+
+        int toRemove = Math.max(1, maxSize / 10);
+        Iterator<Long> iterator = snapshots.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.Role;
+
+/**
+ * The few user columns that decide whether a token is still acceptable.
+ * Loaded with a single projection query and kept in {@link UserSecurityRegistry},
+ * so request authentication does not need to load the full {@code User} entity.
+ */
+public record UserSecuritySnapshot(Long userId, String username, Role role, String teacherUuid,
+                                   Long version, Boolean active) {
+
+    public long currentVersion() {
+        return version == null ? 0L : version;
+    }
+
+    public boolean isEnabled() {
+        return active == null || active;     // same rule as User#isEnabled
+    }
+}
@@ -0,0 +1,70 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified.
+ * A repeat bearer of the same token skips the HMAC verification.
+ * Entries are never returned after their token has expired, so an
+ * expired token always goes back through the parser (and fails there).
+ */
+class VerifiedTokenCache {
+
+    private final int maxSize;
+    private final Map<String, JwtClaims> entries = new ConcurrentHashMap<>();
+
+    VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    JwtClaims get(String token) {
+        if (maxSize <= 0) return null;
+
+        JwtClaims claims = entries.get(token);
+        if (claims == null) return null;
+
+        if (claims.isExpired()) {
+            entries.remove(token, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    void put(String token, JwtClaims claims) {
+        if (maxSize <= 0 || claims.expiration() == null) return;   // never cache tokens that do not expire
+
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(token, claims);
+    }
+
+    void invalidate(String token) {
+        entries.remove(token);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired entries first. If the cache is still full
+     * (all tokens alive), drops an arbitrary tenth of it.
+     */
+    private void evict() {
+        Instant now = Instant.now();
+        entries.values().removeIf(claims -> claims.isExpiredAt(now));
+
+        if (entries.size() < maxSize) return;
+
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package gr.aueb.cf.eduapp.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the originating client IP of a request, honoring {@code X-Forwarded-For}
+ * when the app runs behind a proxy (Nginx/Caddy).
+ */
+public final class ClientIpResolver {
+
+    private ClientIpResolver() {
+
+    }
+
+    public static String resolve(HttpServletRequest request) {
+        String clientIp = request.getHeader("X-Forwarded-For"); // if proxy is used like Nginx/Caddy
+        if (clientIp != null && !clientIp.isEmpty()) {
+            clientIp = clientIp.split(",")[0].trim();  // Get original client IP if behind a proxy
+        } else {
+            clientIp = request.getRemoteAddr();        // Fallback to direct connection
+        }
+        if ("0:0:0:0:0:0:0:1".equals(clientIp)) {
+            clientIp = "127.0.0.1";
+        }
+        return clientIp;
+    }
+}
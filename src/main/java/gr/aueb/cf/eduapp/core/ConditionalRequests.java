@@ -0,0 +1,54 @@
+package gr.aueb.cf.eduapp.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+
+/**
+ * Evaluates {@code If-None-Match} and {@code If-Modified-Since} (RFC 9110, section 13).
+ * {@code If-Modified-Since} is only considered without {@code If-None-Match}, and
+ * entity tags are compared weakly, as {@code If-None-Match} requires.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {}
+
+    /**
+     * True when the client already holds the current representation and can be answered with 304.
+     *
+     * @param eTag          the quoted entity tag of the current representation
+     * @param lastModified  when it last changed, or null if unknown
+     */
+    public static boolean notModified(HttpServletRequest request, String eTag, Instant lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) return matches(ifNoneMatch, eTag);
+
+        if (lastModified == null) return false;
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;       // unparsable dates are ignored
+        }
+        // HTTP dates have whole seconds
+        return ifModifiedSince >= 0 && lastModified.getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) return false;
+
+        String opaqueTag = opaque(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (opaque(tag).equals(opaqueTag)) return true;
+        }
+        return false;
+    }
+
+    // Weak comparison ignores the W/ prefix
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -84,6 +84,24 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
                 .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
     }
 
+    @ExceptionHandler(AppTooManyRequestsException.class)
+    public ResponseEntity<ResponseMessageDTO> handleTooManyRequests(AppTooManyRequestsException e) {
+        log.warn("Request throttled. Message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(AppServiceUnavailableException.class)
+    public ResponseEntity<ResponseMessageDTO> handleServiceUnavailable(AppServiceUnavailableException e) {
+        log.warn("Service unavailable with message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
     @ExceptionHandler(IOException.class)
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(IOException e) {
         log.error("File upload failed with message={}", e.getMessage());
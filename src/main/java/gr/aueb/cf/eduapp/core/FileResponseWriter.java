@@ -0,0 +1,112 @@
+package gr.aueb.cf.eduapp.core;
+
+import gr.aueb.cf.eduapp.dto.AttachmentFileDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a file, or a region of one, to the response without reading it onto the heap.
+ * <p>
+ * Supports a single byte {@code Range} (with {@code If-Range}) and {@code If-None-Match}.
+ * Multiple ranges are answered with the whole file, which RFC 9110 allows.
+ * <p>
+ * On Tomcat the body is handed to the connector's sendfile support, so the kernel
+ * copies the file to the socket. Elsewhere it is transferred through the file channel.
+ * Content in remote storage is streamed from its {@link RangeReader}, one range request.
+ */
+public final class FileResponseWriter {
+
+    // Tomcat's sendfile request attributes (org.apache.tomcat.util.net.Constants)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileResponseWriter() {}
+
+    public static void write(AttachmentFileDTO file, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        long length = file.length();
+        String eTag = "\"" + file.eTag() + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (ConditionalRequests.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || start > end) throw new IllegalArgumentException("Range not satisfiable");
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        response.setContentType(file.contentType() != null ? file.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.filename() != null ? file.filename() : file.eTag(), StandardCharsets.UTF_8)
+                .build().toString());
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if (count == 0 || "HEAD".equals(request.getMethod())) return;
+
+        if (file.path() == null) {
+            try (InputStream in = file.reader().open(start, count)) {
+                in.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, file.offset() + start);
+            request.setAttribute(SENDFILE_END, file.offset() + end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = file.offset() + start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) break;       // truncated meanwhile
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
@@ -29,15 +29,7 @@ public class MDCLoggingFilter extends OncePerRequestFilter {
             if (auth != null) user = auth.getName();
 
             // --- Client IP ---
-            String clientIp = request.getHeader("X-Forwarded-For"); // if proxy is used like Nginx/Caddy
-            if (clientIp != null && !clientIp.isEmpty()) {
-                clientIp = clientIp.split(",")[0].trim();  // Get original client IP if behind a proxy
-            } else {
-                clientIp = request.getRemoteAddr();        // Fallback to direct connection
-            }
-            if ("0:0:0:0:0:0:0:1".equals(clientIp)) {
-                clientIp = "127.0.0.1";
-            }
+            String clientIp = ClientIpResolver.resolve(request);
 
             // --- Put values into MDC ---
             MDC.put("user", user);
@@ -0,0 +1,13 @@
+package gr.aueb.cf.eduapp.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens a byte range of content that is not a local file, e.g. an object in remote storage.
+ */
+@FunctionalInterface
+public interface RangeReader {
+
+    InputStream open(long offset, long length) throws IOException;
+}
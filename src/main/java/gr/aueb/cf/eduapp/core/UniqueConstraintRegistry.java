@@ -0,0 +1,93 @@
+package gr.aueb.cf.eduapp.core;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.spi.ViolatedConstraintNameExtractor;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Names of the unique constraints and the field each one protects.
+ * <p>
+ * Inserts rely on the database constraints instead of select-before-insert checks,
+ * which cost a query per field and are racy under concurrent requests anyway.
+ * A violation is mapped back to its field by the constraint name, so callers can
+ * report the same {@code <Code>AlreadyExists} errors as before.
+ */
+public final class UniqueConstraintRegistry {
+
+    public static final String USERS_USERNAME = "uk_users_username";
+    public static final String USERS_VAT = "uk_users_vat";
+    public static final String PERSONAL_INFO_AMKA = "uk_personal_information_amka";
+    public static final String PERSONAL_INFO_IDENTITY_NUMBER = "uk_personal_information_identity_number";
+
+    /**
+     * @param code      the error code prefix, e.g. "VAT" for "VATAlreadyExists"
+     * @param label     the field as shown in messages
+     */
+    public record UniqueField(String code, String label) {}
+
+    private static final Map<String, UniqueField> FIELDS = Map.of(
+            USERS_USERNAME, new UniqueField("Username", "username"),
+            USERS_VAT, new UniqueField("VAT", "vat"),
+            PERSONAL_INFO_AMKA, new UniqueField("AMKA", "AMKA"),
+            PERSONAL_INFO_IDENTITY_NUMBER, new UniqueField("IdentityNumber", "identity number")
+    );
+
+    private UniqueConstraintRegistry() {}
+
+    /**
+     * Finds the field whose unique constraint caused the exception.
+     *
+     * @return empty if the exception is not a violation of a registered constraint
+     */
+    public static Optional<UniqueField> resolve(Throwable exception) {
+        for (Throwable t = exception; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return resolve(violation.getConstraintName());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Like {@link #resolve(Throwable)}, but also reads the constraint name from plain
+     * {@link SQLException}s, e.g. of a JdbcTemplate batch, which Hibernate never translated.
+     * Batch exceptions are followed through their chained next exceptions too.
+     *
+     * @param extractor the one of the dialect in use
+     */
+    public static Optional<UniqueField> resolve(Throwable exception, ViolatedConstraintNameExtractor extractor) {
+        Optional<UniqueField> field = resolve(exception);
+        if (field.isPresent()) return field;
+
+        for (Throwable t = exception; t != null; t = t.getCause()) {
+            if (!(t instanceof SQLException sqlException)) continue;
+            for (SQLException e = sqlException; e != null; e = e.getNextException()) {
+                String constraintName = extractor.extractConstraintName(e);
+                if (constraintName != null) return resolve(constraintName);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Databases report the name decorated, e.g. {@code users.uk_users_vat} (MySQL)
+     * or {@code PUBLIC.UK_USERS_VAT_INDEX_4} (H2), so the schema/table qualifier
+     * and any suffix are ignored. The longest matching name wins.
+     */
+    static Optional<UniqueField> resolve(String constraintName) {
+        String name = constraintName.toLowerCase(Locale.ROOT).replace("`", "").replace("\"", "");
+        name = name.substring(name.lastIndexOf('.') + 1);
+
+        String match = null;
+        for (String registered : FIELDS.keySet()) {
+            if (name.startsWith(registered) && (match == null || registered.length() > match.length())) {
+                match = registered;
+            }
+        }
+        return Optional.ofNullable(match).map(FIELDS::get);
+    }
+}
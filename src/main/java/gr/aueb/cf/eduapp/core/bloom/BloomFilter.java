@@ -0,0 +1,91 @@
+package gr.aueb.cf.eduapp.core.bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe, lock-free Bloom filter over strings.
+ * <p>
+ * {@link #mightContain(CharSequence)} never allocates: the string is hashed
+ * char by char and the k bit positions are derived with double hashing,
+ * so a negative answer costs k memory reads and nothing else.
+ * A false answer is definite, a true answer has to be confirmed against
+ * an exact store.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    /**
+     * @param expectedInsertions    number of elements the filter is sized for
+     * @param falsePositiveRate     wanted false positive rate at that size, e.g. 0.01
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1L, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64L, m);
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(CharSequence value) {
+        long h1 = hash(value);
+        long h2 = (h1 >>> 32) | 1L;
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bitIndex = indexFor(h1 + i * h2);
+            int word = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long h1 = hash(value);
+        long h2 = (h1 >>> 32) | 1L;
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bitIndex = indexFor(h1 + i * h2);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    private long indexFor(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * FNV-1a over the chars, finished with the MurmurHash3 fmix64 avalanche step.
+     */
+    private static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
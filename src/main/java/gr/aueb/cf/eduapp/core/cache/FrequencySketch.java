@@ -0,0 +1,81 @@
+package gr.aueb.cf.eduapp.core.cache;
+
+/**
+ * Count-Min sketch of how often keys were seen recently, with 4-bit counters (at most 15),
+ * sixteen to a {@code long}. Each key has one counter in each of four rows; its frequency
+ * is the smallest of them. Once as many increments as ten times the width were counted,
+ * every counter is halved, so old popularity fades.
+ * <p>
+ * Not thread-safe, {@link WTinyLfuCache} calls it under its lock.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0x97CB3127L, 0xB1E84E73L, 0xC3A5C85CL, 0x9AE16A3BL};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries number of keys the cache is expected to hold
+     */
+    FrequencySketch(int expectedEntries) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, 1 << 26)) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, counter(hash, row));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int min = frequency(key);
+        if (min == 15) return;
+
+        // Conservative update: only the counters at the minimum, the others already overcount
+        for (int row = 0; row < SEEDS.length; row++) {
+            if (counter(hash, row) == min) {
+                long index = indexOf(hash, row);
+                table[(int) (index >>> 4)] += 1L << ((index & 15) << 2);
+            }
+        }
+        if (++additions >= sampleSize) reset();
+    }
+
+    private int counter(int hash, int row) {
+        long index = indexOf(hash, row);
+        return (int) ((table[(int) (index >>> 4)] >>> ((index & 15) << 2)) & 15L);
+    }
+
+    /**
+     * Position of the counter in the row: the array slot in the high bits, the nibble in the low four.
+     */
+    private long indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return h & (((long) tableMask << 4) | 15L);
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,87 @@
+package gr.aueb.cf.eduapp.core.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is running, callers with
+ * the same key wait for it and get its result, or its exception, instead of running
+ * their own. Nothing is kept once the call completes, so this is not a cache: a caller
+ * that comes after it starts a new call.
+ * <p>
+ * The first caller runs the call on its own thread, in its own transaction and security
+ * context. The others wait at most {@code timeoutMillis} for it.
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @throws E                    what the call threw, whether it ran here or for another caller
+     * @throws TimeoutException     if the call of another caller did not complete within the timeout
+     * @throws InterruptedException if interrupted while waiting for the call of another caller
+     */
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E, TimeoutException, InterruptedException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, flight);
+        if (running != null) {
+            shared.increment();
+            return await(running);
+        }
+
+        executions.increment();
+        V value;
+        try {
+            value = call.call();
+        } catch (Throwable t) {
+            // Removed first: a caller arriving now starts a new call rather than joining a finished one
+            calls.remove(key, flight);
+            flight.completeExceptionally(t);
+            throw t;
+        }
+        calls.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    /** Calls that ran */
+    public long executionCount() {
+        return executions.sum();
+    }
+
+    /** Callers that got the result of a call run for another caller */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> running)
+            throws E, TimeoutException, InterruptedException {
+        try {
+            return running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            // A checked exception can only come from a call of the same call site, so it is an E
+            throw (E) cause;
+        }
+    }
+}
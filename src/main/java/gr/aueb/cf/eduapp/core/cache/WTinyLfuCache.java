@@ -0,0 +1,254 @@
+package gr.aueb.cf.eduapp.core.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * In-process cache bounded by the total weight of its entries (e.g. their size in bytes),
+ * with W-TinyLFU eviction as in Caffeine:
+ * <ul>
+ *   <li>New entries go to a small LRU window (1% of the weight), which absorbs bursts.</li>
+ *   <li>Entries leaving the window compete for the main space (an SLRU of probation and
+ *   protected segments, protected being 80% of it) against the next entry the main
+ *   space would evict: the one requested more often recently, by a {@link FrequencySketch},
+ *   stays.</li>
+ * </ul>
+ * A scan of keys requested once therefore passes through the window without pushing out
+ * the popular entries, which a plain LRU would lose.
+ * <p>
+ * Thread-safe: every operation takes one lock, which is held for a few map operations.
+ * The statistics are read without it.
+ */
+public class WTinyLfuCache<K, V> {
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private final class Node {
+        final K key;
+        V value;
+        int weight;
+        Region region;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final ToIntBiFunction<K, V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+
+    private final Map<K, Node> data = new HashMap<>();
+    // Insertion-ordered: the head is the least recently used, an access moves a node to the tail
+    private final LinkedHashMap<K, Node> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node> protectedSegment = new LinkedHashMap<>();
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long weightedSize;
+    private volatile int size;
+
+    /**
+     * @param maximumWeight   bound of the summed weights of the entries
+     * @param expectedEntries roughly how many entries fit, sizes the frequency sketch
+     * @param weigher         weight of an entry; entries heavier than the whole cache are not kept
+     */
+    public WTinyLfuCache(long maximumWeight, int expectedEntries, ToIntBiFunction<K, V> weigher) {
+        this.weigher = weigher;
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.mainMaximum = Math.max(0, maximumWeight - windowMaximum);
+        this.protectedMaximum = mainMaximum * 80 / 100;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * The cached value, or {@code null}. Either way the request counts towards the key's frequency.
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        onAccess(node);
+        return node.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        Node node = data.get(key);
+        if (weight > maximumWeight) {
+            if (node != null) remove(node);
+            return;
+        }
+
+        if (node != null) {
+            addWeight(node.region, weight - node.weight);
+            node.value = value;
+            node.weight = weight;
+            onAccess(node);
+        } else {
+            node = new Node(key, value, weight);
+            node.region = Region.WINDOW;
+            data.put(key, node);
+            window.put(key, node);
+            windowWeight += weight;
+        }
+        evict();
+        updateSize();
+    }
+
+    public synchronized void invalidate(K key) {
+        Node node = data.get(key);
+        if (node != null) remove(node);
+        updateSize();
+    }
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = probationWeight = protectedWeight = 0;
+        updateSize();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void onAccess(Node node) {
+        switch (node.region) {
+            case WINDOW -> moveToTail(window, node);
+            case PROTECTED -> moveToTail(protectedSegment, node);
+            case PROBATION -> {
+                // Requested again while on probation: promoted
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                node.region = Region.PROTECTED;
+                protectedSegment.put(node.key, node);
+                protectedWeight += node.weight;
+                demoteProtected();
+            }
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum && !protectedSegment.isEmpty()) {
+            Node demoted = removeHead(protectedSegment);
+            protectedWeight -= demoted.weight;
+            demoted.region = Region.PROBATION;
+            probation.put(demoted.key, demoted);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            Node candidate = removeHead(window);
+            windowWeight -= candidate.weight;
+            candidate.region = Region.PROBATION;
+            probation.put(candidate.key, candidate);
+            probationWeight += candidate.weight;
+            admit(candidate);
+        }
+        demoteProtected();
+        // A value that grew in place can leave the main space over its bound
+        while (probationWeight + protectedWeight > mainMaximum) {
+            evictNode(probation.isEmpty() ? firstValue(protectedSegment) : firstValue(probation));
+        }
+    }
+
+    /**
+     * Makes room in the main space for the candidate, or evicts the candidate itself if it
+     * was requested less often than the entry that would have to go.
+     */
+    private void admit(Node candidate) {
+        while (probationWeight + protectedWeight > mainMaximum) {
+            Node victim = firstValue(probation);
+            if (victim == candidate) victim = firstValue(protectedSegment);
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evictNode(candidate);
+                return;
+            }
+            evictNode(victim);
+        }
+    }
+
+    private void evictNode(Node node) {
+        remove(node);
+        evictions.increment();
+    }
+
+    private void remove(Node node) {
+        data.remove(node.key);
+        switch (node.region) {
+            case WINDOW -> window.remove(node.key);
+            case PROBATION -> probation.remove(node.key);
+            case PROTECTED -> protectedSegment.remove(node.key);
+        }
+        addWeight(node.region, -node.weight);
+    }
+
+    private void addWeight(Region region, long delta) {
+        switch (region) {
+            case WINDOW -> windowWeight += delta;
+            case PROBATION -> probationWeight += delta;
+            case PROTECTED -> protectedWeight += delta;
+        }
+    }
+
+    private void updateSize() {
+        size = data.size();
+        weightedSize = windowWeight + probationWeight + protectedWeight;
+    }
+
+    private void moveToTail(LinkedHashMap<K, Node> segment, Node node) {
+        segment.remove(node.key);
+        segment.put(node.key, node);
+    }
+
+    private Node removeHead(LinkedHashMap<K, Node> segment) {
+        Iterator<Node> iterator = segment.values().iterator();
+        Node head = iterator.next();
+        iterator.remove();
+        return head;
+    }
+
+    private Node firstValue(LinkedHashMap<K, Node> segment) {
+        return segment.isEmpty() ? null : segment.values().iterator().next();
+    }
+}
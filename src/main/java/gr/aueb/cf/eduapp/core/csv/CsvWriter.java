@@ -0,0 +1,44 @@
+package gr.aueb.cf.eduapp.core.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180 writer, the counterpart of {@link CsvReader}: fields holding a comma, a double
+ * quote or a line break are quoted, quotes are doubled, and records end with CRLF.
+ * Writes straight to the underlying writer, which should be buffered.
+ */
+public class CsvWriter {
+
+    private final Writer writer;
+
+    public CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes one record; null fields are written empty.
+     */
+    public void writeRecord(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) writer.write(',');
+            if (fields[i] != null) writeField(fields[i].toString());
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
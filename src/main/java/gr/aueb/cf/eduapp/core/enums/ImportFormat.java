@@ -0,0 +1,5 @@
+package gr.aueb.cf.eduapp.core.enums;
+
+public enum ImportFormat {
+    CSV, NDJSON
+}
@@ -0,0 +1,22 @@
+package gr.aueb.cf.eduapp.core.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing executor) is saturated
+ * and the request is rejected instead of queued. Unchecked, since it can be raised
+ * deep inside framework callbacks such as a {@code PasswordEncoder}.
+ */
+@Getter
+public class AppServiceUnavailableException extends RuntimeException {
+    private static final String DEFAULT_CODE = "ServiceUnavailable";
+
+    private final String code;
+    private final long retryAfterSeconds;
+
+    public AppServiceUnavailableException(String code, String message, long retryAfterSeconds) {
+        super(message);
+        this.code = code + DEFAULT_CODE;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,17 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+/**
+ * How the total of a paginated response is computed. A count runs over the same joins
+ * as the page itself, so clients that do not show a total should not pay for one.
+ */
+public enum CountMode {
+    /** No total, the response carries none */
+    NONE,
+    /**
+     * Without filters, the row count the database keeps in its table statistics, read without
+     * scanning (InnoDB's can be off by tens of percent). With filters, the same as {@link #EXACT}
+     */
+    ESTIMATE,
+    /** A {@code COUNT(*)} over the filtered rows, cached until the next teacher write or for a short TTL */
+    EXACT
+}
@@ -19,6 +19,10 @@ public abstract class GenericFilters {
     private String sortBy;
     private Sort.Direction sortDirection;
 
+    // Keyset pagination only: the nextCursor of the previous page, null for the first page
+    private String cursor;
+    private CountMode count;
+
     public int getPage() {
         return Math.max(page, 0);
     }
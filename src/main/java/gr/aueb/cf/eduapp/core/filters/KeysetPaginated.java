@@ -0,0 +1,23 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page read by keyset (cursor) pagination. There are no page numbers; the next page
+ * is asked for with {@code nextCursor}, which is {@code null} on the last page.
+ * {@code totalElements} is {@code null} unless a count was asked for.
+ */
+@Getter
+@Setter
+@Builder
+public class KeysetPaginated<T> {
+    List<T> data;
+    int pageSize;
+    int numberOfElements;
+    String nextCursor;
+    Long totalElements;
+}
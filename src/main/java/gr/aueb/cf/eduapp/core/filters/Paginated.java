@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 
@@ -14,9 +15,10 @@ public class Paginated<T> {
     List<T> data;
     int currentPage;
     int pageSize;
-    int totalPages;
+    // null when the client asked for no count, see CountMode
+    Integer totalPages;
     int numberOfElements;
-    long totalElements;
+    Long totalElements;
 
     public static <T> Paginated<T> fromPage(Page<T> page) {
         // Static members are associated with the raw class (Paginated),
@@ -32,4 +34,13 @@ public class Paginated<T> {
                 .totalElements(page.getTotalElements())
                 .build();
     }
+
+    public static <T> Paginated<T> withoutTotal(List<T> data, Pageable pageable) {
+        return Paginated.<T>builder()
+                .data(data)
+                .currentPage(pageable.getPageNumber())
+                .pageSize(pageable.getPageSize())
+                .numberOfElements(data.size())
+                .build();
+    }
 }
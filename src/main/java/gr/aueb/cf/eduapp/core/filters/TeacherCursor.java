@@ -0,0 +1,48 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a keyset page: its sort value and its id, which breaks
+ * ties between equal sort values. Clients get it as an opaque token and send it back
+ * unchanged; it also records the sort it was issued for, so it cannot be replayed
+ * against another one.
+ *
+ * @param value the sort value of the last row, {@code null} if the row had none
+ */
+public record TeacherCursor(TeacherSortField sortField, Sort.Direction direction, long id, Object value) {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String token = String.join(SEPARATOR, VERSION, sortField.name(), direction.name(), Long.toString(id));
+        if (value != null) token += SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static TeacherCursor decode(String token) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 5);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor is not valid Base64", e);
+        }
+        if (parts.length < 4 || !parts[0].equals(VERSION)) {
+            throw new IllegalArgumentException("Unknown cursor format");
+        }
+        try {
+            TeacherSortField sortField = TeacherSortField.valueOf(parts[1]);
+            Object value = parts.length == 5 ? sortField.parse(parts[4]) : null;
+            return new TeacherCursor(sortField, Sort.Direction.valueOf(parts[2]), Long.parseLong(parts[3]), value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+/**
+ * The row-selecting part of {@link TeacherFilters}, in a canonical form: two filters that
+ * select the same teachers have equal keys. Blank values select everything, as in
+ * {@code TeacherSpecification}, so they become {@code null}; the uuid is matched case
+ * insensitively, so it is upper-cased.
+ */
+public record TeacherFilterKey(String uuid, String userVat, String userAmka, Boolean active) {
+
+    public static final TeacherFilterKey UNFILTERED = new TeacherFilterKey(null, null, null, null);
+
+    public static TeacherFilterKey of(TeacherFilters filters) {
+        return new TeacherFilterKey(
+                isBlank(filters.getUuid()) ? null : filters.getUuid().toUpperCase(),
+                isBlank(filters.getUserVat()) ? null : filters.getUserVat(),
+                isBlank(filters.getUserAmka()) ? null : filters.getUserAmka(),
+                filters.getActive());
+    }
+
+    public boolean isUnfiltered() {
+        return equals(UNFILTERED);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
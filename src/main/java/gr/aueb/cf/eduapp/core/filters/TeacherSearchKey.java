@@ -0,0 +1,17 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Canonical form of an offset search with {@link TeacherFilters}: two searches with equal keys
+ * return the same page. Defaults are resolved, as {@link GenericFilters} and the service
+ * apply them, so leaving a field out and sending its default give the same key.
+ */
+public record TeacherSearchKey(TeacherFilterKey filter, int page, int pageSize, String sortBy,
+                               Sort.Direction sortDirection, CountMode count) {
+
+    public static TeacherSearchKey of(TeacherFilters filters, CountMode count) {
+        return new TeacherSearchKey(TeacherFilterKey.of(filters), filters.getPage(), filters.getPageSize(),
+                filters.getSortBy(), filters.getSortDirection(), count);
+    }
+}
@@ -0,0 +1,45 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The teacher properties a listing can be sorted by, as given in {@link GenericFilters#getSortBy()}.
+ * Keyset pagination writes the sort value of the last row into the cursor, so each
+ * field also knows how to read that value back.
+ */
+public enum TeacherSortField {
+    ID("id", Long::valueOf),
+    UUID("uuid", value -> value),
+    IS_ACTIVE("isActive", Boolean::valueOf),
+    CREATED_AT("createdAt", LocalDateTime::parse),
+    UPDATED_AT("updatedAt", LocalDateTime::parse),
+    USER_FIRSTNAME("user.firstname", value -> value),
+    USER_LASTNAME("user.lastname", value -> value),
+    USER_VAT("user.vat", value -> value),
+    PERSONAL_INFO_AMKA("personalInfo.amka", value -> value),
+    PERSONAL_INFO_IDENTITY_NUMBER("personalInfo.identityNumber", value -> value);
+
+    private final String path;
+    private final Function<String, Object> parser;
+
+    TeacherSortField(String path, Function<String, Object> parser) {
+        this.path = path;
+        this.parser = parser;
+    }
+
+    /** The property path, relative to {@code Teacher} */
+    public String getPath() {
+        return path;
+    }
+
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    public static Optional<TeacherSortField> of(String path) {
+        return Arrays.stream(values()).filter(field -> field.path.equals(path)).findFirst();
+    }
+}
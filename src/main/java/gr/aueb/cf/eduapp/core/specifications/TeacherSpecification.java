@@ -4,6 +4,7 @@ import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.Teacher;
 import gr.aueb.cf.eduapp.model.User;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
 // Utility Class
@@ -17,7 +18,7 @@ public class TeacherSpecification {
         return ((root, query, criteriaBuilder) -> {
            if (vat == null || vat.isBlank())
                return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
-            Join<Teacher, User> user = root.join("user");
+            Join<Teacher, User> user = join(root, "user");
             return criteriaBuilder.equal(user.get("vat"), vat);
         });
     }
@@ -29,7 +30,7 @@ public class TeacherSpecification {
             }
 
             // Join the User entity related to the Teacher entity
-            Join<Teacher, User> user = root.join("user");
+            Join<Teacher, User> user = join(root, "user");
 
             // Return the condition where the user's isActive matches the input isActive
             return builder.equal(user.get("isActive"), isActive);
@@ -44,7 +45,7 @@ public class TeacherSpecification {
             }
 
             // Join the PersonalInfo entity related to the Teacher entity
-            Join<Teacher, PersonalInfo> personalInfo = root.join("personalInfo");
+            Join<Teacher, PersonalInfo> personalInfo = join(root, "personalInfo");
 
             // Return the condition where the personalInfo's AMKA matches the input AMKA
             return builder.equal(personalInfo.get("amka"), amka);
@@ -57,4 +58,17 @@ public class TeacherSpecification {
             return builder.like(builder.upper(root.get(field)), "%" + value.toUpperCase() + "%");
         };
     }
+
+    /**
+     * Reuses a join the query already has on the attribute, so that combined
+     * specifications, and projections that join for their select list, do not
+     * join the same table more than once.
+     */
+    @SuppressWarnings("unchecked")
+    private static <Y> Join<Teacher, Y> join(Root<Teacher> root, String attribute) {
+        for (Join<Teacher, ?> join : root.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) return (Join<Teacher, Y>) join;
+        }
+        return root.join(attribute);
+    }
 }
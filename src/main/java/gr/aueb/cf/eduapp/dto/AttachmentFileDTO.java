@@ -0,0 +1,18 @@
+package gr.aueb.cf.eduapp.dto;
+
+import gr.aueb.cf.eduapp.core.RangeReader;
+
+import java.nio.file.Path;
+
+/**
+ * A stored attachment file, ready to be served.
+ *
+ * @param eTag      strong entity tag (unquoted); the content hash, or the saved name of
+ *                  attachments stored before content addressing, which are never rewritten either
+ * @param path      the local file holding the content, or null for content in remote storage
+ * @param offset    where the content starts in {@code path}; non-zero for packed blobs
+ * @param length    length of the content in bytes
+ * @param reader    reads the content when it is not in a local file
+ */
+public record AttachmentFileDTO(String filename, String contentType, String eTag, Path path, long offset, long length,
+                                RangeReader reader) {}
@@ -0,0 +1,8 @@
+package gr.aueb.cf.eduapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record AttachmentUploadDTO(
+        @NotBlank(message = "Upload id is required")
+        String uploadId
+) {}
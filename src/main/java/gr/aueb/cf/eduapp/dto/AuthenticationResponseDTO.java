@@ -1,3 +1,3 @@
 package gr.aueb.cf.eduapp.dto;
 
-public record AuthenticationResponseDTO(String firstname, String lastname, String token) {}
+public record AuthenticationResponseDTO(String firstname, String lastname, String token, String refreshToken) {}
@@ -0,0 +1,9 @@
+package gr.aueb.cf.eduapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * true if the value is free, false if taken. Fields that were not asked for are omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AvailabilityReadOnlyDTO(Boolean username, Boolean vat, Boolean amka, Boolean identityNumber) {}
@@ -0,0 +1,3 @@
+package gr.aueb.cf.eduapp.dto;
+
+public record LogoutRequestDTO(String refreshToken) {}
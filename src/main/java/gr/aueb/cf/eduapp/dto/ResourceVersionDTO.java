@@ -0,0 +1,11 @@
+package gr.aueb.cf.eduapp.dto;
+
+import java.time.Instant;
+
+/**
+ * Validators of a representation, for conditional requests.
+ *
+ * @param eTag          quoted entity tag, weak ({@code W/"..."}) for collections
+ * @param lastModified  when the representation last changed, or null if unknown
+ */
+public record ResourceVersionDTO(String eTag, Instant lastModified) {}
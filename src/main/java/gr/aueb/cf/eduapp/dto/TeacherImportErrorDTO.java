@@ -0,0 +1,6 @@
+package gr.aueb.cf.eduapp.dto;
+
+/**
+ * @param row   1-based data row (the CSV header is not counted)
+ */
+public record TeacherImportErrorDTO(long row, String field, String message) {}
@@ -0,0 +1,10 @@
+package gr.aueb.cf.eduapp.dto;
+
+import java.util.List;
+
+/**
+ * @param errors            per-row errors, at most the configured limit
+ * @param errorsTruncated   true if more rows failed than {@code errors} lists
+ */
+public record TeacherImportResultDTO(long rows, long imported, long failed, long durationMillis,
+                                     List<TeacherImportErrorDTO> errors, boolean errorsTruncated) {}
@@ -0,0 +1,5 @@
+package gr.aueb.cf.eduapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public record TokenRefreshRequestDTO(@NotNull String refreshToken) {}
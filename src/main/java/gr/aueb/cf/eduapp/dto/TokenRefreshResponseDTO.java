@@ -0,0 +1,3 @@
+package gr.aueb.cf.eduapp.dto;
+
+public record TokenRefreshResponseDTO(String token, String refreshToken) {}
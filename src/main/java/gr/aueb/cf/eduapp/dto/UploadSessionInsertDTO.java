@@ -0,0 +1,21 @@
+package gr.aueb.cf.eduapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * @param chunkSize     optional, the server default if null; clamped to the configured bounds
+ */
+public record UploadSessionInsertDTO(
+        @NotBlank(message = "Filename is required")
+        String filename,
+
+        String contentType,
+
+        @NotNull(message = "Size is required")
+        @Positive(message = "Size must be positive")
+        Long size,
+
+        Integer chunkSize
+) {}
@@ -0,0 +1,10 @@
+package gr.aueb.cf.eduapp.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @param missingChunks     numbers of the chunks not received yet, ascending; empty when the upload can be completed
+ */
+public record UploadSessionReadOnlyDTO(String uploadId, String filename, long size, int chunkSize, int chunkCount,
+                                       List<Integer> missingChunks, LocalDateTime expiresAt) {}
@@ -28,6 +28,13 @@ public class Mapper {
 
 
     public Teacher mapToTeacherEntity(TeacherInsertDTO dto) {
+        return mapToTeacherEntity(dto, passwordEncoder.encode(dto.userInsertDTO().password()));
+    }
+
+    /**
+     * For callers that have already hashed the password, e.g. the bulk import.
+     */
+    public Teacher mapToTeacherEntity(TeacherInsertDTO dto, String encodedPassword) {
         Teacher teacher = new Teacher();
         teacher.setIsActive(dto.isActive());
 
@@ -36,7 +43,7 @@ public class Mapper {
         user.setFirstname(userDTO.firstname());
         user.setLastname(userDTO.lastname());
         user.setUsername(userDTO.username());
-        user.setPassword(passwordEncoder.encode(userDTO.password()));
+        user.setPassword(encodedPassword);
         user.setVat(userDTO.vat());
         user.setFatherName(userDTO.fatherName());
         user.setFatherLastname(userDTO.fatherLastname());
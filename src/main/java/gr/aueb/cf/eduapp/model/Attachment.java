@@ -15,11 +15,19 @@ import lombok.Setter;
 public class Attachment extends AbstractEntity{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "attachments_id")
+    @TableGenerator(name = "attachments_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "attachments", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private String filename;
     private String savedName;
     private String filePath;
     private String contentType;
     private String extension;
+
+    // SHA-256 of the content, see AttachmentBlob. Null for attachments stored before content addressing
+    @Column(length = 64)
+    private String contentHash;
+
+    private Long size;
 }
@@ -0,0 +1,58 @@
+package gr.aueb.cf.eduapp.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The stored content of one or more {@link Attachment}s, identified by its SHA-256.
+ * <p>
+ * {@code refCount} is the number of attachments pointing to the blob. It is only
+ * changed through the conditional updates of the repository, never through the entity.
+ * A blob with no references is kept for a grace period and then purged with its file.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "attachment_blobs")
+public class AttachmentBlob extends AbstractEntity implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    // Always persisted, never merged: a concurrent insert of the same hash fails instead of overwriting refCount
+    @Transient
+    private boolean isNew = true;
+
+    public AttachmentBlob(String contentHash, long size) {
+        this.contentHash = contentHash;
+        this.size = size;
+        this.refCount = 0;
+    }
+
+    @Override
+    public String getId() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
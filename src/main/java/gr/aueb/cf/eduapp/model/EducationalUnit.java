@@ -15,7 +15,9 @@ import java.util.Set;
 @Table(name = "educational_units")
 public class EducationalUnit {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "educational_units_id")
+    @TableGenerator(name = "educational_units_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "educational_units", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private String name;
 
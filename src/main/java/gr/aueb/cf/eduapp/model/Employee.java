@@ -15,7 +15,9 @@ import java.util.Set;
 @Table(name = "employees")
 public class Employee extends AbstractEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "employees_id")
+    @TableGenerator(name = "employees_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "employees", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private Boolean isActive;
 
@@ -0,0 +1,22 @@
+package gr.aueb.cf.eduapp.model;
+
+/**
+ * Ids of all entities come from one table of named counters ({@code id_sequences}),
+ * one row per entity table, through a table generator with the pooled-lo optimizer
+ * ({@code hibernate.id.optimizer.pooled.preferred} and {@code hibernate.id.generator.stored_last_used},
+ * both pinned in application.properties).
+ * <p>
+ * A row holds the last id handed out: whoever reads value {@code v} stores
+ * {@code v + ALLOCATION_SIZE} and owns {@code v + 1 .. v + ALLOCATION_SIZE}.
+ * So each node touches the table once per block, and unlike IDENTITY the ids are known
+ * before the INSERT, which lets Hibernate batch the inserts.
+ */
+public final class IdSequences {
+
+    public static final String TABLE = "id_sequences";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdSequences() {}
+}
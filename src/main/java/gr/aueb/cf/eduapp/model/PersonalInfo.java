@@ -1,5 +1,6 @@
 package gr.aueb.cf.eduapp.model;
 
+import gr.aueb.cf.eduapp.core.UniqueConstraintRegistry;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,16 +10,18 @@ import lombok.*;
 @Getter
 @Setter
 @Builder
-@Table(name = "personal_information")
+@Table(name = "personal_information", uniqueConstraints = {
+        @UniqueConstraint(name = UniqueConstraintRegistry.PERSONAL_INFO_AMKA, columnNames = "amka"),
+        @UniqueConstraint(name = UniqueConstraintRegistry.PERSONAL_INFO_IDENTITY_NUMBER, columnNames = "identity_number")
+})
 public class PersonalInfo extends AbstractEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "personal_information_id")
+    @TableGenerator(name = "personal_information_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "personal_information", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @Column(unique = true)
     private String amka;
-
-    @Column(unique = true)
     private String identityNumber;
     private String placeOfBirth;
     private String municipalityOfRegistration;
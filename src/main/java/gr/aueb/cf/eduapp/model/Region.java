@@ -16,7 +16,9 @@ import java.util.Collections;
 public class Region {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "regions_id")
+    @TableGenerator(name = "regions_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "regions", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private String name;
 
@@ -15,7 +15,9 @@ import java.util.UUID;
 @Table(name = "teachers")
 public class Teacher extends AbstractEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teachers_id")
+    @TableGenerator(name = "teachers_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "teachers", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(unique = true)
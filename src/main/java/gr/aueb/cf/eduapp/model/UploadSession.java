@@ -0,0 +1,107 @@
+package gr.aueb.cf.eduapp.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A resumable, chunked upload in progress. The content is {@code size} bytes split into
+ * chunks of {@code chunkSize} (the last one shorter), numbered from 0. Each chunk is written
+ * at its offset into the partial file of the session, in any order and any number of times;
+ * {@code receivedChunks} are the ones written completely.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "upload_sessions")
+public class UploadSession extends AbstractEntity implements Persistable<String> {
+
+    @Id
+    @Column(length = 36)
+    private String uuid;
+
+    // Username of the creator, the only one who may add chunks or complete the upload
+    @Column(nullable = false)
+    private String owner;
+
+    private String filename;
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer chunkSize;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    // A set: adding a chunk inserts one row, concurrent chunks of the same upload do not conflict.
+    // At most a few hundred small rows, always needed with the session
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "upload_session_chunks", joinColumns = @JoinColumn(name = "upload_session_uuid"))
+    @Column(name = "chunk_number", nullable = false)
+    private Set<Integer> receivedChunks = new HashSet<>();
+
+    // Chunk writes in progress, and the start of the latest: updated with bulk queries only,
+    // concurrent writers of the same upload would overwrite each other's count
+    @Column(nullable = false, updatable = false)
+    private Integer activeWrites = 0;
+
+    @Column(updatable = false)
+    private LocalDateTime lastWriteStartedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    public UploadSession(String owner, String filename, String contentType, long size, int chunkSize,
+                         LocalDateTime expiresAt) {
+        this.uuid = UUID.randomUUID().toString();
+        this.owner = owner;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.expiresAt = expiresAt;
+    }
+
+    public int getChunkCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    public long chunkOffset(int chunk) {
+        return (long) chunk * chunkSize;
+    }
+
+    public long chunkLength(int chunk) {
+        return Math.min(chunkSize, size - chunkOffset(chunk));
+    }
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(LocalDateTime.now());
+    }
+
+    @Override
+    public String getId() {
+        return uuid;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -1,5 +1,6 @@
 package gr.aueb.cf.eduapp.model;
 
+import gr.aueb.cf.eduapp.core.UniqueConstraintRegistry;
 import gr.aueb.cf.eduapp.core.enums.Role;
 import gr.aueb.cf.eduapp.core.enums.GenderType;
 import jakarta.persistence.*;
@@ -19,13 +20,17 @@ import java.util.List;
 @Getter
 @Setter
 @Builder
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = UniqueConstraintRegistry.USERS_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = UniqueConstraintRegistry.USERS_VAT, columnNames = "vat")
+})
 public class User extends AbstractEntity implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+    @TableGenerator(name = "users_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = "users", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @Column(unique = true)
     private String username;
     private String password;
 
@@ -35,7 +40,7 @@ public class User extends AbstractEntity implements UserDetails {
     @Column(nullable = false)
     private String lastname;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String vat;
 
     private String fatherName;
@@ -53,6 +58,13 @@ public class User extends AbstractEntity implements UserDetails {
     @ColumnDefault("true")
     private Boolean isActive;
 
+    // Bumped when role or isActive changes, invalidates previously issued tokens.
+    // Only by UserRepository.incrementSecurityVersion: a merged copy can not overwrite a bump
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Long securityVersion = 0L;
+
     @OneToOne(mappedBy = "user")
     private Employee employee;
 
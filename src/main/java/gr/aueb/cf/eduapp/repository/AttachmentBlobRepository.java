@@ -0,0 +1,39 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.model.AttachmentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, String> {
+
+    // Row lock until commit: a purge of the same blob waits, and then finds it referenced
+    @Modifying
+    @Query("UPDATE AttachmentBlob b SET b.refCount = b.refCount + 1, b.updatedAt = :now WHERE b.contentHash = :contentHash")
+    int incrementRefCount(String contentHash, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE AttachmentBlob b SET b.refCount = b.refCount - 1, b.updatedAt = :now " +
+            "WHERE b.contentHash = :contentHash AND b.refCount > 0")
+    int decrementRefCount(String contentHash, LocalDateTime now);
+
+    @Query("SELECT b.contentHash FROM AttachmentBlob b WHERE b.refCount = 0 AND b.updatedAt < :before")
+    List<String> findUnreferencedBefore(LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT b.contentHash FROM AttachmentBlob b WHERE b.contentHash IN :contentHashes")
+    List<String> findExistingHashes(Collection<String> contentHashes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM AttachmentBlob b WHERE b.contentHash = :contentHash AND b.refCount = 0")
+    Optional<AttachmentBlob> findUnreferencedForUpdate(String contentHash);
+}
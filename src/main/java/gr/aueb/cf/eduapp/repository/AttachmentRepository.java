@@ -1,10 +1,21 @@
 package gr.aueb.cf.eduapp.repository;
 
 import gr.aueb.cf.eduapp.model.Attachment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface AttachmentRepository extends JpaRepository<Attachment, Long>,
         JpaSpecificationExecutor<Attachment> {
 
+    // Keyset paging for full scans: each page is an index range on the primary key
+    List<Attachment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Saved names of attachments stored before content addressing, which own their file
+    @Query("SELECT a.savedName FROM Attachment a WHERE a.contentHash IS NULL AND a.savedName IN :savedNames")
+    List<String> findExistingLegacySavedNames(Collection<String> savedNames);
 }
@@ -0,0 +1,45 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.model.IdSequences;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reserves ids from {@code id_sequences} for plain JDBC inserts, following the same
+ * protocol as Hibernate's table generator with the pooled-lo optimizer (see {@link IdSequences}),
+ * so both can share a sequence.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdSequenceJDBCRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves {@code count} consecutive ids. Runs in its own short transaction, so the
+     * sequence row is not locked for the duration of the caller's transaction.
+     *
+     * @return the first reserved id
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public long allocate(String sequenceName, int count) {
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT " + IdSequences.VALUE_COLUMN + " FROM " + IdSequences.TABLE
+                        + " WHERE " + IdSequences.NAME_COLUMN + " = ? FOR UPDATE", Long.class, sequenceName);
+
+        if (current.isEmpty()) {        // no id handed out yet
+            jdbcTemplate.update("INSERT INTO " + IdSequences.TABLE + " (" + IdSequences.NAME_COLUMN + ", "
+                    + IdSequences.VALUE_COLUMN + ") VALUES (?, ?)", sequenceName, count);
+            return 1;
+        }
+
+        // The stored value is the last id handed out
+        long last = current.get(0) == null ? 0 : current.get(0);
+        jdbcTemplate.update("UPDATE " + IdSequences.TABLE + " SET " + IdSequences.VALUE_COLUMN + " = ? WHERE "
+                + IdSequences.NAME_COLUMN + " = ?", last + count, sequenceName);
+        return last + 1;
+    }
+}
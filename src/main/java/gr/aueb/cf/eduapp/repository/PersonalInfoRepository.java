@@ -4,7 +4,9 @@ import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface PersonalInfoRepository extends JpaRepository<PersonalInfo, Long>,
@@ -12,6 +14,15 @@ public interface PersonalInfoRepository extends JpaRepository<PersonalInfo, Long
 
     Optional<PersonalInfo> findByAmka(String amka);
     Optional<PersonalInfo> findByIdentityNumber(String identityNumber);
+
+    boolean existsByAmka(String amka);
+    boolean existsByIdentityNumber(String identityNumber);
+
+    @Query("SELECT p.amka FROM PersonalInfo p WHERE p.amka IS NOT NULL")
+    List<String> findAllAmkas();
+
+    @Query("SELECT p.identityNumber FROM PersonalInfo p WHERE p.identityNumber IS NOT NULL")
+    List<String> findAllIdentityNumbers();
 }
 
 
@@ -1,46 +1,63 @@
 package gr.aueb.cf.eduapp.repository;
 
+import gr.aueb.cf.eduapp.core.filters.TeacherFilterKey;
+import gr.aueb.cf.eduapp.dto.PersonalInfoReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserReadOnlyDTO;
 import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.Teacher;
 import gr.aueb.cf.eduapp.model.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Repository
 @RequiredArgsConstructor
 public class TeacherJDBCRepository {
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final IdSequenceJDBCRepository idSequenceJDBCRepository;
 
-    public List<Teacher> findAllTeachersWithDetails() {
-        String sql = """
-            SELECT 
-                t.id AS teacher_id, 
-                t.uuid AS teacher_uuid, 
+    private volatile String databaseProductName;
+
+    // Shared by findAllTeachersWithDetails and streamTeachersWithDetails
+    private static final String TEACHERS_WITH_DETAILS = """
+            SELECT
+                t.id AS teacher_id,
+                t.uuid AS teacher_uuid,
                 t.is_active AS teacher_is_active,
-                u.id AS user_id, 
-                u.firstname AS user_firstname, 
-                u.lastname AS user_lastname, 
+                u.id AS user_id,
+                u.firstname AS user_firstname,
+                u.lastname AS user_lastname,
                 u.vat AS user_vat,
-                p.id AS personal_info_id, 
-                p.amka AS personal_info_amka, 
+                p.id AS personal_info_id,
+                p.amka AS personal_info_amka,
                 p.identity_number AS personal_info_identity_number,
                 p.place_of_birth AS personal_info_place_of_birth
-            FROM 
+            FROM
                 teachers t
-            JOIN            
+            JOIN
                 users u ON t.user_id = u.id
-            LEFT JOIN 
+            LEFT JOIN
                 personal_information p ON t.personal_info_id = p.id
             """;
 
+    public List<Teacher> findAllTeachersWithDetails() {
+        String sql = TEACHERS_WITH_DETAILS;
+
         // Uses JOIN for users since user can NOT be nullable
         // Uses LEFT JOIN for personal_info since personal_info can be null
         // Java17+ uses text blocks """ for multiline text without + or \n
@@ -76,27 +93,78 @@ public class TeacherJDBCRepository {
         });
     }
 
+    /**
+     * Passes the teachers selected by {@code filter} to {@code consumer} one row at a time, in id order,
+     * from a forward-only, read-only cursor, so memory stays flat whatever the number of rows.
+     * The filters match as in {@code TeacherSpecification}. MySQL Connector/J streams a result set
+     * row by row only with a fetch size of {@link Integer#MIN_VALUE}; other drivers fetch
+     * {@code fetchSize} rows per round trip.
+     */
+    public void streamTeachersWithDetails(TeacherFilterKey filter, int fetchSize,
+                                          Consumer<TeacherReadOnlyDTO> consumer) {
+        StringBuilder sql = new StringBuilder(TEACHERS_WITH_DETAILS).append("WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (filter.uuid() != null) {
+            sql.append(" AND UPPER(t.uuid) LIKE ?");
+            params.add("%" + filter.uuid() + "%");
+        }
+        if (filter.userVat() != null) {
+            sql.append(" AND u.vat = ?");
+            params.add(filter.userVat());
+        }
+        if (filter.userAmka() != null) {
+            sql.append(" AND p.amka = ?");
+            params.add(filter.userAmka());
+        }
+        if (filter.active() != null) {
+            sql.append(" AND u.is_active = ?");
+            params.add(filter.active());
+        }
+        sql.append(" ORDER BY t.id");
+        int rowFetchSize = "MySQL".equals(databaseProductName()) ? Integer.MIN_VALUE : fetchSize;
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(rowFetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            // Personal info is nullable
+            PersonalInfoReadOnlyDTO personalInfo = rs.getObject("personal_info_id", Long.class) == null ? null
+                    : new PersonalInfoReadOnlyDTO(rs.getString("personal_info_amka"),
+                            rs.getString("personal_info_identity_number"));
+            consumer.accept(new TeacherReadOnlyDTO(rs.getLong("teacher_id"), rs.getString("teacher_uuid"),
+                    rs.getBoolean("teacher_is_active"),
+                    new UserReadOnlyDTO(rs.getString("user_firstname"), rs.getString("user_lastname"),
+                            rs.getString("user_vat")),
+                    personalInfo));
+        });
+    }
+
     public List<Teacher> findAllTeachersWithStatus(boolean isActive) {
         String sql = """
-            SELECT 
-                t.id AS teacher_id, 
-                t.uuid AS teacher_uuid, 
+            SELECT
+                t.id AS teacher_id,
+                t.uuid AS teacher_uuid,
                 t.is_active AS teacher_is_active,
-                u.id AS user_id, 
-                u.firstname AS user_firstname, 
-                u.lastname AS user_lastname, 
+                u.id AS user_id,
+                u.firstname AS user_firstname,
+                u.lastname AS user_lastname,
                 u.vat AS user_vat,
-                p.id AS personal_info_id, 
-                p.amka AS personal_info_amka, 
+                p.id AS personal_info_id,
+                p.amka AS personal_info_amka,
                 p.identity_number AS personal_info_identity_number,
                 p.place_of_birth AS personal_info_place_of_birth
-            FROM 
+            FROM
                 teachers t
-            JOIN            
+            JOIN
                 users u ON t.user_id = u.id
-            LEFT JOIN 
+            LEFT JOIN
                 personal_information p ON t.personal_info_id = p.id
-            WHERE 
+            WHERE
                 t.is_active = ?
             """;
 
@@ -141,7 +209,7 @@ public class TeacherJDBCRepository {
                                         String userLastName) {
         // Base query with 1=1 for easy WHERE clause concatenation
         StringBuilder sql = new StringBuilder("""
-        SELECT 
+        SELECT
             t.id AS teacher_id,
             t.uuid AS teacher_uuid,
             t.is_active AS teacher_is_active,
@@ -151,11 +219,11 @@ public class TeacherJDBCRepository {
             u.vat AS user_vat,
             p.id AS personal_info_id,
             p.place_of_birth AS personal_info_place_of_birth
-        FROM 
+        FROM
             teachers t
-        JOIN 
+        JOIN
             users u ON t.user_id = u.id
-        LEFT JOIN 
+        LEFT JOIN
             personal_information p ON t.personal_info_id = p.id
         WHERE 1=1
         """);
@@ -206,4 +274,141 @@ public class TeacherJDBCRepository {
                 }
         );
     }
+
+    /**
+     * Inserts the teachers with their users and personal info as three JDBC batches,
+     * one statement round trip per table instead of one per row. Ids are reserved
+     * from the id sequences for entities that have none yet. Must run inside a transaction.
+     */
+    public void insertBatch(List<Teacher> teachers) {
+        if (teachers.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        assignIds(teachers, "personal_information", Teacher::getPersonalInfo, PersonalInfo::getId, PersonalInfo::setId);
+        assignIds(teachers, "users", Teacher::getUser, User::getId, User::setId);
+        assignIds(teachers, "teachers", teacher -> teacher, Teacher::getId, Teacher::setId);
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO personal_information
+                    (id, amka, identity_number, place_of_birth, municipality_of_registration, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, teachers, teachers.size(), (ps, teacher) -> {
+            PersonalInfo personalInfo = teacher.getPersonalInfo();
+            ps.setLong(1, personalInfo.getId());
+            ps.setString(2, personalInfo.getAmka());
+            ps.setString(3, personalInfo.getIdentityNumber());
+            ps.setString(4, personalInfo.getPlaceOfBirth());
+            ps.setString(5, personalInfo.getMunicipalityOfRegistration());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO users
+                    (id, username, password, firstname, lastname, vat, father_name, father_lastname, mother_name,
+                     mother_lastname, date_of_birth, gender, role, is_active, security_version, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)
+                """, teachers, teachers.size(), (ps, teacher) -> {
+            User user = teacher.getUser();
+            ps.setLong(1, user.getId());
+            ps.setString(2, user.getUsername());
+            ps.setString(3, user.getPassword());
+            ps.setString(4, user.getFirstname());
+            ps.setString(5, user.getLastname());
+            ps.setString(6, user.getVat());
+            ps.setString(7, user.getFatherName());
+            ps.setString(8, user.getFatherLastname());
+            ps.setString(9, user.getMotherName());
+            ps.setString(10, user.getMotherLastname());
+            ps.setObject(11, user.getDateOfBirth());
+            ps.setString(12, user.getGender() == null ? null : user.getGender().name());
+            ps.setString(13, user.getRole() == null ? null : user.getRole().name());
+            ps.setObject(14, user.getIsActive());
+            ps.setTimestamp(15, now);
+            ps.setTimestamp(16, now);
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO teachers (id, uuid, is_active, user_id, personal_info_id, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, teachers, teachers.size(), (ps, teacher) -> {
+            if (teacher.getUuid() == null) teacher.setUuid(UUID.randomUUID().toString());
+            ps.setLong(1, teacher.getId());
+            ps.setString(2, teacher.getUuid());
+            ps.setObject(3, teacher.getIsActive());
+            ps.setLong(4, teacher.getUser().getId());
+            ps.setLong(5, teacher.getPersonalInfo().getId());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    /**
+     * Number of teachers as kept in the table statistics of the database, read from
+     * {@code information_schema} without scanning the table. Empty when the database
+     * keeps none that this knows how to read.
+     */
+    public OptionalLong estimateTeacherCount() {
+        String sql = switch (databaseProductName()) {
+            case "MySQL" -> """
+                    SELECT table_rows FROM information_schema.tables
+                    WHERE table_schema = DATABASE() AND table_name = 'teachers'
+                    """;
+            case "H2" -> """
+                    SELECT row_count_estimate FROM information_schema.tables
+                    WHERE table_schema = SCHEMA() AND LOWER(table_name) = 'teachers'
+                    """;
+            default -> null;
+        };
+        if (sql == null) return OptionalLong.empty();
+        List<Long> rows = jdbcTemplate.queryForList(sql, Long.class);
+        return rows.isEmpty() || rows.get(0) == null ? OptionalLong.empty() : OptionalLong.of(rows.get(0));
+    }
+
+    private String databaseProductName() {
+        String name = databaseProductName;
+        if (name == null) {
+            name = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            databaseProductName = name;
+        }
+        return name;
+    }
+
+    /**
+     * Which of the values already exist in a unique column, with one indexed IN query.
+     */
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        return findExisting("users", "username", usernames);
+    }
+
+    public Set<String> findExistingVats(Collection<String> vats) {
+        return findExisting("users", "vat", vats);
+    }
+
+    public Set<String> findExistingAmkas(Collection<String> amkas) {
+        return findExisting("personal_information", "amka", amkas);
+    }
+
+    public Set<String> findExistingIdentityNumbers(Collection<String> identityNumbers) {
+        return findExisting("personal_information", "identity_number", identityNumbers);
+    }
+
+    // table and column are constants of this class, never user input
+    private Set<String> findExisting(String table, String column, Collection<String> values) {
+        if (values.isEmpty()) return Set.of();
+        String sql = "SELECT " + column + " FROM " + table + " WHERE " + column + " IN (:values)";
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(sql, Map.of("values", values), String.class));
+    }
+
+    private <E> void assignIds(List<Teacher> teachers, String sequenceName, Function<Teacher, E> entity,
+                               Function<E, Long> getId, BiConsumer<E, Long> setId) {
+        List<E> withoutId = teachers.stream().map(entity).filter(e -> getId.apply(e) == null).toList();
+        if (withoutId.isEmpty()) return;
+
+        long id = idSequenceJDBCRepository.allocate(sequenceName, withoutId.size());
+        for (E e : withoutId) {
+            setId.accept(e, id++);
+        }
+    }
 }
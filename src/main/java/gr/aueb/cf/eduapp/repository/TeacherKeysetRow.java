@@ -0,0 +1,8 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+
+/**
+ * A row of a keyset page, with the value it was sorted by, which is not always part of the DTO.
+ */
+public record TeacherKeysetRow(TeacherReadOnlyDTO teacher, Object sortValue) {}
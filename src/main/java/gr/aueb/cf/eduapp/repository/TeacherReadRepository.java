@@ -0,0 +1,31 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.core.filters.TeacherCursor;
+import gr.aueb.cf.eduapp.core.filters.TeacherSortField;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.Teacher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Read path for teacher listings. A page is one joined select that projects straight
+ * into {@link TeacherReadOnlyDTO}, so no entities are loaded or managed. Totals are
+ * counted separately, with {@code count(Specification)}, over only the joins the filters need.
+ */
+public interface TeacherReadRepository {
+
+    List<TeacherReadOnlyDTO> findReadOnlyDTOs(Specification<Teacher> specification, Pageable pageable);
+
+    /**
+     * Keyset page: the first {@code limit} rows in ({@code sortField}, id) order that come
+     * after {@code after}, or from the start when it is {@code null}. The seek is a
+     * {@code WHERE} on the sort key, so the database starts at the cursor instead of
+     * reading and discarding every row before it. Nulls sort lowest, as in MySQL and H2.
+     */
+    List<TeacherKeysetRow> findReadOnlyDTOsAfter(Specification<Teacher> specification, TeacherSortField sortField,
+                                                Sort.Direction direction, @Nullable TeacherCursor after, int limit);
+}
@@ -0,0 +1,151 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.core.filters.TeacherCursor;
+import gr.aueb.cf.eduapp.core.filters.TeacherSortField;
+import gr.aueb.cf.eduapp.dto.PersonalInfoReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.PersonalInfo;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring Data picks this up as the implementation of {@link TeacherReadRepository}
+ * by its name, so it is not annotated itself.
+ */
+public class TeacherReadRepositoryImpl implements TeacherReadRepository {
+
+    // Position of the sort key, after the DTO columns, in a keyset row
+    private static final int KEY = 9;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TeacherReadOnlyDTO> findReadOnlyDTOs(Specification<Teacher> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Teacher> teacher = query.from(Teacher.class);
+        selectReadOnlyDTO(query, teacher);
+        Predicate where = specification.toPredicate(teacher, query, builder);
+        if (where != null) query.where(where);
+        if (pageable.getSort().isSorted()) query.orderBy(QueryUtils.toOrders(pageable.getSort(), teacher, builder));
+
+        var typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList().stream()
+                .map(TeacherReadRepositoryImpl::toReadOnlyDTO)
+                .toList();
+    }
+
+    @Override
+    public List<TeacherKeysetRow> findReadOnlyDTOsAfter(Specification<Teacher> specification, TeacherSortField sortField,
+                                                       Sort.Direction direction, TeacherCursor after, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Teacher> teacher = query.from(Teacher.class);
+        List<Selection<?>> selections = selectReadOnlyDTO(query, teacher);
+        Path<Long> id = teacher.get("id");
+        Path<Object> key = path(teacher, sortField);
+        selections.add(key);
+        query.multiselect(selections);
+
+        Predicate where = specification.toPredicate(teacher, query, builder);
+        if (after != null) {
+            Predicate seek = sortField == TeacherSortField.ID
+                    ? idAfter(builder, id, direction, after.id())
+                    : keyAfter(builder, key, id, direction, after);
+            where = where == null ? seek : builder.and(where, seek);
+        }
+        if (where != null) query.where(where);
+        if (sortField == TeacherSortField.ID) {
+            query.orderBy(direction.isAscending() ? builder.asc(id) : builder.desc(id));
+        } else {
+            query.orderBy(direction.isAscending()
+                    ? List.of(builder.asc(key), builder.asc(id))
+                    : List.of(builder.desc(key), builder.desc(id)));
+        }
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList().stream()
+                .map(row -> new TeacherKeysetRow(toReadOnlyDTO(row), row.get(KEY)))
+                .toList();
+    }
+
+    /**
+     * Joins users and, optionally, personal info and selects the columns of the DTO,
+     * in the order {@link #toReadOnlyDTO(Tuple)} reads them.
+     */
+    private static List<Selection<?>> selectReadOnlyDTO(CriteriaQuery<Tuple> query, Root<Teacher> teacher) {
+        // The specifications reuse these joins instead of adding their own
+        Join<Teacher, User> user = teacher.join("user");
+        Join<Teacher, PersonalInfo> personalInfo = teacher.join("personalInfo", JoinType.LEFT);
+        List<Selection<?>> selections = new ArrayList<>(List.of(
+                teacher.get("id"), teacher.get("uuid"), teacher.get("isActive"),
+                user.get("firstname"), user.get("lastname"), user.get("vat"),
+                personalInfo.get("id"), personalInfo.get("amka"), personalInfo.get("identityNumber")));
+        query.multiselect(selections);
+        return selections;
+    }
+
+    private static Path<Object> path(Root<Teacher> teacher, TeacherSortField sortField) {
+        String[] segments = sortField.getPath().split("\\.");
+        if (segments.length == 1) return teacher.get(segments[0]);
+        // Only the joins made by selectReadOnlyDTO are ever needed
+        return teacher.getJoins().stream()
+                .filter(join -> join.getAttribute().getName().equals(segments[0]))
+                .findFirst()
+                .orElseThrow()
+                .get(segments[1]);
+    }
+
+    private static Predicate idAfter(CriteriaBuilder builder, Path<Long> id, Sort.Direction direction, long afterId) {
+        return direction.isAscending() ? builder.greaterThan(id, afterId) : builder.lessThan(id, afterId);
+    }
+
+    /**
+     * Rows after (value, id) in (key, id) order, with nulls lowest: ascending, the nulls
+     * come first and a non-null cursor has passed them all; descending, they come last.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate keyAfter(CriteriaBuilder builder, Path<Object> key, Path<Long> id,
+                                      Sort.Direction direction, TeacherCursor after) {
+        Predicate idAfter = idAfter(builder, id, direction, after.id());
+        if (after.value() == null) {
+            Predicate tie = builder.and(builder.isNull(key), idAfter);
+            return direction.isAscending() ? builder.or(tie, builder.isNotNull(key)) : tie;
+        }
+        Expression<Comparable> comparable = (Expression) key;
+        Comparable value = (Comparable) after.value();
+        Predicate tie = builder.and(builder.equal(key, value), idAfter);
+        return direction.isAscending()
+                ? builder.or(builder.greaterThan(comparable, value), tie)
+                : builder.or(builder.lessThan(comparable, value), tie, builder.isNull(key));
+    }
+
+    private static TeacherReadOnlyDTO toReadOnlyDTO(Tuple row) {
+        UserReadOnlyDTO userReadOnlyDTO = new UserReadOnlyDTO(
+                row.get(3, String.class), row.get(4, String.class), row.get(5, String.class));
+
+        PersonalInfoReadOnlyDTO personalInfoReadOnlyDTO = row.get(6) == null ? null
+                : new PersonalInfoReadOnlyDTO(row.get(7, String.class), row.get(8, String.class));
+
+        return new TeacherReadOnlyDTO(row.get(0, Long.class), row.get(1, String.class),
+                row.get(2, Boolean.class), userReadOnlyDTO, personalInfoReadOnlyDTO);
+    }
+}
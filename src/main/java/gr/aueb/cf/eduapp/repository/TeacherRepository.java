@@ -3,6 +3,8 @@ package gr.aueb.cf.eduapp.repository;
 import gr.aueb.cf.eduapp.model.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,11 +12,30 @@ import java.util.Optional;
 
 @Repository
 public interface TeacherRepository extends JpaRepository<Teacher, Long>,
-        JpaSpecificationExecutor<Teacher> {
+        JpaSpecificationExecutor<Teacher>, TeacherReadRepository {
 
     Optional<Teacher> findByUserId(Long id);
 
     Optional<Teacher> findByUuid(String uuid);
 
     List<Teacher> findByUserLastname(String lastname);
+
+    /**
+     * Version probe for conditional requests: three timestamps, no entity is loaded.
+     */
+    @Query("""
+            select new gr.aueb.cf.eduapp.repository.TeacherVersion(t.updatedAt, u.updatedAt, p.updatedAt)
+            from Teacher t join t.user u left join t.personalInfo p
+            where t.uuid = :uuid""")
+    Optional<TeacherVersion> findVersionByUuid(@Param("uuid") String uuid);
+
+    /**
+     * Latest modification of any teacher, user or personal info, each an index seek on
+     * {@code updated_at}. Rows are never deleted, so every write moves it forward.
+     */
+    @Query("""
+            select new gr.aueb.cf.eduapp.repository.TeacherVersion(max(t.updatedAt),
+                (select max(u.updatedAt) from User u), (select max(p.updatedAt) from PersonalInfo p))
+            from Teacher t""")
+    TeacherVersion findLatestVersion();
 }
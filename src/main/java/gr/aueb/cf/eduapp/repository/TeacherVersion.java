@@ -0,0 +1,24 @@
+package gr.aueb.cf.eduapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Last modification times of the rows a teacher representation is read from. For the whole
+ * collection they are the latest of each table. Any of them may be null: a teacher without
+ * personal info, or an empty table.
+ */
+public record TeacherVersion(LocalDateTime teacherUpdatedAt, LocalDateTime userUpdatedAt,
+                             LocalDateTime personalInfoUpdatedAt) {
+
+    /**
+     * The latest of the three, or null when all are null.
+     */
+    public LocalDateTime lastModified() {
+        return Stream.of(teacherUpdatedAt, userUpdatedAt, personalInfoUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,39 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.model.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // Row lock until commit: of two concurrent completions of the same upload, the second finds no session
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.uuid = :uuid")
+    Optional<UploadSession> findByUuidForUpdate(String uuid);
+
+    // Waits for the row lock of a completion in progress, and then finds no session
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.activeWrites = s.activeWrites + 1, s.lastWriteStartedAt = :now WHERE s.uuid = :uuid")
+    int startWrite(String uuid, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.activeWrites = s.activeWrites - 1 WHERE s.uuid = :uuid AND s.activeWrites > 0")
+    int endWrite(String uuid);
+
+    @Query("SELECT s.uuid FROM UploadSession s WHERE s.uuid IN :uuids")
+    List<String> findExistingUuids(Collection<String> uuids);
+
+    @Query("SELECT s.uuid FROM UploadSession s WHERE s.expiresAt < :now")
+    List<String> findExpired(LocalDateTime now, Pageable pageable);
+}
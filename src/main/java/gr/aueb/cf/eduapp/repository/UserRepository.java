@@ -1,11 +1,15 @@
 package gr.aueb.cf.eduapp.repository;
 
+import gr.aueb.cf.eduapp.authentication.UserSecuritySnapshot;
 import gr.aueb.cf.eduapp.model.User;
 import org.springframework.data.convert.ReadingConverter;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +18,29 @@ public interface UserRepository extends JpaRepository<User, Long>,
 
     Optional<User> findByVat(String vat);
     Optional<User> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+    boolean existsByVat(String vat);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IS NOT NULL")
+    List<String> findAllUsernames();
+
+    @Query("SELECT u.vat FROM User u")
+    List<String> findAllVats();
+
+    @Query("""
+            SELECT new gr.aueb.cf.eduapp.authentication.UserSecuritySnapshot(
+                u.id, u.username, u.role, t.uuid, u.securityVersion, u.isActive)
+            FROM User u LEFT JOIN u.teacher t
+            WHERE u.id = :id
+            """)
+    Optional<UserSecuritySnapshot> findSecuritySnapshotById(Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(String username, String password);
+
+    @Modifying
+    @Query("UPDATE User u SET u.securityVersion = u.securityVersion + 1 WHERE u.id = :id")
+    int incrementSecurityVersion(Long id);
 }
@@ -0,0 +1,48 @@
+package gr.aueb.cf.eduapp.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt {@link PasswordEncoder} whose hashing runs on the {@link PasswordHashingExecutor}
+ * instead of the calling (Tomcat) thread.
+ * <p>
+ * {@link #upgradeEncoding(String)} reports any hash whose cost differs from the
+ * configured strength, so the authentication provider rehashes the password on
+ * the next successful login after the cost has been changed (up or down).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final int strength;
+
+    public BoundedPasswordEncoder(int strength, PasswordHashingExecutor hashingExecutor) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.hashingExecutor = hashingExecutor;
+        this.strength = strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hashingExecutor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hashingExecutor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) return false;
+
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
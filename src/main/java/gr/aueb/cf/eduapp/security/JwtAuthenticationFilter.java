@@ -1,6 +1,12 @@
 package gr.aueb.cf.eduapp.security;
 
+import gr.aueb.cf.eduapp.authentication.JwtClaims;
+import gr.aueb.cf.eduapp.authentication.JwtPrincipal;
 import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.authentication.TokenRevocationService;
+import gr.aueb.cf.eduapp.authentication.UserSecurityRegistry;
+import gr.aueb.cf.eduapp.authentication.UserSecuritySnapshot;
+import gr.aueb.cf.eduapp.core.enums.Role;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -9,14 +15,17 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -29,6 +38,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserSecurityRegistry userSecurityRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
+
+    // true: principal is built from the token claims, no user lookup per request
+    @Value("${app.security.claims-authentication:true}")
+    private boolean claimsAuthentication;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -37,7 +53,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -46,18 +61,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7).trim();
         try {
-            username = jwtService.extractSubject(jwt);
+            authenticate(jwt);
+        } catch (AuthenticationException e) {
+            // Thrown on, it would bypass the ExceptionTranslationFilter that runs after this filter
+            SecurityContextHolder.clearContext();
+            authenticationEntryPoint.commence(request, response, e);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+    private void authenticate(String jwt) {
+        try {
+            JwtClaims claims = jwtService.validateToken(jwt);     // parsed and verified once per request
+            String username = claims.subject();
+
+            if (tokenRevocationService.isRevoked(claims.tokenId())) {     // Bloom filter, DB only on a hit
+                throw new BadCredentialsException("Revoked token");
+            }
+
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                    && claimsAuthentication && claims.hasUserSnapshot()) {
+                JwtPrincipal principal = authenticateFromClaims(claims);
+
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal, null, principal.getAuthorities()
+                );
+                authToken.setDetails(claims);       // e.g. jti for logout
+
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            } else if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
-                if (!jwtService.isTokenValid(jwt, userDetails)) {
+                if (!jwtService.isTokenValid(claims, userDetails)) {
                     throw new BadCredentialsException("Invalid Token");
                 }
 
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                   userDetails, null, userDetails.getAuthorities()
                 );
+                authToken.setDetails(claims);
 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -67,10 +110,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (JwtException | IllegalArgumentException e) {
             // triggers το AuthenticationEntryPoint 401
             throw new BadCredentialsException("Invalid token");
+        } catch (AuthenticationException e) {
+            // e.g. revoked, or the user snapshot no longer matches: 401 as well
+            throw e;
         } catch (Exception e) {
-            // triggers το AccessDeniedException (403)
+            // anything else, e.g. the database unavailable, is not a failed authentication
             throw new AccessDeniedException("Token validation failed", e);
         }
-        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Builds the principal from the signed claims. The only check against the user's
+     * current state is the in-memory snapshot: a role or active-flag change bumps the
+     * user's security version, so tokens carrying an older version are rejected.
+     */
+    private JwtPrincipal authenticateFromClaims(JwtClaims claims) {
+        UserSecuritySnapshot snapshot = userSecurityRegistry.getSnapshot(claims.userId())
+                .orElseThrow(() -> new BadCredentialsException("Invalid token"));
+
+        if (!snapshot.isEnabled()
+                || snapshot.currentVersion() != claims.version()
+                || !snapshot.username().equals(claims.subject())) {
+            throw new BadCredentialsException("Invalid token");
+        }
+
+        return new JwtPrincipal(claims.userId(), claims.subject(), Role.valueOf(claims.role()), claims.teacherUuid());
     }
 }
@@ -0,0 +1,66 @@
+package gr.aueb.cf.eduapp.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link TokenBucket} per key (username, client IP, ...) with a hard limit on
+ * the number of keys. Buckets that have refilled completely carry no information
+ * (a missing bucket is the same as a full one), so they are what gets evicted.
+ */
+public class KeyedTokenBuckets {
+
+    private final int capacity;
+    private final double tokensPerSecond;
+    private final int maxEntries;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public KeyedTokenBuckets(int capacity, double tokensPerSecond, int maxEntries) {
+        this.capacity = capacity;
+        this.tokensPerSecond = tokensPerSecond;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Takes a token from the bucket of the key.
+     *
+     * @return 0 if a token was taken, otherwise the seconds until the next token
+     */
+    public long tryConsume(String key, long nowNanos) {
+        TokenBucket bucket = bucketFor(key, nowNanos);
+        if (bucket == null || bucket.tryConsume(nowNanos)) return 0;
+        return Math.max(1, bucket.secondsUntilNextToken(nowNanos));
+    }
+
+    /**
+     * Gives back a token taken with {@link #tryConsume}. A missing bucket was evicted because
+     * it was full, or the key was never tracked, so there is nothing to give back.
+     */
+    public void refund(String key, long nowNanos) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) bucket.refund(nowNanos);
+    }
+
+    public void evictFull(long nowNanos) {
+        buckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns null when the map is at its hard limit even after evicting full buckets.
+     * The key is then not tracked, so a spray of random keys can not grow memory without bound.
+     */
+    private TokenBucket bucketFor(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+
+        if (buckets.size() >= maxEntries) {
+            evictFull(now);
+            if (buckets.size() >= maxEntries) return null;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, tokensPerSecond, now));
+    }
+}
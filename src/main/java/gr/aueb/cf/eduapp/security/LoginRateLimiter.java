@@ -0,0 +1,71 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * In-memory rate limiter for login attempts. Every attempt takes one token from the
+ * bucket of its username and one from the bucket of its client IP. Attempts over
+ * either limit are rejected before any user lookup or password hashing happens.
+ * An attempt rejected for its username gives its IP token back, so hammering one locked
+ * username does not use up the budget of everyone behind the same IP.
+ * <p>
+ * Memory is bounded: buckets that have refilled completely are evicted periodically
+ * (a missing bucket is the same as a full one) and each map has a hard size limit.
+ * When a map is full, the key is not tracked in that dimension; the other one still applies.
+ */
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    private final KeyedTokenBuckets usernameBuckets;
+    private final KeyedTokenBuckets ipBuckets;
+
+    public LoginRateLimiter(@Value("${app.security.login-rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${app.security.login-rate-limit.username.per-minute:5}") int usernamePerMinute,
+                            @Value("${app.security.login-rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${app.security.login-rate-limit.ip.per-minute:20}") int ipPerMinute,
+                            @Value("${app.security.login-rate-limit.max-entries:100000}") int maxEntries) {
+        this.usernameBuckets = new KeyedTokenBuckets(usernameCapacity, usernamePerMinute / 60d, maxEntries);
+        this.ipBuckets = new KeyedTokenBuckets(ipCapacity, ipPerMinute / 60d, maxEntries);
+    }
+
+    /**
+     * Takes a token for the username and one for the client IP, or neither.
+     *
+     * @throws AppTooManyRequestsException if either bucket is empty
+     */
+    public void checkAllowed(String username, String clientIp) throws AppTooManyRequestsException {
+        long now = System.nanoTime();
+
+        if (clientIp != null) {
+            long retryAfter = ipBuckets.tryConsume(clientIp, now);
+            if (retryAfter > 0) {
+                log.warn("Login attempts from ip={} throttled", clientIp);
+                throw new AppTooManyRequestsException("Login", "Too many login attempts, try again later", retryAfter);
+            }
+        }
+
+        if (username != null && !username.isBlank()) {
+            String key = username.trim().toLowerCase(Locale.ROOT);
+            long retryAfter = usernameBuckets.tryConsume(key, now);
+            if (retryAfter > 0) {
+                if (clientIp != null) ipBuckets.refund(clientIp, now);
+                log.warn("Login attempts for username={} throttled", key);
+                throw new AppTooManyRequestsException("Login", "Too many login attempts, try again later", retryAfter);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        usernameBuckets.evictFull(now);
+        ipBuckets.evictFull(now);
+    }
+}
@@ -0,0 +1,120 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, size-bounded executor for password hashing (BCrypt).
+ * Hashing is CPU bound, so at most {@code threads} hashes run at the same time
+ * and at most {@code queue-capacity} wait. Anything beyond that is rejected
+ * immediately with {@link AppServiceUnavailableException} (503) instead of
+ * piling up on Tomcat request threads and starving every other endpoint.
+ * <p>
+ * A hash that times out while still queued is cancelled and never runs. One that is
+ * already running is interrupted, but BCrypt does not check for interrupts: it runs to
+ * completion and keeps its thread until then. Timeouts are therefore counted apart from
+ * rejections ({@code auth.password.hashing.timeouts}), they free no capacity.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+    private final Counter timeoutCounter;
+
+    public PasswordHashingExecutor(@Value("${app.security.hashing.threads:0}") int threads,
+                                   @Value("${app.security.hashing.queue-capacity:32}") int queueCapacity,
+                                   @Value("${app.security.hashing.timeout-ms:5000}") long timeoutMillis,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("auth.password.hashing")
+                .description("Time spent hashing or verifying a password")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.hashing.rejected")
+                .description("Hashing requests rejected because the executor was saturated")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("auth.password.hashing.timeouts")
+                .description("Hashing requests abandoned by their caller after the timeout, possibly still running")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hashing requests waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public int getThreads() {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * Runs the hashing task on the executor and waits for its result.
+     *
+     * @throws AppServiceUnavailableException if the executor is saturated or the task times out
+     */
+    public <T> T execute(Supplier<T> task) {
+        Future<T> future = submit(task);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);        // dequeued if not started yet
+            timeoutCounter.increment();
+            throw new AppServiceUnavailableException("PasswordHashing", "Password hashing timed out", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppServiceUnavailableException("PasswordHashing", "Password hashing interrupted", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Submits the hashing task without waiting, e.g. to hash many passwords in parallel.
+     *
+     * @throws AppServiceUnavailableException if the executor is saturated
+     */
+    public <T> Future<T> submit(Supplier<T> task) {
+        try {
+            // A FutureTask: cancelling it removes it from the queue or interrupts its thread
+            return executor.submit(() -> hashTimer.record(task));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Password hashing rejected, queue depth={}", executor.getQueue().size());
+            throw new AppServiceUnavailableException("PasswordHashing", "Too many concurrent authentication requests", 1);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
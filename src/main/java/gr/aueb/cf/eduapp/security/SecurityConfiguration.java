@@ -1,6 +1,8 @@
 package gr.aueb.cf.eduapp.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,8 +13,8 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
@@ -37,13 +39,21 @@ public class SecurityConfiguration {
     private final JwtAuthenticationFilter jwtAuthFilter;
 
     @Bean   // Bean's parameters are injected automatically, no auto-wires or manual DI needed
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider,
+                                                   AuthenticationEntryPoint authenticationEntryPoint) throws Exception {
         http
             .cors(httpSecurityCorsConfigurer -> httpSecurityCorsConfigurer.configurationSource(corsConfigurationSource()))
             .csrf(AbstractHttpConfigurer::disable)  // only for SSR apps
             .authorizeHttpRequests(req -> req
+                // Completion of a streamed response (e.g. the teacher export), authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/teachers").permitAll()           // register
+                .requestMatchers(HttpMethod.GET, "/api/teachers/availability").permitAll()
                 .requestMatchers("/api/auth/authenticate").permitAll()
+                .requestMatchers("/api/auth/refresh").permitAll()
+                .requestMatchers("/api/auth/users/**").hasRole("SUPER_ADMIN")
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
                 .requestMatchers(
            "/swagger-ui.html",        // The old Swagger UI HTML (if used)
                     "/swagger-ui/**",          // All Swagger UI resources (JS, CSS, etc.)
@@ -53,6 +63,9 @@ public class SecurityConfiguration {
                     "/configuration/**"        // Swagger configuration endpoints
             )
             .permitAll()
+            .requestMatchers(HttpMethod.POST, "/api/teachers/import").hasRole("SUPER_ADMIN")
+            .requestMatchers(HttpMethod.GET, "/api/teachers/export").hasRole("SUPER_ADMIN")
+            .requestMatchers(HttpMethod.GET, "/api/teachers/*/attachments/**").hasRole("SUPER_ADMIN")
             .requestMatchers("/api/teachers/**").hasAnyRole("SUPER_ADMIN", "TEACHER")
             .requestMatchers("/api/employess/**").hasRole("EMPLOYEE")
             .requestMatchers("/**").authenticated()
@@ -61,7 +74,7 @@ public class SecurityConfiguration {
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
                 .exceptionHandling((exceptions) -> exceptions
-                        .authenticationEntryPoint(myCustomAuthenticationEntryPoint())
+                        .authenticationEntryPoint(authenticationEntryPoint)
                         .accessDeniedHandler(myCustomAccessDeniedHandler()));
 
         return http.build();
@@ -81,9 +94,11 @@ public class SecurityConfiguration {
 
     @Bean
     public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                         UserDetailsPasswordService userDetailsPasswordService,
                                                          PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);     // rehash on login when the cost changes
         return authProvider;
     }
 
@@ -92,9 +107,11 @@ public class SecurityConfiguration {
         return config.getAuthenticationManager();
     }
 
+    // BCrypt runs on a bounded executor, never directly on request threads
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt-strength:12}") int strength,
+                                           PasswordHashingExecutor passwordHashingExecutor) {
+        return new BoundedPasswordEncoder(strength, passwordHashingExecutor);
     }
 
     // AccessDeniedHandler (Handles 403 Forbidden)
@@ -110,8 +127,9 @@ public class SecurityConfiguration {
     // Triggered when an unauthenticated user tries to access a secured resource.
     // Default behavior: Redirects to login page (for web apps) or returns HTTP 401 (for APIs).
     // Want to return to a structured JSON response for APIs:
+    // Static: also used by the JwtAuthenticationFilter, which this configuration depends on
     @Bean
-    public AuthenticationEntryPoint myCustomAuthenticationEntryPoint() {
+    public static AuthenticationEntryPoint myCustomAuthenticationEntryPoint() {
         return new CustomAuthenticationEntryPoint();
     }
 }
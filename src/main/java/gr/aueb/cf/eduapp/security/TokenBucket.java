@@ -0,0 +1,71 @@
+package gr.aueb.cf.eduapp.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The state (tokens, last refill time) is an immutable
+ * snapshot swapped with compare-and-set, so concurrent attempts never block.
+ */
+class TokenBucket {
+
+    private record State(double tokens, long refilledAtNanos) {}
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(int capacity, double tokensPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    boolean tryConsume(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = refill(current, nowNanos);
+            if (tokens < 1d) return false;
+
+            if (state.compareAndSet(current, new State(tokens - 1d, Math.max(nowNanos, current.refilledAtNanos())))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryConsume}, never above the capacity.
+     */
+    void refund(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = Math.min(capacity, refill(current, nowNanos) + 1d);
+            if (state.compareAndSet(current, new State(tokens, Math.max(nowNanos, current.refilledAtNanos())))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Seconds until the next token is available.
+     */
+    long secondsUntilNextToken(long nowNanos) {
+        double missing = 1d - refill(state.get(), nowNanos);
+        if (missing <= 0) return 0;
+        return (long) Math.ceil(missing / tokensPerNano / 1_000_000_000d);
+    }
+
+    /**
+     * A full bucket behaves exactly like a missing one, so it can be evicted.
+     */
+    boolean isFull(long nowNanos) {
+        return refill(state.get(), nowNanos) >= capacity;
+    }
+
+    private double refill(State current, long nowNanos) {
+        long elapsed = Math.max(0L, nowNanos - current.refilledAtNanos());
+        return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+    }
+}
@@ -0,0 +1,85 @@
+package gr.aueb.cf.eduapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Where attachment files live under the uploads root.
+ * <p>
+ * Files are fanned out over {@code levels} directory levels named after the leading
+ * characters of the file name, {@code width} characters per level: with the defaults,
+ * {@code blobs/9f/86/9f86d0...}. Content hashes and the UUIDs of older saved names are
+ * evenly distributed, so every directory stays small (65536 leaves for 2 x 2 hex chars).
+ * {@code levels = 0} is the flat layout.
+ */
+@Component
+public class AttachmentLayout {
+
+    private final Path root;
+    private final Path blobDirectory;
+    private final int levels;
+    private final int width;
+
+    public AttachmentLayout(@Value("${app.attachments.root:uploads}") String root,
+                            @Value("${app.attachments.layout.levels:2}") int levels,
+                            @Value("${app.attachments.layout.width:2}") int width) {
+        if (levels < 0 || width < 1) {
+            throw new IllegalArgumentException("Invalid attachment layout: levels=" + levels + ", width=" + width);
+        }
+        this.root = Paths.get(root);
+        this.blobDirectory = this.root.resolve("blobs");
+        this.levels = levels;
+        this.width = width;
+    }
+
+    /**
+     * The file a resumable upload is written into, on the same file system as the blobs,
+     * so a completed upload is moved into place rather than copied.
+     */
+    public Path partialUploadPath(String uploadId) {
+        return partialDirectory().resolve(uploadId + ".part");
+    }
+
+    public Path partialDirectory() {
+        return root.resolve("partial");
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public Path blobDirectory() {
+        return blobDirectory;
+    }
+
+    public Path blobPath(String contentHash) {
+        return shard(blobDirectory, contentHash);
+    }
+
+    /**
+     * Blob location before the fan-out layout.
+     */
+    public Path flatBlobPath(String contentHash) {
+        return blobDirectory.resolve(contentHash);
+    }
+
+    /**
+     * Location of a file stored before content addressing, by its saved name.
+     */
+    public Path legacyPath(String savedName) {
+        return shard(root, savedName);
+    }
+
+    private Path shard(Path directory, String name) {
+        String key = name.replace("-", "").toLowerCase(Locale.ROOT);
+        Path path = directory;
+        for (int level = 0; level < levels && (level + 1) * width <= key.length(); level++) {
+            path = path.resolve(key.substring(level * width, (level + 1) * width));
+        }
+        return path.resolve(name);
+    }
+}
@@ -0,0 +1,235 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.repository.AttachmentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves attachment files into the current {@link AttachmentLayout} while the application runs.
+ * <p>
+ * Attachments are scanned in id order, a page at a time. The files of a page are moved
+ * in parallel, paced to {@code max-files-per-second}, and then the new paths of the
+ * page are written in one transaction (a JDBC batch). A file is moved before its path
+ * is updated, so in between readers find it through {@link AttachmentStorageService#resolve},
+ * which falls back to the layout location. A failed or interrupted run is simply run again:
+ * files already in place are skipped.
+ */
+@Component
+@Slf4j
+public class AttachmentLayoutMigrator {
+
+    public record MigrationResult(long scanned, long moved, long updated, long failed) {}
+
+    private record Move(Long attachmentId, Path source, Path target) {}
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentLayout layout;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int threads;
+    private final long nanosPerFile;
+
+    private final AtomicLong nextMoveAt = new AtomicLong();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "attachment-layout-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AttachmentLayoutMigrator(AttachmentRepository attachmentRepository, AttachmentLayout layout,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.attachments.migration.enabled:true}") boolean enabled,
+                                    @Value("${app.attachments.migration.batch-size:500}") int batchSize,
+                                    @Value("${app.attachments.migration.threads:4}") int threads,
+                                    @Value("${app.attachments.migration.max-files-per-second:200}") int maxFilesPerSecond) {
+        this.attachmentRepository = attachmentRepository;
+        this.layout = layout;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.threads = Math.max(1, threads);
+        this.nanosPerFile = maxFilesPerSecond > 0 ? 1_000_000_000L / maxFilesPerSecond : 0L;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInBackground() {
+        if (!enabled) return;
+
+        runner.submit(() -> {
+            try {
+                migrate();
+            } catch (Exception e) {
+                log.error("Attachment layout migration failed, it resumes on the next start", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    public MigrationResult migrate() throws InterruptedException {
+        long start = System.nanoTime();
+        long scanned = 0, moved = 0, updated = 0, failed = 0;
+
+        ExecutorService movers = Executors.newFixedThreadPool(threads, moverThreadFactory());
+        try {
+            Long lastId = 0L;
+            List<Attachment> page;
+            do {
+                page = attachmentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize));
+                if (page.isEmpty()) break;
+                lastId = page.get(page.size() - 1).getId();
+                scanned += page.size();
+
+                List<Future<Integer>> results = new ArrayList<>();
+                List<Move> moves = new ArrayList<>();
+                for (Attachment attachment : page) {
+                    Move move = toMove(attachment);
+                    if (move == null) continue;
+                    moves.add(move);
+                    results.add(movers.submit(() -> moveFile(move)));
+                }
+
+                Map<Long, String> newPaths = new HashMap<>();
+                for (int i = 0; i < moves.size(); i++) {
+                    int outcome = outcome(results.get(i));
+                    if (outcome < 0) {
+                        failed++;
+                        continue;
+                    }
+                    moved += outcome;
+                    newPaths.put(moves.get(i).attachmentId(), moves.get(i).target().toString());
+                }
+                updated += updatePaths(newPaths);
+            } while (page.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } finally {
+            movers.shutdownNow();
+            movers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        MigrationResult result = new MigrationResult(scanned, moved, updated, failed);
+        if (updated > 0 || failed > 0) {
+            log.info("Attachment layout migration finished in {} ms: {}", (System.nanoTime() - start) / 1_000_000, result);
+        }
+        return result;
+    }
+
+    private Move toMove(Attachment attachment) {
+        // No path, or an object in remote storage (s3://...): nothing on local disk to move
+        if (attachment.getFilePath() == null || attachment.getFilePath().contains("://")) return null;
+
+        Path target;
+        if (attachment.getContentHash() != null) {
+            target = layout.blobPath(attachment.getContentHash());
+        } else if (attachment.getSavedName() != null) {
+            target = layout.legacyPath(attachment.getSavedName());
+        } else {
+            return null;
+        }
+
+        Path source = Paths.get(attachment.getFilePath());
+        return source.equals(target) ? null : new Move(attachment.getId(), source, target);
+    }
+
+    /**
+     * @return 1 if moved, 0 if already in place (a blob shared with an attachment migrated
+     *         before), -1 if the file is missing, then the path is left unchanged
+     */
+    private int moveFile(Move move) throws IOException, InterruptedException {
+        if (Files.exists(move.target())) {
+            // Same content (blob) or same saved name: the source is a leftover copy
+            Files.deleteIfExists(move.source());
+            return 0;
+        }
+
+        throttle();
+        Files.createDirectories(move.target().getParent());
+        try {
+            Files.move(move.source(), move.target(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(move.source(), move.target());
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(move.source());
+            return 0;
+        } catch (NoSuchFileException e) {
+            if (Files.exists(move.target())) return 0;          // moved concurrently (upload of the same blob)
+            log.warn("Attachment {} missing, path of attachment with id={} left unchanged", move.source(), move.attachmentId());
+            return -1;
+        }
+        return 1;
+    }
+
+    private int outcome(Future<Integer> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            log.warn("Attachment could not be moved", e.getCause());
+            return -1;
+        }
+    }
+
+    private int updatePaths(Map<Long, String> newPaths) {
+        if (newPaths.isEmpty()) return 0;
+
+        Integer updated = transactionTemplate.execute(status -> {
+            List<Attachment> attachments = attachmentRepository.findAllById(newPaths.keySet());
+            attachments.forEach(attachment -> attachment.setFilePath(newPaths.get(attachment.getId())));
+            return attachments.size();
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    /**
+     * Paces moves to the configured rate over all mover threads: each move reserves the
+     * next free slot and waits for it.
+     */
+    private void throttle() throws InterruptedException {
+        if (nanosPerFile == 0) return;
+
+        long now = System.nanoTime();
+        long slot = nextMoveAt.getAndUpdate(next -> Math.max(next, now) + nanosPerFile);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    private static ThreadFactory moverThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "attachment-layout-mover-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,343 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.AttachmentBlob;
+import gr.aueb.cf.eduapp.repository.AttachmentBlobRepository;
+import gr.aueb.cf.eduapp.repository.AttachmentRepository;
+import gr.aueb.cf.eduapp.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles the attachments directory with the database, so files nothing refers to do
+ * not pile up on long-running nodes: blobs left without a row, temporary files of writes
+ * that crashed, files of deleted attachments stored before content addressing, and
+ * partial files of uploads that no longer exist.
+ * <p>
+ * The directory is swept in units (one top-level fan-out directory each), several units
+ * in parallel, with file system access paced to {@code max-files-per-second} over all
+ * threads. The names of a batch of files are checked with one query. Only files older
+ * than {@code min-age} are touched, so nothing being written is. After each unit the
+ * sweep records a checkpoint, and an interrupted sweep resumes after it.
+ * <p>
+ * A blob without a row is not deleted here. It gets an unreferenced row, and the purge
+ * of {@link AttachmentStorageService} deletes it under the row lock after the grace
+ * period, unless it is referenced again meanwhile. The other files belong to no one
+ * and are deleted.
+ */
+@Component
+@Slf4j
+public class AttachmentOrphanSweeper {
+
+    public record SweepResult(long units, long scanned, long adopted, long deleted, long failed) {}
+
+    private enum Kind { BLOBS, LEGACY, PARTIAL }
+
+    /**
+     * @param key   the checkpoint key; units are swept in key order
+     */
+    private record Unit(String key, Kind kind, Path directory, boolean recursive) {}
+
+    private static final String CHECKPOINT_FILE = ".sweep-checkpoint";
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern TEMP_FILE = Pattern.compile("upload-.*\\.tmp");
+
+    private final AttachmentLayout layout;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int threads;
+    private final long nanosPerFile;
+    private final long minAgeMillis;
+
+    private final AtomicLong nextFileAt = new AtomicLong();
+
+    public AttachmentOrphanSweeper(AttachmentLayout layout, AttachmentBlobRepository attachmentBlobRepository,
+                                   AttachmentRepository attachmentRepository,
+                                   UploadSessionRepository uploadSessionRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.attachments.sweeper.enabled:true}") boolean enabled,
+                                   @Value("${app.attachments.sweeper.batch-size:500}") int batchSize,
+                                   @Value("${app.attachments.sweeper.threads:2}") int threads,
+                                   @Value("${app.attachments.sweeper.max-files-per-second:500}") int maxFilesPerSecond,
+                                   @Value("${app.attachments.sweeper.min-age-ms:86400000}") long minAgeMillis) {
+        this.layout = layout;
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.attachmentRepository = attachmentRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.threads = Math.max(1, threads);
+        this.nanosPerFile = maxFilesPerSecond > 0 ? 1_000_000_000L / maxFilesPerSecond : 0L;
+        this.minAgeMillis = minAgeMillis;
+    }
+
+    @Scheduled(initialDelayString = "${app.attachments.sweeper.interval-ms:21600000}",
+            fixedDelayString = "${app.attachments.sweeper.interval-ms:21600000}")
+    public void sweepScheduled() {
+        if (!enabled) return;
+
+        try {
+            sweep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Attachment sweep failed, it resumes from its checkpoint on the next run", e);
+        }
+    }
+
+    public SweepResult sweep() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String checkpoint = readCheckpoint();
+        List<Unit> units = units().stream()
+                .filter(unit -> checkpoint == null || unit.key().compareTo(checkpoint) > 0)
+                .toList();
+
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong adopted = new AtomicLong();
+        AtomicLong deleted = new AtomicLong();
+        long failed = 0;
+        boolean complete = true;
+
+        ExecutorService sweepers = Executors.newFixedThreadPool(threads, sweeperThreadFactory());
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Unit unit : units) {
+                results.add(sweepers.submit(() -> {
+                    sweepUnit(unit, scanned, adopted, deleted);
+                    return null;
+                }));
+            }
+
+            // The checkpoint only moves past units swept completely, in key order
+            for (int i = 0; i < units.size(); i++) {
+                try {
+                    results.get(i).get();
+                    if (complete) writeCheckpoint(units.get(i).key());
+                } catch (ExecutionException e) {
+                    log.warn("Attachment sweep of {} failed", units.get(i).directory(), e.getCause());
+                    failed++;
+                    complete = false;
+                }
+            }
+        } finally {
+            sweepers.shutdownNow();
+            sweepers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        // A full pass is done: the next sweep starts over
+        if (complete) Files.deleteIfExists(checkpointFile());
+
+        SweepResult result = new SweepResult(units.size(), scanned.get(), adopted.get(), deleted.get(), failed);
+        if (adopted.get() > 0 || deleted.get() > 0 || failed > 0) {
+            log.info("Attachment sweep finished in {} ms: {}", (System.nanoTime() - start) / 1_000_000, result);
+        }
+        return result;
+    }
+
+    /**
+     * Every top-level directory of the blobs and of older attachments is a unit, and so are
+     * the files directly in them (stored before the fan-out layout) and the partial uploads.
+     */
+    private List<Unit> units() throws IOException {
+        Path root = layout.root();
+        Path blobs = layout.blobDirectory();
+        Path partial = layout.partialDirectory();
+        Path segments = root.resolve(PackedBlobStore.DIRECTORY);
+
+        List<Unit> units = new ArrayList<>();
+        units.add(new Unit("blobs", Kind.BLOBS, blobs, false));
+        for (Path directory : subdirectories(blobs)) {
+            units.add(new Unit("blobs/" + directory.getFileName(), Kind.BLOBS, directory, true));
+        }
+        units.add(new Unit("legacy", Kind.LEGACY, root, false));
+        for (Path directory : subdirectories(root)) {
+            if (directory.equals(blobs) || directory.equals(partial) || directory.equals(segments)) continue;
+            units.add(new Unit("legacy/" + directory.getFileName(), Kind.LEGACY, directory, true));
+        }
+        units.add(new Unit("partial", Kind.PARTIAL, partial, false));
+
+        units.sort((a, b) -> a.key().compareTo(b.key()));
+        return units;
+    }
+
+    private void sweepUnit(Unit unit, AtomicLong scanned, AtomicLong adopted, AtomicLong deleted)
+            throws IOException, InterruptedException {
+        if (!Files.isDirectory(unit.directory())) return;
+
+        Instant oldEnough = Instant.now().minusMillis(minAgeMillis);
+        List<Path> batch = new ArrayList<>();
+        try (Stream<Path> entries = unit.recursive() ? Files.walk(unit.directory()) : Files.list(unit.directory())) {
+            for (Path file : (Iterable<Path>) entries::iterator) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                if (file.getFileName().toString().startsWith(".")) continue;
+
+                throttle();
+                if (!Files.isRegularFile(file) || !isOlderThan(file, oldEnough)) continue;
+                scanned.incrementAndGet();
+                batch.add(file);
+                if (batch.size() == batchSize) {
+                    sweepBatch(unit.kind(), batch, adopted, deleted);
+                    batch.clear();
+                }
+            }
+        }
+        sweepBatch(unit.kind(), batch, adopted, deleted);
+    }
+
+    private void sweepBatch(Kind kind, List<Path> files, AtomicLong adopted, AtomicLong deleted) throws IOException {
+        if (files.isEmpty()) return;
+
+        switch (kind) {
+            case BLOBS -> {
+                List<Path> blobs = new ArrayList<>();
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (CONTENT_HASH.matcher(name).matches()) blobs.add(file);
+                    else if (TEMP_FILE.matcher(name).matches() && delete(file)) deleted.incrementAndGet();
+                }
+                for (Path file : unknown(blobs, Function.identity(), attachmentBlobRepository::findExistingHashes)) {
+                    if (adopt(file)) adopted.incrementAndGet();
+                }
+            }
+            case LEGACY -> {
+                for (Path file : unknown(files, Function.identity(), attachmentRepository::findExistingLegacySavedNames)) {
+                    if (delete(file)) deleted.incrementAndGet();
+                }
+            }
+            case PARTIAL -> {
+                for (Path file : unknown(files, name -> name.replace(".part", ""), uploadSessionRepository::findExistingUuids)) {
+                    if (delete(file)) deleted.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * The files whose key (derived from the file name) the query does not find.
+     */
+    private static List<Path> unknown(List<Path> files, Function<String, String> key,
+                                      Function<Collection<String>, List<String>> existing) {
+        if (files.isEmpty()) return List.of();
+
+        List<String> keys = files.stream().map(file -> key.apply(file.getFileName().toString())).toList();
+        Set<String> known = new HashSet<>(existing.apply(keys));
+        List<Path> unknown = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (!known.contains(keys.get(i))) unknown.add(files.get(i));
+        }
+        return unknown;
+    }
+
+    private boolean adopt(Path file) {
+        try {
+            String contentHash = file.getFileName().toString();
+            long size = Files.size(file);
+            transactionTemplate.executeWithoutResult(status ->
+                    attachmentBlobRepository.saveAndFlush(new AttachmentBlob(contentHash, size)));
+            log.info("Orphaned attachment blob {} adopted, it is purged when unreferenced", contentHash);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;           // stored again meanwhile
+        } catch (IOException e) {
+            return false;           // deleted meanwhile
+        }
+    }
+
+    private boolean delete(Path file) {
+        try {
+            boolean deleted = Files.deleteIfExists(file);
+            if (deleted) log.info("Orphaned attachment file {} deleted", file);
+            return deleted;
+        } catch (IOException e) {
+            log.warn("Orphaned attachment file {} could not be deleted", file, e);
+            return false;
+        }
+    }
+
+    private static boolean isOlderThan(Path file, Instant instant) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(instant);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static List<Path> subdirectories(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(Files::isDirectory).toList();
+        }
+    }
+
+    private Path checkpointFile() {
+        return layout.root().resolve(CHECKPOINT_FILE);
+    }
+
+    private String readCheckpoint() throws IOException {
+        Path file = checkpointFile();
+        return Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8).trim() : null;
+    }
+
+    private void writeCheckpoint(String key) throws IOException {
+        Path file = checkpointFile();
+        Path temp = file.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.createDirectories(file.getParent());
+        Files.writeString(temp, key, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Paces file system access to the configured rate over all sweeper threads, see
+     * {@link AttachmentLayoutMigrator}.
+     */
+    private void throttle() throws InterruptedException {
+        if (nanosPerFile == 0) return;
+
+        long now = System.nanoTime();
+        long slot = nextFileAt.getAndUpdate(next -> Math.max(next, now) + nanosPerFile);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    private static ThreadFactory sweeperThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "attachment-sweeper-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
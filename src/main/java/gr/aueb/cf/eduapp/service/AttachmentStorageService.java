@@ -0,0 +1,294 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.model.AttachmentBlob;
+import gr.aueb.cf.eduapp.repository.AttachmentBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-addressed attachment storage. Every distinct content is stored once in the
+ * configured {@link BlobStorage}, keyed by its SHA-256, and counted by the
+ * {@link AttachmentBlob} row of its hash.
+ * <p>
+ * The upload is hashed first, reading the multipart part without writing anything.
+ * Content already stored only gets its reference count incremented, so a duplicate
+ * costs no storage space and no write I/O. New content is written while its SHA-256
+ * is computed again, and only kept if it matches.
+ * <p>
+ * The reference count is changed in the caller's transaction, so a rollback undoes it,
+ * and a blob the rolled-back transaction referenced is purged right after the rollback
+ * if nothing else references it. Released blobs are purged after a grace period. The
+ * purge locks the row and finds it still unreferenced before the blob is deleted, while
+ * a store holds the same row lock from its increment until commit, so a blob is never
+ * deleted under a new reference.
+ */
+@Service
+@Slf4j
+public class AttachmentStorageService implements IAttachmentStorageService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PURGE_BATCH_SIZE = 500;
+
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final TransactionTemplate newTransaction;
+    private final LocalBlobStorage localStorage;
+    private final BlobStorage storage;
+    private final long unreferencedGraceMillis;
+
+    public AttachmentStorageService(AttachmentBlobRepository attachmentBlobRepository,
+                                    PlatformTransactionManager transactionManager, LocalBlobStorage localStorage,
+                                    ObjectProvider<S3BlobStorage> s3Storage,
+                                    @Value("${app.attachments.unreferenced-grace-ms:3600000}") long unreferencedGraceMillis) {
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.localStorage = localStorage;
+        BlobStorage remote = s3Storage.getIfAvailable();
+        this.storage = remote != null ? remote : localStorage;
+        this.unreferencedGraceMillis = unreferencedGraceMillis;
+    }
+
+    @Override
+    public Attachment store(MultipartFile file) throws IOException {
+        return store(file::getInputStream, file.getSize(), file.getOriginalFilename(), file.getContentType(),
+                contentHash -> {
+                    try (InputStream in = file.getInputStream()) {
+                        storage.write(contentHash, in, file.getSize());
+                    }
+                });
+    }
+
+    @Override
+    public Attachment store(Path file, String filename, String contentType) throws IOException {
+        long size = Files.size(file);
+        return store(() -> Files.newInputStream(file), size, filename, contentType, contentHash -> {
+            try (InputStream in = Files.newInputStream(file)) {
+                storage.write(contentHash, in, size);
+            }
+        });
+    }
+
+    private Attachment store(ContentSource content, long size, String filename, String contentType,
+                             BlobWriter writer) throws IOException {
+        String contentHash;
+        try (InputStream in = content.open()) {
+            contentHash = sha256(in);
+        }
+
+        // Unknown hash: the row is created in its own transaction, so a concurrent insert of
+        // the same content can not fail the caller. Checked with a plain read before the
+        // increment, since a 0-row update would gap-lock the key against that very insert
+        if (!attachmentBlobRepository.existsById(contentHash)) {
+            createBlobRow(contentHash, size);
+        }
+        if (attachmentBlobRepository.incrementRefCount(contentHash, LocalDateTime.now()) == 0) {
+            // Purged between the check and the increment: created again, once
+            createBlobRow(contentHash, size);
+            if (attachmentBlobRepository.incrementRefCount(contentHash, LocalDateTime.now()) == 0) {
+                throw new IOException("Attachment blob " + contentHash + " was purged while being stored");
+            }
+        }
+        purgeAfterRollback(contentHash);
+
+        // Referenced and row-locked: the blob can be checked, and written if missing, safely
+        if (!storage.contains(contentHash)) {
+            writer.write(contentHash);
+        }
+
+        Attachment attachment = new Attachment();
+        attachment.setFilename(filename);
+        attachment.setSavedName(contentHash);
+        attachment.setFilePath(storage.pathOf(contentHash));
+        attachment.setContentType(contentType);
+        attachment.setExtension(getFileExtension(filename));
+        attachment.setContentHash(contentHash);
+        attachment.setSize(size);
+        return attachment;
+    }
+
+    @Override
+    public void release(Attachment attachment) {
+        if (attachment == null) return;
+
+        if (attachment.getContentHash() != null) {
+            attachmentBlobRepository.decrementRefCount(attachment.getContentHash(), LocalDateTime.now());
+            return;
+        }
+
+        // Stored before content addressing: the file belongs to this attachment only
+        if (attachment.getFilePath() != null) {
+            deleteAfterCommit(Paths.get(attachment.getFilePath()));
+        }
+    }
+
+    /**
+     * Looks in the configured storage, then on local disk, where blobs stored before
+     * switching to a remote storage are.
+     */
+    @Override
+    public Optional<BlobLocation> resolve(Attachment attachment) {
+        if (attachment.getContentHash() == null) {
+            return localStorage.locateLegacy(attachment.getFilePath(), attachment.getSavedName());
+        }
+
+        try {
+            Optional<BlobLocation> location = storage.locate(attachment.getContentHash());
+            if (location.isPresent() || storage == localStorage) return location;
+            return localStorage.locate(attachment.getContentHash());
+        } catch (IOException e) {
+            log.error("Attachment blob {} could not be located", attachment.getContentHash(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Deletes blobs that have had no references for longer than the grace period.
+     *
+     * @return the number of blobs deleted
+     */
+    @Scheduled(initialDelayString = "${app.attachments.purge-interval-ms:3600000}",
+            fixedDelayString = "${app.attachments.purge-interval-ms:3600000}")
+    public int purgeUnreferenced() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(unreferencedGraceMillis * 1_000_000L);
+        List<String> candidates = attachmentBlobRepository.findUnreferencedBefore(before, PageRequest.of(0, PURGE_BATCH_SIZE));
+
+        int purged = 0;
+        for (String contentHash : candidates) {
+            if (purgeIfUnreferenced(contentHash)) purged++;
+        }
+
+        if (purged > 0) log.info("{} unreferenced attachment blobs purged", purged);
+        return purged;
+    }
+
+    private boolean purgeIfUnreferenced(String contentHash) {
+        Boolean deleted = newTransaction.execute(status ->
+                attachmentBlobRepository.findUnreferencedForUpdate(contentHash)
+                        .map(blob -> {
+                            try {
+                                storage.delete(contentHash);
+                                if (storage != localStorage) localStorage.delete(contentHash);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            attachmentBlobRepository.delete(blob);
+                            return true;
+                        })
+                        .orElse(false));
+        return Boolean.TRUE.equals(deleted);
+    }
+
+    /**
+     * The blob is written before the caller commits. If the caller rolls back instead, the
+     * blob is purged at once, unless other attachments reference it.
+     */
+    private void purgeAfterRollback(String contentHash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) return;
+                try {
+                    if (purgeIfUnreferenced(contentHash)) {
+                        log.info("Attachment blob {} of a rolled back transaction purged", contentHash);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Attachment blob {} of a rolled back transaction not purged, left to the scheduled purge",
+                            contentHash, e);
+                }
+            }
+        });
+    }
+
+    private void createBlobRow(String contentHash, long size) {
+        try {
+            newTransaction.executeWithoutResult(status ->
+                    attachmentBlobRepository.saveAndFlush(new AttachmentBlob(contentHash, size)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Blob {} created concurrently", contentHash);
+        }
+    }
+
+    private void deleteAfterCommit(Path path) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteQuietly(path);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteQuietly(path);
+            }
+        });
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Attachment {} could not be deleted", path, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BlobWriter {
+        void write(String contentHash) throws IOException;
+    }
+
+    private static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String getFileExtension(String filename) {
+        if (filename != null && filename.contains(".")) {
+            return filename.substring(filename.lastIndexOf("."));
+        }
+        return "";
+    }
+}
@@ -0,0 +1,169 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.bloom.BloomFilter;
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
+import gr.aueb.cf.eduapp.dto.AvailabilityReadOnlyDTO;
+import gr.aueb.cf.eduapp.repository.PersonalInfoRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import gr.aueb.cf.eduapp.security.KeyedTokenBuckets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Availability of username, vat, AMKA and identity number during registration.
+ * <p>
+ * Each field has a Bloom filter of the values in use, built at startup. A filter miss
+ * means the value is definitely free and is answered from memory; only a possible hit
+ * runs the indexed existence query. Most keystrokes of a registration form are misses.
+ * <p>
+ * Values registered on this node are added after commit. Values registered on other
+ * nodes are picked up by the periodic rebuild, which also drops values no longer in use.
+ * The answer is advisory: the unique constraints still decide on insert.
+ */
+@Service
+@Slf4j
+public class AvailabilityService implements IAvailabilityService {
+
+    private enum Field { USERNAME, VAT, AMKA, IDENTITY_NUMBER }
+
+    private record Taken(Field field, String value) {}
+
+    private final UserRepository userRepository;
+    private final PersonalInfoRepository personalInfoRepository;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final KeyedTokenBuckets ipBuckets;
+
+    private volatile Map<Field, BloomFilter> filters;
+
+    // Values taken while a rebuild runs, re-added to the new filters after the swap
+    private volatile Queue<Taken> takenDuringRebuild;
+
+    public AvailabilityService(UserRepository userRepository, PersonalInfoRepository personalInfoRepository,
+                               @Value("${app.availability.expected-entries:100000}") long expectedEntries,
+                               @Value("${app.availability.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${app.availability.rate-limit.capacity:60}") int ipCapacity,
+                               @Value("${app.availability.rate-limit.per-minute:60}") int ipPerMinute,
+                               @Value("${app.availability.rate-limit.max-entries:100000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.personalInfoRepository = personalInfoRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.ipBuckets = new KeyedTokenBuckets(ipCapacity, ipPerMinute / 60d, maxEntries);
+        this.filters = emptyFilters(expectedEntries);
+    }
+
+    @Override
+    public AvailabilityReadOnlyDTO checkAvailability(String username, String vat, String amka, String identityNumber,
+                                                     String clientIp) throws AppTooManyRequestsException {
+        // Every answer tells whether an AMKA or vat is registered, so the endpoint is throttled
+        if (clientIp != null) {
+            long retryAfter = ipBuckets.tryConsume(clientIp, System.nanoTime());
+            if (retryAfter > 0) {
+                log.warn("Availability checks from ip={} throttled", clientIp);
+                throw new AppTooManyRequestsException("Availability", "Too many availability checks, try again later", retryAfter);
+            }
+        }
+
+        return new AvailabilityReadOnlyDTO(
+                isAvailable(Field.USERNAME, username, userRepository::existsByUsername),
+                isAvailable(Field.VAT, vat, userRepository::existsByVat),
+                isAvailable(Field.AMKA, amka, personalInfoRepository::existsByAmka),
+                isAvailable(Field.IDENTITY_NUMBER, identityNumber, personalInfoRepository::existsByIdentityNumber));
+    }
+
+    @Override
+    public void registerTakenAfterCommit(String username, String vat, String amka, String identityNumber) {
+        Runnable register = () -> {
+            markTaken(Field.USERNAME, username);
+            markTaken(Field.VAT, vat);
+            markTaken(Field.AMKA, amka);
+            markTaken(Field.IDENTITY_NUMBER, identityNumber);
+        };
+
+        // Adding before commit could race with a rebuild reading the table and lose the value
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            register.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                register.run();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.availability.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.availability.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        takenDuringRebuild = new ConcurrentLinkedQueue<>();
+        try {
+            Map<Field, BloomFilter> rebuilt = new EnumMap<>(Field.class);
+            rebuilt.put(Field.USERNAME, filterOf(userRepository::findAllUsernames));
+            rebuilt.put(Field.VAT, filterOf(userRepository::findAllVats));
+            rebuilt.put(Field.AMKA, filterOf(personalInfoRepository::findAllAmkas));
+            rebuilt.put(Field.IDENTITY_NUMBER, filterOf(personalInfoRepository::findAllIdentityNumbers));
+            filters = rebuilt;
+
+            takenDuringRebuild.forEach(taken -> rebuilt.get(taken.field()).put(taken.value()));
+        } finally {
+            takenDuringRebuild = null;
+        }
+        log.info("Availability filters rebuilt");
+    }
+
+    private Boolean isAvailable(Field field, String value, Predicate<String> existsQuery) {
+        if (value == null || value.isBlank()) return null;
+        if (!filters.get(field).mightContain(normalize(value))) return true;
+        return !existsQuery.test(value.trim());
+    }
+
+    private void markTaken(Field field, String value) {
+        if (value == null || value.isBlank()) return;
+
+        String normalized = normalize(value);
+        Queue<Taken> pending = takenDuringRebuild;
+        if (pending != null) pending.add(new Taken(field, normalized));
+        filters.get(field).put(normalized);
+    }
+
+    private BloomFilter filterOf(Supplier<List<String>> values) {
+        List<String> inUse = values.get();
+        BloomFilter filter = new BloomFilter(Math.max(expectedEntries, inUse.size() * 2L), falsePositiveRate);
+        inUse.forEach(value -> filter.put(normalize(value)));
+        return filter;
+    }
+
+    private Map<Field, BloomFilter> emptyFilters(long expectedEntries) {
+        Map<Field, BloomFilter> empty = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            empty.put(field, new BloomFilter(expectedEntries, falsePositiveRate));
+        }
+        return empty;
+    }
+
+    /**
+     * Lower case, since MySQL compares with a case-insensitive collation.
+     * A filter hit on a different case is settled by the existence query.
+     */
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
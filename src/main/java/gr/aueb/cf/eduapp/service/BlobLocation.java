@@ -0,0 +1,21 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.RangeReader;
+
+import java.nio.file.Path;
+
+/**
+ * The bytes of a stored blob. Local blobs are {@code length} bytes of {@code file} from
+ * {@code offset}: a whole file, or a region of a packed segment. Remote blobs have no
+ * file and are read through {@code reader}.
+ */
+public record BlobLocation(Path file, long offset, long length, RangeReader reader) {
+
+    public static BlobLocation local(Path file, long offset, long length) {
+        return new BlobLocation(file, offset, length, null);
+    }
+
+    public static BlobLocation remote(long length, RangeReader reader) {
+        return new BlobLocation(null, 0, length, reader);
+    }
+}
@@ -0,0 +1,36 @@
+package gr.aueb.cf.eduapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Where the content of attachment blobs is kept, keyed by SHA-256 (hex).
+ * Implementations: {@link LocalBlobStorage} (files or packed segments on local disk)
+ * and {@link S3BlobStorage} (an S3-compatible object store), selected with
+ * {@code app.attachments.backend}.
+ * <p>
+ * Reference counting and purging are not the concern of a storage: see {@link AttachmentStorageService}.
+ */
+public interface BlobStorage {
+
+    boolean contains(String contentHash) throws IOException;
+
+    /**
+     * Stores the content. Fails, storing nothing, if it does not hash to {@code contentHash}
+     * or is not {@code size} bytes long.
+     */
+    void write(String contentHash, InputStream content, long size) throws IOException;
+
+    /**
+     * @return false if the blob was not stored here
+     */
+    boolean delete(String contentHash) throws IOException;
+
+    Optional<BlobLocation> locate(String contentHash) throws IOException;
+
+    /**
+     * What is recorded as {@code Attachment.filePath} for a blob stored here.
+     */
+    String pathOf(String contentHash);
+}
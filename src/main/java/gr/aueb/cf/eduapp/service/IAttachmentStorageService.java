@@ -0,0 +1,33 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface IAttachmentStorageService {
+
+    /**
+     * Stores the content of the file and references it from a new (not yet persisted)
+     * attachment. Must run inside the transaction that persists the attachment.
+     */
+    Attachment store(MultipartFile file) throws IOException;
+
+    /**
+     * Like {@link #store(MultipartFile)}, for content already in a local file. The file is
+     * copied and left in place: it is still needed if the transaction rolls back.
+     */
+    Attachment store(Path file, String filename, String contentType) throws IOException;
+
+    /**
+     * Drops the reference of the attachment to its content, in the current transaction.
+     */
+    void release(Attachment attachment);
+
+    /**
+     * Where the content of a stored attachment can be read, empty if it is missing.
+     */
+    Optional<BlobLocation> resolve(Attachment attachment);
+}
@@ -0,0 +1,18 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
+import gr.aueb.cf.eduapp.dto.AvailabilityReadOnlyDTO;
+
+public interface IAvailabilityService {
+
+    /**
+     * Checks the given values (null ones are skipped). Throttled per client IP.
+     */
+    AvailabilityReadOnlyDTO checkAvailability(String username, String vat, String amka, String identityNumber,
+                                              String clientIp) throws AppTooManyRequestsException;
+
+    /**
+     * Marks the values as taken once the current transaction commits.
+     */
+    void registerTakenAfterCommit(String username, String vat, String amka, String identityNumber);
+}
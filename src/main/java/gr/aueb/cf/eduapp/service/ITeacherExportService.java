@@ -0,0 +1,18 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.ExportFormat;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ITeacherExportService {
+
+    /**
+     * Writes every teacher selected by the filters (as in search; paging and sorting are ignored)
+     * to {@code output}, in id order, as CSV with a header row or as NDJSON, one teacher per line.
+     *
+     * @return the number of teachers written
+     */
+    long exportTeachers(TeacherFilters filters, ExportFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,18 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.ImportFormat;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.dto.TeacherImportResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ITeacherImportService {
+
+    /**
+     * Imports teachers from a CSV (with header) or NDJSON stream. Rows are committed
+     * batch by batch; invalid or duplicate rows are skipped and reported.
+     */
+    TeacherImportResultDTO importTeachers(InputStream input, ImportFormat format)
+            throws IOException, AppObjectInvalidArgumentException;
+}
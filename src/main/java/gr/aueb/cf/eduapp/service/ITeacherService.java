@@ -2,9 +2,14 @@ package gr.aueb.cf.eduapp.service;
 
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.KeysetPaginated;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.AttachmentFileDTO;
+import gr.aueb.cf.eduapp.dto.ResourceVersionDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
@@ -13,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,11 +32,58 @@ public interface ITeacherService {
 
     TeacherReadOnlyDTO getOneTeacher(String uuid) throws AppObjectNotFoundException;
 
-    Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size);
+    /**
+     * Like {@link #getOneTeacher(String)}, but never older than {@code notOlderThan}, the
+     * last modification time of a version already read with {@link #getTeacherVersion(String)}.
+     */
+    TeacherReadOnlyDTO getOneTeacher(String uuid, Instant notOlderThan) throws AppObjectNotFoundException;
+
+    /**
+     * Validators of {@link #getOneTeacher(String)}, read from the modification times alone,
+     * so conditional requests are answered without loading the teacher.
+     */
+    ResourceVersionDTO getTeacherVersion(String uuid) throws AppObjectNotFoundException;
+
+    AttachmentFileDTO getAmkaFile(String uuid) throws AppObjectNotFoundException;
+
+    /**
+     * Completes a chunked upload (see {@link IUploadService}) as the AMKA file of the teacher,
+     * replacing the previous one.
+     */
+    TeacherReadOnlyDTO attachAmkaUpload(String uuid, String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException;
+
+    /**
+     * @param count how the total is computed, see {@link CountMode}
+     */
+    Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size, CountMode count);
 //    Page<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size);
 
     Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters);
 
+    /**
+     * Weak validators of a page of {@link #getPaginatedTeachers(int, int, CountMode)}: they change
+     * with any teacher write, not only with writes to the teachers of the page.
+     */
+    ResourceVersionDTO getPaginatedTeachersVersion(int page, int size, CountMode count);
+
+    /**
+     * Weak validators of a page of {@link #getTeachersFilteredPaginated(TeacherFilters)}, as
+     * {@link #getPaginatedTeachersVersion(int, int, CountMode)}.
+     */
+    ResourceVersionDTO getTeachersFilteredVersion(TeacherFilters teacherFilters);
+
+    /**
+     * Keyset (cursor) pagination: each page continues from the {@code cursor} of the filters,
+     * with cost independent of how deep it is. No total is counted unless the filters ask for one.
+     *
+     * @throws AppObjectInvalidArgumentException if the sort field is not supported, or the cursor
+     *                                           is malformed or was issued for another sort
+     */
+    KeysetPaginated<TeacherReadOnlyDTO> getTeachersKeysetPaginated(TeacherFilters teacherFilters)
+            throws AppObjectInvalidArgumentException;
+
 //    List<Teacher> findAllTeachersWithDetails();
 //    List<Teacher> findAllTeachersWithStatus(boolean isActive);
 //    List<Teacher> filterTeachers(Boolean isActive, String placeOfBirth, String userLastName);
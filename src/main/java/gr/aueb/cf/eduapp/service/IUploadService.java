@@ -0,0 +1,42 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.dto.UploadSessionInsertDTO;
+import gr.aueb.cf.eduapp.dto.UploadSessionReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.Attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Resumable chunked uploads: create an upload, put its chunks (in any order, again after a
+ * failure), then complete it into an attachment. Only the creator of an upload may use it.
+ */
+public interface IUploadService {
+
+    UploadSessionReadOnlyDTO createUpload(UploadSessionInsertDTO uploadSessionInsertDTO, String owner)
+            throws AppObjectInvalidArgumentException, IOException;
+
+    UploadSessionReadOnlyDTO getUpload(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException;
+
+    /**
+     * Writes the chunk into place. The content must be exactly the length of the chunk.
+     * Putting a chunk again overwrites it.
+     */
+    UploadSessionReadOnlyDTO writeChunk(String uploadId, int chunk, InputStream content, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException;
+
+    void cancelUpload(String uploadId, String owner) throws AppObjectNotFoundException, AppObjectNotAuthorizedException;
+
+    /**
+     * Stores the content of a fully received upload as a new (not yet persisted) attachment
+     * and ends the upload. Must run inside the transaction that persists the attachment.
+     */
+    Attachment completeUpload(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException;
+}
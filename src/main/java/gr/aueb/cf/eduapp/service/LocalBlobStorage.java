@@ -0,0 +1,135 @@
+package gr.aueb.cf.eduapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Blobs on local disk: one file each in the {@link AttachmentLayout}, or, for small blobs
+ * when the packed backend is selected, appended to a {@link PackedBlobStore} segment.
+ * <p>
+ * A file is streamed to a temporary file next to its target while its SHA-256 is
+ * computed, and moved into place atomically once the hash matches.
+ */
+@Component
+@Slf4j
+public class LocalBlobStorage implements BlobStorage {
+
+    private final AttachmentLayout layout;
+    private final PackedBlobStore packedBlobStore;
+
+    public LocalBlobStorage(AttachmentLayout layout, PackedBlobStore packedBlobStore) {
+        this.layout = layout;
+        this.packedBlobStore = packedBlobStore;
+    }
+
+    /**
+     * A blob not yet moved by the layout migration is moved now, so it is not written again.
+     */
+    @Override
+    public boolean contains(String contentHash) throws IOException {
+        Path blobPath = layout.blobPath(contentHash);
+        return packedBlobStore.contains(contentHash) || Files.exists(blobPath) || moveFlatBlob(contentHash, blobPath);
+    }
+
+    @Override
+    public void write(String contentHash, InputStream content, long size) throws IOException {
+        if (packedBlobStore.accepts(size)) {
+            packedBlobStore.append(contentHash, content, size);
+            return;
+        }
+
+        Path blobPath = layout.blobPath(contentHash);
+        Files.createDirectories(blobPath.getParent());
+        // Same directory as the target: the final move is a rename
+        Path tempFile = Files.createTempFile(blobPath.getParent(), "upload-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long copied;
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                copied = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (copied != size || !contentHash.equals(HexFormat.of().formatHex(digest.digest()))) {
+                throw new IOException("Content of blob " + contentHash + " does not match its hash or size");
+            }
+            Files.move(tempFile, blobPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Attachment blob {} stored, {} bytes", contentHash, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public boolean delete(String contentHash) throws IOException {
+        boolean deleted = Files.deleteIfExists(layout.blobPath(contentHash));
+        deleted |= Files.deleteIfExists(layout.flatBlobPath(contentHash));
+        deleted |= packedBlobStore.delete(contentHash);
+        return deleted;
+    }
+
+    /**
+     * The packed region, the layout location, or the flat location of a blob the layout
+     * migration has not moved yet.
+     */
+    @Override
+    public Optional<BlobLocation> locate(String contentHash) throws IOException {
+        Optional<BlobLocation> packed = packedBlobStore.locate(contentHash);
+        if (packed.isPresent()) return packed;
+
+        Optional<BlobLocation> file = locateFile(layout.blobPath(contentHash));
+        return file.isPresent() ? file : locateFile(layout.flatBlobPath(contentHash));
+    }
+
+    @Override
+    public String pathOf(String contentHash) {
+        return layout.blobPath(contentHash).toString();
+    }
+
+    /**
+     * A file stored before content addressing, at its recorded path or in the layout.
+     */
+    public Optional<BlobLocation> locateLegacy(String filePath, String savedName) {
+        Optional<BlobLocation> recorded = filePath == null ? Optional.empty() : locateFile(Path.of(filePath));
+        return recorded.isPresent() || savedName == null ? recorded : locateFile(layout.legacyPath(savedName));
+    }
+
+    private static Optional<BlobLocation> locateFile(Path path) {
+        try {
+            return Optional.of(BlobLocation.local(path, 0, Files.size(path)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private boolean moveFlatBlob(String contentHash, Path blobPath) throws IOException {
+        Path flatPath = layout.flatBlobPath(contentHash);
+        if (flatPath.equals(blobPath) || !Files.exists(flatPath)) return false;
+
+        Files.createDirectories(blobPath.getParent());
+        try {
+            Files.move(flatPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return Files.exists(blobPath);          // moved by the migration meanwhile
+        }
+        return true;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
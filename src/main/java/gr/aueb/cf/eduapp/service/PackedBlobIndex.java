@@ -0,0 +1,278 @@
+package gr.aueb.cf.eduapp.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Memory-mapped open-addressing hash table from content hash to the location of the blob
+ * in a segment, see {@link PackedBlobStore}.
+ * <p>
+ * Layout: a 64 byte header (magic, capacity, live and deleted counts, clean-shutdown flag)
+ * followed by {@code capacity} slots of 64 bytes: state, segment, offset, length, SHA-256.
+ * Lookups probe linearly from the first 8 bytes of the hash. The table doubles when
+ * live plus deleted slots pass 70% of the capacity.
+ * <p>
+ * The file is a cache of the segments: it is trusted only after a clean shutdown and
+ * rebuilt from the segments otherwise.
+ */
+class PackedBlobIndex implements AutoCloseable {
+
+    record Entry(byte[] hash, int segment, long offset, long length) {}
+
+    private static final int MAGIC = 0x45444958;        // "EDIX"
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 24;        // a mapping is at most 2 GB
+
+    private static final int CAPACITY_AT = 4;
+    private static final int LIVE_AT = 8;
+    private static final int DELETED_AT = 12;
+    private static final int CLEAN_AT = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private static final int SEGMENT_AT = 4;
+    private static final int OFFSET_AT = 8;
+    private static final int LENGTH_AT = 16;
+    private static final int HASH_AT = 24;
+
+    private final Path file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int live;
+    private int deleted;
+
+    private PackedBlobIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Maps the existing index if it was closed cleanly, otherwise returns null.
+     */
+    static PackedBlobIndex openIfClean(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE) return null;
+
+        PackedBlobIndex index = new PackedBlobIndex(file);
+        index.map(Files.size(file));
+        MappedByteBuffer header = index.buffer;
+        int capacity = header.getInt(CAPACITY_AT);
+        if (header.getInt(0) != MAGIC || header.getInt(CLEAN_AT) != 1 || Integer.bitCount(capacity) != 1
+                || Files.size(file) != HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+            index.buffer = null;
+            return null;
+        }
+
+        index.capacity = capacity;
+        index.live = header.getInt(LIVE_AT);
+        index.deleted = header.getInt(DELETED_AT);
+        index.markDirty();
+        return index;
+    }
+
+    static PackedBlobIndex create(Path file) throws IOException {
+        PackedBlobIndex index = new PackedBlobIndex(file);
+        index.initialize(MIN_CAPACITY);
+        index.markDirty();
+        return index;
+    }
+
+    Entry get(String contentHash) {
+        byte[] hash = HexFormat.of().parseHex(contentHash);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash);
+            return slot < 0 ? null : entryAt(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or moves the blob.
+     *
+     * @return the previous location, or null
+     */
+    Entry put(byte[] hash, int segment, long offset, long length) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash);
+            Entry previous = slot < 0 ? null : entryAt(slot);
+            if (slot < 0) {
+                if ((live + deleted + 1) * 10L > capacity * 7L) resize(capacity * 2);
+                slot = insertionSlot(hash);
+                if (buffer.get(slotAt(slot)) == DELETED) deleted--;
+                live++;
+                writeCounts();
+            }
+
+            int at = slotAt(slot);
+            buffer.putInt(at + SEGMENT_AT, segment);
+            buffer.putLong(at + OFFSET_AT, offset);
+            buffer.putLong(at + LENGTH_AT, length);
+            buffer.put(at + HASH_AT, hash);
+            buffer.put(at, LIVE);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the removed location, or null if the blob was not indexed
+     */
+    Entry remove(byte[] hash) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash);
+            if (slot < 0) return null;
+
+            Entry removed = entryAt(slot);
+            buffer.put(slotAt(slot), DELETED);
+            live--;
+            deleted++;
+            writeCounts();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void forEach(Consumer<Entry> action) {
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                if (buffer.get(slotAt(slot)) == LIVE) action.accept(entryAt(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        return live;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null) return;
+            buffer.force();
+            buffer.putInt(CLEAN_AT, 1);
+            buffer.force();
+            buffer = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markDirty() {
+        buffer.putInt(CLEAN_AT, 0);
+        buffer.force();
+    }
+
+    private int find(byte[] hash) {
+        int mask = capacity - 1;
+        for (int slot = start(hash) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            byte state = buffer.get(slotAt(slot));
+            if (state == EMPTY) return -1;
+            if (state == LIVE && hashEquals(slot, hash)) return slot;
+        }
+        return -1;
+    }
+
+    private int insertionSlot(byte[] hash) {
+        int mask = capacity - 1;
+        int slot = start(hash) & mask;
+        while (buffer.get(slotAt(slot)) == LIVE) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private boolean hashEquals(int slot, byte[] hash) {
+        int at = slotAt(slot) + HASH_AT;
+        for (int i = 0; i < hash.length; i++) {
+            if (buffer.get(at + i) != hash[i]) return false;
+        }
+        return true;
+    }
+
+    private Entry entryAt(int slot) {
+        int at = slotAt(slot);
+        byte[] hash = new byte[32];
+        buffer.get(at + HASH_AT, hash);
+        return new Entry(hash, buffer.getInt(at + SEGMENT_AT), buffer.getLong(at + OFFSET_AT), buffer.getLong(at + LENGTH_AT));
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".resize");
+        PackedBlobIndex resized = new PackedBlobIndex(tempFile);
+        resized.initialize(newCapacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            if (buffer.get(slotAt(slot)) != LIVE) continue;
+            Entry entry = entryAt(slot);
+            int target = resized.insertionSlot(entry.hash());
+            int at = resized.slotAt(target);
+            resized.buffer.putInt(at + SEGMENT_AT, entry.segment());
+            resized.buffer.putLong(at + OFFSET_AT, entry.offset());
+            resized.buffer.putLong(at + LENGTH_AT, entry.length());
+            resized.buffer.put(at + HASH_AT, entry.hash());
+            resized.buffer.put(at, LIVE);
+            resized.live++;
+        }
+        resized.writeCounts();
+        resized.buffer.force();
+
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.buffer = resized.buffer;
+        this.capacity = resized.capacity;
+        this.live = resized.live;
+        this.deleted = 0;
+    }
+
+    private void initialize(int capacity) throws IOException {
+        if (capacity > MAX_CAPACITY) throw new IOException("Packed blob index full at " + MAX_CAPACITY + " slots");
+        Files.deleteIfExists(file);
+        map(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        this.capacity = capacity;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(CAPACITY_AT, capacity);
+        writeCounts();
+    }
+
+    private void map(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void writeCounts() {
+        buffer.putInt(LIVE_AT, live);
+        buffer.putInt(DELETED_AT, deleted);
+    }
+
+    private int slotAt(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int start(byte[] hash) {
+        long h = 0;
+        for (int i = 0; i < 8; i++) h = (h << 8) | (hash[i] & 0xff);
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,387 @@
+package gr.aueb.cf.eduapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Packed attachment backend: small blobs are appended to large segment files instead
+ * of getting a file (an inode and at least one block) each.
+ * <p>
+ * A segment is a sequence of records: a 45 byte header (magic, type, SHA-256, length)
+ * followed by the content. Deletion appends a tombstone record. Only the last segment
+ * is appended to; it is sealed when it reaches {@code segment-size}. The location of
+ * every live blob is kept in a memory-mapped {@link PackedBlobIndex}, so the segments
+ * are only scanned when the index was not closed cleanly.
+ * <p>
+ * Reads are positional: a blob is served as a region of its segment (see {@link BlobLocation}),
+ * with sendfile or {@link FileChannel#transferTo}. Compaction copies the live blobs of
+ * sealed segments that are mostly garbage to the end of the active segment and retires
+ * the old segment. A retired segment is deleted after a grace period, so downloads
+ * already served from it finish.
+ */
+@Component
+@Slf4j
+public class PackedBlobStore {
+
+    private static final int MAGIC = 0x45445542;        // "EDUB"
+    private static final byte DATA = 1;
+    private static final byte TOMBSTONE = 2;
+    static final int HEADER_SIZE = 4 + 1 + 32 + 8;
+
+    static final String DIRECTORY = "segments";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{8})\\.dat");
+
+    private record Retired(Path file, long retiredAtMillis) {}
+
+    private final Path directory;
+    private final boolean enabled;
+    private final long maxBlobSize;
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final long retiredGraceMillis;
+
+    // Readers only need the segment paths; channels are used by the appender and compaction
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> liveBytes = new ConcurrentHashMap<>();
+    private final List<Retired> retired = new ArrayList<>();
+    private final Object appendLock = new Object();
+
+    private volatile PackedBlobIndex index;
+    private int activeSegment;
+    private long activeSize;
+
+    public PackedBlobStore(@Value("${app.attachments.root:uploads}") String root,
+                           @Value("${app.attachments.backend:files}") String backend,
+                           @Value("${app.attachments.packed.max-blob-size:1048576}") long maxBlobSize,
+                           @Value("${app.attachments.packed.segment-size:268435456}") long segmentSize,
+                           @Value("${app.attachments.packed.compaction-threshold:0.5}") double compactionThreshold,
+                           @Value("${app.attachments.packed.retired-grace-ms:300000}") long retiredGraceMillis) {
+        this.directory = Paths.get(root, DIRECTORY);
+        this.enabled = "packed".equalsIgnoreCase(backend);
+        this.maxBlobSize = maxBlobSize;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.retiredGraceMillis = retiredGraceMillis;
+    }
+
+    /**
+     * Opens the segments when the backend is selected, or when segments exist from a
+     * time it was, so blobs stored there stay readable after switching back to files.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled && !Files.isDirectory(directory)) return;
+
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(path -> {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) files.put(Integer.parseInt(matcher.group(1)), path);
+            });
+        }
+        for (Map.Entry<Integer, Path> file : files.entrySet()) {
+            segments.put(file.getKey(), FileChannel.open(file.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        activeSegment = files.isEmpty() ? 1 : files.lastKey();
+        if (files.isEmpty()) segments.put(activeSegment, openSegment(activeSegment));
+
+        PackedBlobIndex cleanIndex = PackedBlobIndex.openIfClean(indexFile());
+        if (cleanIndex != null) {
+            index = cleanIndex;
+            activeSize = segments.get(activeSegment).size();
+        } else {
+            index = rebuildIndex();
+        }
+        index.forEach(entry -> liveBytes.merge(entry.segment(), HEADER_SIZE + entry.length(), Long::sum));
+        log.info("Packed blob store opened: {} segments, {} blobs", segments.size(), index.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (index == null) return;
+            for (FileChannel channel : segments.values()) {
+                channel.force(true);
+                channel.close();
+            }
+            index.close();
+            index = null;
+        }
+    }
+
+    /**
+     * Whether new blobs of this size are appended here rather than stored as files.
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= maxBlobSize;
+    }
+
+    public boolean contains(String contentHash) {
+        PackedBlobIndex current = index;
+        return current != null && current.get(contentHash) != null;
+    }
+
+    public Optional<BlobLocation> locate(String contentHash) {
+        PackedBlobIndex current = index;
+        if (current == null) return Optional.empty();
+
+        PackedBlobIndex.Entry entry = current.get(contentHash);
+        if (entry == null) return Optional.empty();
+        return Optional.of(BlobLocation.local(segmentFile(entry.segment()), entry.offset() + HEADER_SIZE, entry.length()));
+    }
+
+    /**
+     * Appends the content, after checking it hashes to {@code contentHash}. A failed
+     * append is truncated away, so the segment never holds a partial record.
+     */
+    public void append(String contentHash, InputStream content, long size) throws IOException {
+        byte[] hash = HexFormat.of().parseHex(contentHash);
+
+        synchronized (appendLock) {
+            if (index.get(contentHash) != null) return;
+            rollIfFull(size);
+
+            FileChannel channel = segments.get(activeSegment);
+            long start = activeSize;
+            try {
+                channel.write(header(DATA, hash, size), start);
+                MessageDigest digest = newDigest();
+                ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, digest));
+                long copied = 0;
+                while (copied < size) {
+                    long transferred = channel.transferFrom(source, start + HEADER_SIZE + copied, size - copied);
+                    if (transferred <= 0) break;
+                    copied += transferred;
+                }
+                if (copied != size || content.read() != -1 || !contentHash.equals(HexFormat.of().formatHex(digest.digest()))) {
+                    throw new IOException("Content of blob " + contentHash + " does not match its hash or size");
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                channel.truncate(start);
+                throw e;
+            }
+
+            activeSize = start + HEADER_SIZE + size;
+            index.put(hash, activeSegment, start, size);
+            liveBytes.merge(activeSegment, HEADER_SIZE + size, Long::sum);
+        }
+    }
+
+    /**
+     * @return false if the blob is not stored here
+     */
+    public boolean delete(String contentHash) throws IOException {
+        byte[] hash = HexFormat.of().parseHex(contentHash);
+
+        synchronized (appendLock) {
+            if (index == null || index.get(contentHash) == null) return false;
+
+            rollIfFull(0);
+            segments.get(activeSegment).write(header(TOMBSTONE, hash, 0), activeSize);
+            segments.get(activeSegment).force(false);
+            activeSize += HEADER_SIZE;
+
+            PackedBlobIndex.Entry removed = index.remove(hash);
+            if (removed != null) liveBytes.merge(removed.segment(), -(HEADER_SIZE + removed.length()), Long::sum);
+            return true;
+        }
+    }
+
+    /**
+     * Copies the live blobs out of sealed segments whose garbage ratio is over the
+     * threshold, and deletes segments retired longer ago than the grace period.
+     *
+     * @return the number of segments compacted
+     */
+    @Scheduled(initialDelayString = "${app.attachments.packed.compaction-interval-ms:3600000}",
+            fixedDelayString = "${app.attachments.packed.compaction-interval-ms:3600000}")
+    public int compact() throws IOException {
+        if (index == null) return 0;
+        deleteRetired();
+
+        List<Integer> candidates = new ArrayList<>();
+        synchronized (appendLock) {
+            for (Map.Entry<Integer, FileChannel> segment : segments.entrySet()) {
+                if (segment.getKey() == activeSegment) continue;
+                long total = segment.getValue().size();
+                long live = liveBytes.getOrDefault(segment.getKey(), 0L);
+                if (total > 0 && 1d - (double) live / total >= compactionThreshold) candidates.add(segment.getKey());
+            }
+        }
+
+        for (Integer segment : candidates) {
+            compactSegment(segment);
+        }
+        return candidates.size();
+    }
+
+    private void compactSegment(int segment) throws IOException {
+        Map<String, PackedBlobIndex.Entry> liveEntries = new HashMap<>();
+        index.forEach(entry -> {
+            if (entry.segment() == segment) liveEntries.put(HexFormat.of().formatHex(entry.hash()), entry);
+        });
+
+        FileChannel source = segments.get(segment);
+        long copiedBytes = 0;
+        for (PackedBlobIndex.Entry entry : liveEntries.values()) {
+            synchronized (appendLock) {
+                // Deleted or moved meanwhile
+                PackedBlobIndex.Entry current = index.get(HexFormat.of().formatHex(entry.hash()));
+                if (current == null || current.segment() != segment || current.offset() != entry.offset()) continue;
+
+                rollIfFull(entry.length());
+                FileChannel target = segments.get(activeSegment);
+                long start = activeSize;
+                long recordLength = HEADER_SIZE + entry.length();
+                long copied = 0;
+                while (copied < recordLength) {
+                    long transferred = source.transferTo(entry.offset() + copied, recordLength - copied,
+                            target.position(start + copied));
+                    if (transferred <= 0) throw new IOException("Segment " + segment + " truncated at " + entry.offset());
+                    copied += transferred;
+                }
+                target.force(false);
+                activeSize = start + recordLength;
+                index.put(entry.hash(), activeSegment, start, entry.length());
+                liveBytes.merge(activeSegment, recordLength, Long::sum);
+                copiedBytes += recordLength;
+            }
+        }
+
+        synchronized (appendLock) {
+            segments.remove(segment).close();
+            liveBytes.remove(segment);
+            retired.add(new Retired(segmentFile(segment), System.currentTimeMillis()));
+        }
+        log.info("Packed segment {} compacted: {} blobs, {} bytes copied", segment, liveEntries.size(), copiedBytes);
+    }
+
+    private void deleteRetired() {
+        long now = System.currentTimeMillis();
+        synchronized (appendLock) {
+            retired.removeIf(segment -> {
+                if (now - segment.retiredAtMillis() < retiredGraceMillis) return false;
+                try {
+                    Files.deleteIfExists(segment.file());
+                    return true;
+                } catch (IOException e) {
+                    log.warn("Retired segment {} could not be deleted", segment.file(), e);
+                    return false;
+                }
+            });
+        }
+    }
+
+    private void rollIfFull(long size) throws IOException {
+        if (activeSize == 0 || activeSize + HEADER_SIZE + size <= segmentSize) return;
+
+        segments.get(activeSegment).force(true);
+        activeSegment++;
+        segments.put(activeSegment, openSegment(activeSegment));
+        activeSize = 0;
+    }
+
+    /**
+     * Scans every segment in order. A record cut short by a crash can only be at the
+     * end of the last segment; it is truncated away.
+     */
+    private PackedBlobIndex rebuildIndex() throws IOException {
+        log.warn("Packed blob index not closed cleanly, rebuilding it from {} segments", segments.size());
+        PackedBlobIndex rebuilt = PackedBlobIndex.create(indexFile());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        for (Map.Entry<Integer, FileChannel> segment : new TreeMap<>(segments).entrySet()) {
+            FileChannel channel = segment.getValue();
+            long size = channel.size();
+            long position = 0;
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                int magic = header.getInt();
+                byte type = header.get();
+                byte[] hash = new byte[32];
+                header.get(hash);
+                long length = header.getLong();
+                if (magic != MAGIC || length < 0 || position + HEADER_SIZE + length > size) break;
+
+                if (type == DATA) {
+                    rebuilt.put(hash, segment.getKey(), position, length);
+                } else {
+                    rebuilt.remove(hash);
+                }
+                position += HEADER_SIZE + length;
+            }
+
+            if (position < size) {
+                if (segment.getKey() == activeSegment) {
+                    log.warn("Truncating incomplete record at {} of segment {}", position, segment.getKey());
+                    channel.truncate(position);
+                } else {
+                    log.error("Segment {} is corrupt after offset {}, the rest is ignored", segment.getKey(), position);
+                }
+            }
+            if (segment.getKey() == activeSegment) activeSize = position;
+        }
+        return rebuilt;
+    }
+
+    private FileChannel openSegment(int segment) throws IOException {
+        return FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("segment-%08d.dat", segment));
+    }
+
+    private Path indexFile() {
+        return directory.resolve("index.dat");
+    }
+
+    private static ByteBuffer header(byte type, byte[] hash, long length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(type).put(hash).putLong(length);
+        return header.flip();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
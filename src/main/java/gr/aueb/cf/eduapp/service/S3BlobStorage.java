@@ -0,0 +1,296 @@
+package gr.aueb.cf.eduapp.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Blobs as objects of an S3-compatible store (AWS S3, MinIO, Ceph RGW, ...), addressed
+ * path-style as {@code <endpoint>/<bucket>/<prefix><hash>}, so application nodes need no
+ * shared disk.
+ * <p>
+ * Requests are signed with Signature V4 and sent through one shared {@link HttpClient},
+ * which keeps its connections alive and reuses them. Content up to {@code part-size} is
+ * sent with a single PUT. Larger content is sent as a multipart upload: parts are read
+ * one after another and up to {@code upload-parallelism} of them are uploaded at once,
+ * which bounds the memory used to {@code part-size * upload-parallelism}. The upload is
+ * completed only if the whole content hashes to its key, and aborted otherwise.
+ * Every part (and single PUT) carries its own SHA-256, which the store verifies.
+ */
+@Component
+@ConditionalOnProperty(name = "app.attachments.backend", havingValue = "s3")
+@Slf4j
+public class S3BlobStorage implements BlobStorage {
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;     // S3 minimum, except for the last part
+
+    private final String endpoint;
+    private final String bucket;
+    private final String prefix;
+    private final int partSize;
+    private final int uploadParallelism;
+    private final Duration requestTimeout;
+    private final S3RequestSigner signer;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    public S3BlobStorage(@Value("${app.attachments.s3.endpoint}") String endpoint,
+                         @Value("${app.attachments.s3.region:us-east-1}") String region,
+                         @Value("${app.attachments.s3.bucket}") String bucket,
+                         @Value("${app.attachments.s3.access-key}") String accessKey,
+                         @Value("${app.attachments.s3.secret-key}") String secretKey,
+                         @Value("${app.attachments.s3.prefix:blobs/}") String prefix,
+                         @Value("${app.attachments.s3.part-size:8388608}") int partSize,
+                         @Value("${app.attachments.s3.upload-parallelism:4}") int uploadParallelism,
+                         @Value("${app.attachments.s3.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                         @Value("${app.attachments.s3.request-timeout-ms:60000}") long requestTimeoutMillis) {
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.partSize = (int) Math.max(partSize, MIN_PART_SIZE);
+        this.uploadParallelism = Math.max(1, uploadParallelism);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.signer = new S3RequestSigner(accessKey, secretKey, region);
+        this.executor = Executors.newCachedThreadPool();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean contains(String contentHash) throws IOException {
+        return head(contentHash) >= 0;
+    }
+
+    @Override
+    public void write(String contentHash, InputStream content, long size) throws IOException {
+        if (size <= partSize) {
+            byte[] bytes = content.readNBytes(partSize + 1);
+            if (bytes.length != size || !contentHash.equals(S3RequestSigner.sha256Hex(bytes, 0, bytes.length))) {
+                throw new IOException("Content of blob " + contentHash + " does not match its hash or size");
+            }
+            send("PUT", objectUri(contentHash, null), bytes, contentHash);
+        } else {
+            writeMultipart(contentHash, content, size);
+        }
+        log.info("Attachment blob {} stored in bucket {}, {} bytes", contentHash, bucket, size);
+    }
+
+    @Override
+    public boolean delete(String contentHash) throws IOException {
+        // S3 answers 204 whether the object existed or not
+        boolean existed = contains(contentHash);
+        send("DELETE", objectUri(contentHash, null), null, S3RequestSigner.EMPTY_PAYLOAD_SHA256);
+        return existed;
+    }
+
+    @Override
+    public Optional<BlobLocation> locate(String contentHash) throws IOException {
+        long length = head(contentHash);
+        if (length < 0) return Optional.empty();
+        return Optional.of(BlobLocation.remote(length, (offset, count) -> openRange(contentHash, offset, count)));
+    }
+
+    @Override
+    public String pathOf(String contentHash) {
+        return "s3://" + bucket + "/" + prefix + contentHash;
+    }
+
+    private void writeMultipart(String contentHash, InputStream content, long size) throws IOException {
+        String uploadId = createMultipartUpload(contentHash);
+        try {
+            MessageDigest digest = newDigest();
+            Semaphore inFlight = new Semaphore(uploadParallelism);
+            List<CompletableFuture<String>> parts = new ArrayList<>();
+            long total = 0;
+
+            for (int partNumber = 1; ; partNumber++) {
+                byte[] part = content.readNBytes(partSize);
+                if (part.length == 0 && partNumber > 1) break;
+                digest.update(part);
+                total += part.length;
+                if (total > size) throw new IOException("Content of blob " + contentHash + " is longer than " + size);
+
+                inFlight.acquire();
+                if (failed(parts)) break;
+                URI uri = objectUri(contentHash, "partNumber=" + partNumber + "&uploadId=" + S3RequestSigner.encode(uploadId));
+                parts.add(sendAsync("PUT", uri, part, S3RequestSigner.sha256Hex(part, 0, part.length))
+                        .thenApply(response -> response.headers().firstValue("ETag").orElseThrow())
+                        .whenComplete((eTag, e) -> inFlight.release()));
+                if (part.length < partSize) break;
+            }
+
+            List<String> eTags = new ArrayList<>();
+            for (CompletableFuture<String> part : parts) {
+                eTags.add(part.get());
+            }
+            if (total != size || !contentHash.equals(HexFormat.of().formatHex(digest.digest()))) {
+                throw new IOException("Content of blob " + contentHash + " does not match its hash or size");
+            }
+            completeMultipartUpload(contentHash, uploadId, eTags);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortQuietly(contentHash, uploadId);
+            throw new InterruptedIOException("Upload of blob " + contentHash + " interrupted");
+        } catch (ExecutionException e) {
+            abortQuietly(contentHash, uploadId);
+            throw e.getCause() instanceof IOException io ? io : new IOException("Part upload failed", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abortQuietly(contentHash, uploadId);
+            throw e;
+        }
+    }
+
+    private static boolean failed(List<CompletableFuture<String>> parts) {
+        return parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally);
+    }
+
+    private String createMultipartUpload(String contentHash) throws IOException {
+        String body = send("POST", objectUri(contentHash, "uploads="), null, S3RequestSigner.EMPTY_PAYLOAD_SHA256).body();
+        Matcher matcher = UPLOAD_ID.matcher(body);
+        if (!matcher.find()) throw new IOException("No UploadId in response: " + body);
+        return matcher.group(1);
+    }
+
+    private void completeMultipartUpload(String contentHash, String uploadId, List<String> eTags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < eTags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(eTags.get(i)).append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+
+        byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+        URI uri = objectUri(contentHash, "uploadId=" + S3RequestSigner.encode(uploadId));
+        String response = send("POST", uri, bytes, S3RequestSigner.sha256Hex(bytes, 0, bytes.length)).body();
+        // A completion can fail after the 200 status has been sent
+        if (response.contains("<Error>")) throw new IOException("Multipart upload not completed: " + response);
+    }
+
+    private void abortQuietly(String contentHash, String uploadId) {
+        try {
+            send("DELETE", objectUri(contentHash, "uploadId=" + S3RequestSigner.encode(uploadId)), null,
+                    S3RequestSigner.EMPTY_PAYLOAD_SHA256);
+        } catch (IOException e) {
+            log.warn("Multipart upload {} of blob {} could not be aborted", uploadId, contentHash, e);
+        }
+    }
+
+    /**
+     * @return the object's length, or -1 if there is no such object
+     */
+    private long head(String contentHash) throws IOException {
+        URI uri = objectUri(contentHash, null);
+        HttpRequest request = signer.sign(HttpRequest.newBuilder(uri).timeout(requestTimeout), "HEAD", uri,
+                        S3RequestSigner.EMPTY_PAYLOAD_SHA256)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<Void> response = execute(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) return -1;
+        if (response.statusCode() != 200) throw new IOException("HEAD " + uri + " failed: " + response.statusCode());
+        return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    private InputStream openRange(String contentHash, long offset, long length) throws IOException {
+        URI uri = objectUri(contentHash, null);
+        HttpRequest request = signer.sign(HttpRequest.newBuilder(uri).timeout(requestTimeout), "GET", uri,
+                        S3RequestSigner.EMPTY_PAYLOAD_SHA256)
+                .header("Range", "bytes=" + offset + "-" + (offset + length - 1))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = execute(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 206 && !(response.statusCode() == 200 && offset == 0)) {
+            response.body().close();
+            throw new IOException("GET " + uri + " failed: " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private HttpResponse<String> send(String method, URI uri, byte[] body, String payloadSha256) throws IOException {
+        HttpResponse<String> response = execute(request(method, uri, body, payloadSha256),
+                HttpResponse.BodyHandlers.ofString());
+        checkStatus(method, uri, response);
+        return response;
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String method, URI uri, byte[] body, String payloadSha256) {
+        return httpClient.sendAsync(request(method, uri, body, payloadSha256), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    try {
+                        checkStatus(method, uri, response);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    return response;
+                });
+    }
+
+    private HttpRequest request(String method, URI uri, byte[] body, String payloadSha256) {
+        return signer.sign(HttpRequest.newBuilder(uri).timeout(requestTimeout), method, uri, payloadSha256)
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private <T> HttpResponse<T> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(request.method() + " " + request.uri() + " interrupted");
+        }
+    }
+
+    private static void checkStatus(String method, URI uri, HttpResponse<String> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(method + " " + uri + " failed: " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private URI objectUri(String contentHash, String query) {
+        return URI.create(endpoint + "/" + bucket + "/" + prefix + contentHash + (query == null ? "" : "?" + query));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
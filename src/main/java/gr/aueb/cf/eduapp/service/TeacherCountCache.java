@@ -0,0 +1,123 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilterKey;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherJDBCRepository;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of the paginated teacher listings. A count runs over the same joins as the page,
+ * so exact counts are cached per {@link TeacherFilterKey} until a teacher write commits,
+ * and for at most {@code ttl-ms} to cover writes made by other instances.
+ * <p>
+ * Every write bumps a generation and entries of older generations are not served, so a count
+ * that was running while a write committed is never served after it.
+ */
+@Service
+@Slf4j
+public class TeacherCountCache {
+
+    private record Entry(long count, long generation, long expiresAtNanos) {}
+
+    private final TeacherRepository teacherRepository;
+    private final TeacherJDBCRepository teacherJDBCRepository;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<TeacherFilterKey, Entry> counts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public TeacherCountCache(TeacherRepository teacherRepository, TeacherJDBCRepository teacherJDBCRepository,
+                             @Value("${app.teachers.count-cache.ttl-ms:30000}") long ttlMillis,
+                             @Value("${app.teachers.count-cache.max-entries:10000}") int maxEntries,
+                             MeterRegistry meterRegistry) {
+        this.teacherRepository = teacherRepository;
+        this.teacherJDBCRepository = teacherJDBCRepository;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxEntries = maxEntries;
+
+        this.hits = Counter.builder("teachers.count.cache")
+                .description("Teacher listing totals served from the count cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("teachers.count.cache")
+                .description("Teacher listing totals served from the count cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("teachers.count.cache.size", counts, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The total for the filters, computed as {@code mode} asks; {@code null} for {@link CountMode#NONE}.
+     *
+     * @param specification the specification built from the filters of {@code key}
+     */
+    public Long count(TeacherFilterKey key, Specification<Teacher> specification, CountMode mode) {
+        if (mode == CountMode.NONE) return null;
+        if (mode == CountMode.ESTIMATE && key.isUnfiltered()) {
+            OptionalLong estimate = teacherJDBCRepository.estimateTeacherCount();
+            if (estimate.isPresent()) return estimate.getAsLong();
+        }
+
+        long now = System.nanoTime();
+        long currentGeneration = generation.get();
+        Entry entry = counts.get(key);
+        if (entry != null && entry.generation() == currentGeneration && entry.expiresAtNanos() - now > 0) {
+            hits.increment();
+            return entry.count();
+        }
+
+        misses.increment();
+        long count = teacherRepository.count(specification);
+        if (ttlNanos > 0) {
+            if (counts.size() >= maxEntries) evictStale(now, currentGeneration);
+            // When full of live entries, this count is not cached
+            if (counts.size() < maxEntries) {
+                counts.put(key, new Entry(count, currentGeneration, now + ttlNanos));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops every cached count once the current transaction commits, or now without one.
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        counts.clear();
+    }
+
+    private void evictStale(long now, long currentGeneration) {
+        counts.values().removeIf(entry -> entry.generation() != currentGeneration || entry.expiresAtNanos() - now <= 0);
+    }
+}
@@ -0,0 +1,107 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gr.aueb.cf.eduapp.core.csv.CsvWriter;
+import gr.aueb.cf.eduapp.core.enums.ExportFormat;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilterKey;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.PersonalInfoReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.repository.TeacherJDBCRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Full teacher roster export, e.g. for nightly reporting.
+ * <p>
+ * Rows are read from a forward-only JDBC cursor and written to the output as they arrive,
+ * through a fixed-size buffer, so memory does not grow with the number of teachers. There is
+ * no paging, so there are no OFFSET queries and no counts.
+ */
+@Service
+@Slf4j
+public class TeacherExportService implements ITeacherExportService {
+
+    static final List<String> CSV_COLUMNS = List.of("id", "uuid", "isActive", "firstname", "lastname", "vat",
+            "amka", "identityNumber");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TeacherJDBCRepository teacherJDBCRepository;
+    // Flushing after each row would send a chunk per row, the buffer flushes when full
+    private final ObjectWriter rowWriter;
+    private final int fetchSize;
+
+    public TeacherExportService(TeacherJDBCRepository teacherJDBCRepository, ObjectMapper objectMapper,
+                                @Value("${app.teachers.export.fetch-size:1000}") int fetchSize) {
+        this.teacherJDBCRepository = teacherJDBCRepository;
+        // Rows share one generator, which would separate them with a space: each line ends with its own newline instead
+        this.rowWriter = objectMapper.writerFor(TeacherReadOnlyDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public long exportTeachers(TeacherFilters filters, ExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long[] rows = {0};
+        try {
+            if (format == ExportFormat.CSV) {
+                CsvWriter csv = new CsvWriter(writer);
+                csv.writeRecord(CSV_COLUMNS.toArray());
+                stream(filters, teacher -> {
+                    PersonalInfoReadOnlyDTO personalInfo = teacher.personalInfoReadOnlyDTO();
+                    csv.writeRecord(teacher.id(), teacher.uuid(), teacher.isActive(),
+                            teacher.userReadOnlyDTO().firstname(), teacher.userReadOnlyDTO().lastname(),
+                            teacher.userReadOnlyDTO().vat(),
+                            personalInfo == null ? null : personalInfo.amka(),
+                            personalInfo == null ? null : personalInfo.identityNumber());
+                    rows[0]++;
+                });
+            } else {
+                try (JsonGenerator generator = rowWriter.createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                    stream(filters, teacher -> {
+                        rowWriter.writeValue(generator, teacher);
+                        generator.writeRaw('\n');
+                        rows[0]++;
+                    });
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // Typically the client went away, the cursor is closed by then
+            log.warn("Teacher export as {} aborted after {} rows: {}", format, rows[0], e.getMessage());
+            throw e;
+        }
+        log.info("Teacher export as {} finished, {} rows", format, rows[0]);
+        return rows[0];
+    }
+
+    private void stream(TeacherFilters filters, RowSink sink) throws IOException {
+        try {
+            teacherJDBCRepository.streamTeachersWithDetails(TeacherFilterKey.of(filters), fetchSize, teacher -> {
+                try {
+                    sink.write(teacher);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface RowSink {
+        void write(TeacherReadOnlyDTO teacher) throws IOException;
+    }
+}
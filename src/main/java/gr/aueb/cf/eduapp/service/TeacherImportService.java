@@ -0,0 +1,443 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.eduapp.core.UniqueConstraintRegistry;
+import gr.aueb.cf.eduapp.core.csv.CsvReader;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.ImportFormat;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppServiceUnavailableException;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherJDBCRepository;
+import gr.aueb.cf.eduapp.security.PasswordHashingExecutor;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.exception.spi.ViolatedConstraintNameExtractor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bulk teacher import for onboarding, e.g. a new school year.
+ * <p>
+ * The upload is read one row at a time and processed in batches, so memory depends on
+ * the batch size and not on the file size. Per batch: rows are validated with the
+ * constraints of {@link TeacherInsertDTO}, duplicates are found with one IN query per
+ * unique field, passwords are hashed in parallel on the {@link PasswordHashingExecutor}, and
+ * the rows are written with one JDBC batch per table in a single transaction.
+ * <p>
+ * The import takes at most {@code hashing-threads} of the hashing threads at a time (by default
+ * half of them) and waits while the executor is saturated, so logins keep being served.
+ * <p>
+ * Invalid and duplicate rows are skipped and reported, the rest of the batch is imported.
+ */
+@Service
+@Slf4j
+public class TeacherImportService implements ITeacherImportService {
+
+    static final List<String> CSV_COLUMNS = List.of("firstname", "lastname", "username", "password", "vat",
+            "fatherName", "fatherLastname", "motherName", "motherLastname", "dateOfBirth", "gender", "role",
+            "amka", "identityNumber", "placeOfBirth", "municipalityOfRegistration", "isActive");
+
+    // Optional columns, everything else is required in the CSV header
+    private static final Set<String> OPTIONAL_CSV_COLUMNS = Set.of("role", "isActive");
+
+    private static final long SATURATED_RETRY_MILLIS = 50;
+
+    private static final Map<String, String> FIELD_BY_CONSTRAINT_CODE = Map.of(
+            "Username", "userInsertDTO.username",
+            "VAT", "userInsertDTO.vat",
+            "AMKA", "personalInfoInsertDTO.amka",
+            "IdentityNumber", "personalInfoInsertDTO.identityNumber");
+
+    /**
+     * A parsed row, or the reason it could not be parsed.
+     */
+    private record Row(long number, TeacherInsertDTO dto, TeacherImportErrorDTO error) {}
+
+    private interface RowSource {
+        Row next() throws IOException;
+    }
+
+    private final TeacherJDBCRepository teacherJDBCRepository;
+    private final Mapper mapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final IAvailabilityService availabilityService;
+    private final TeacherCountCache teacherCountCache;
+    private final TeacherSearchCache teacherSearchCache;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    // JDBC batch failures are not translated by Hibernate, the dialect still knows where the constraint name is
+    private final ViolatedConstraintNameExtractor constraintNameExtractor;
+    private final int hashingThreads;
+    private final int batchSize;
+    private final int maxErrors;
+
+    // One import at a time, it already uses its whole share of the hashing threads
+    private final Semaphore importPermit = new Semaphore(1);
+
+    public TeacherImportService(TeacherJDBCRepository teacherJDBCRepository, Mapper mapper, Validator validator,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                IAvailabilityService availabilityService, TeacherCountCache teacherCountCache,
+                                TeacherSearchCache teacherSearchCache, EntityManagerFactory entityManagerFactory,
+                                PasswordHashingExecutor passwordHashingExecutor,
+                                @Value("${app.teacher-import.batch-size:500}") int batchSize,
+                                @Value("${app.teacher-import.max-errors:1000}") int maxErrors,
+                                @Value("${app.teacher-import.hashing-threads:0}") int hashingThreads,
+                                @Value("${app.teacher-import.bcrypt-strength:${app.security.bcrypt-strength:12}}") int bcryptStrength) {
+        this.teacherJDBCRepository = teacherJDBCRepository;
+        this.mapper = mapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.availabilityService = availabilityService;
+        this.teacherCountCache = teacherCountCache;
+        this.teacherSearchCache = teacherSearchCache;
+        this.passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.constraintNameExtractor = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getViolatedConstraintNameExtractor();
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        int sharedThreads = passwordHashingExecutor.getThreads();
+        this.hashingThreads = Math.max(1, hashingThreads > 0 ? Math.min(hashingThreads, sharedThreads) : sharedThreads / 2);
+    }
+
+    @Override
+    public TeacherImportResultDTO importTeachers(InputStream input, ImportFormat format)
+            throws IOException, AppObjectInvalidArgumentException {
+
+        if (!importPermit.tryAcquire()) {
+            throw new AppServiceUnavailableException("TeacherImport", "Another import is running", 60);
+        }
+
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(maxErrors);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+
+        try (reader) {
+            RowSource source = format == ImportFormat.CSV ? csvSource(new CsvReader(reader)) : ndjsonSource(reader);
+            List<Row> batch = new ArrayList<>(batchSize);
+
+            for (Row row = source.next(); row != null; row = source.next()) {
+                report.rows++;
+                if (row.error() != null) {
+                    report.rowFailed(List.of(row.error()));
+                    continue;
+                }
+
+                List<TeacherImportErrorDTO> violations = validate(row);
+                if (!violations.isEmpty()) {
+                    report.rowFailed(violations);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, report);
+                    batch.clear();
+                }
+            }
+            writeBatch(batch, report);
+        } finally {
+            importPermit.release();
+        }
+
+        // Duplicates are found when their batch is written, after later rows were parsed
+        report.errors.sort(Comparator.comparingLong(TeacherImportErrorDTO::row));
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Teacher import finished: rows={}, imported={}, failed={}, in {} ms",
+                report.rows, report.imported, report.failed, durationMillis);
+        return new TeacherImportResultDTO(report.rows, report.imported, report.failed, durationMillis,
+                report.errors, report.errorsTruncated);
+    }
+
+    private void writeBatch(List<Row> batch, ImportReport report) {
+        List<Row> accepted = rejectDuplicates(batch, report);
+        if (accepted.isEmpty()) return;
+
+        List<Teacher> teachers = hashAndMap(accepted);
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(teachers));
+            report.imported += teachers.size();
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent registration took a value after the duplicate check: retry row by row
+            log.warn("Teacher import batch failed on a unique constraint, retrying {} rows one by one", teachers.size());
+            for (int i = 0; i < teachers.size(); i++) {
+                insertOne(accepted.get(i), teachers.get(i), report);
+            }
+        }
+    }
+
+    private void insertOne(Row row, Teacher teacher, ImportReport report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(List.of(teacher)));
+            report.imported++;
+        } catch (DataIntegrityViolationException e) {
+            UniqueConstraintRegistry.UniqueField field = UniqueConstraintRegistry.resolve(e, constraintNameExtractor)
+                    .orElseThrow(() -> e);
+            report.rowFailed(List.of(new TeacherImportErrorDTO(row.number(), FIELD_BY_CONSTRAINT_CODE.get(field.code()),
+                    "User with " + field.label() + " already exists")));
+        }
+    }
+
+    private void insert(List<Teacher> teachers) {
+        teacherJDBCRepository.insertBatch(teachers);
+        for (Teacher teacher : teachers) {
+            availabilityService.registerTakenAfterCommit(teacher.getUser().getUsername(), teacher.getUser().getVat(),
+                    teacher.getPersonalInfo().getAmka(), teacher.getPersonalInfo().getIdentityNumber());
+        }
+        teacherCountCache.invalidateAfterCommit();
+        teacherSearchCache.invalidateAfterCommit();
+    }
+
+    /**
+     * Drops rows whose unique values already exist in the database or appear
+     * earlier in the batch. Earlier batches are committed, so they are in the database.
+     */
+    private List<Row> rejectDuplicates(List<Row> batch, ImportReport report) {
+        Set<String> usernames = lowerCase(teacherJDBCRepository.findExistingUsernames(values(batch, r -> r.userInsertDTO().username())));
+        Set<String> vats = teacherJDBCRepository.findExistingVats(values(batch, r -> r.userInsertDTO().vat()));
+        Set<String> amkas = teacherJDBCRepository.findExistingAmkas(values(batch, r -> r.personalInfoInsertDTO().amka()));
+        Set<String> identityNumbers = teacherJDBCRepository.findExistingIdentityNumbers(values(batch, r -> r.personalInfoInsertDTO().identityNumber()));
+
+        List<Row> accepted = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            UserInsertDTO user = row.dto().userInsertDTO();
+            PersonalInfoInsertDTO personalInfo = row.dto().personalInfoInsertDTO();
+            String username = user.username() == null ? null : user.username().toLowerCase(Locale.ROOT);
+
+            TeacherImportErrorDTO duplicate = null;
+            if (username != null && usernames.contains(username)) {
+                duplicate = new TeacherImportErrorDTO(row.number(), "userInsertDTO.username", "User with username " + user.username() + " already exists");
+            } else if (vats.contains(user.vat())) {
+                duplicate = new TeacherImportErrorDTO(row.number(), "userInsertDTO.vat", "User with vat " + user.vat() + " already exists");
+            } else if (amkas.contains(personalInfo.amka())) {
+                duplicate = new TeacherImportErrorDTO(row.number(), "personalInfoInsertDTO.amka", "User with AMKA " + personalInfo.amka() + " already exists");
+            } else if (identityNumbers.contains(personalInfo.identityNumber())) {
+                duplicate = new TeacherImportErrorDTO(row.number(), "personalInfoInsertDTO.identityNumber", "User with identity number " + personalInfo.identityNumber() + " already exists");
+            }
+
+            if (duplicate != null) {
+                report.rowFailed(List.of(duplicate));
+                continue;
+            }
+
+            // Later rows of the batch with the same values are duplicates of this one
+            if (username != null) usernames.add(username);
+            vats.add(user.vat());
+            amkas.add(personalInfo.amka());
+            identityNumbers.add(personalInfo.identityNumber());
+            accepted.add(row);
+        }
+        return accepted;
+    }
+
+    private List<Teacher> hashAndMap(List<Row> rows) {
+        Semaphore inFlight = new Semaphore(hashingThreads);
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            String password = row.dto().userInsertDTO().password();
+            inFlight.acquireUninterruptibly();
+            hashes.add(submitHash(() -> {
+                try {
+                    return passwordEncoder.encode(password);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+
+        List<Teacher> teachers = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            teachers.add(mapper.mapToTeacherEntity(rows.get(i).dto(), await(hashes.get(i))));
+        }
+        return teachers;
+    }
+
+    /**
+     * Submits the hash, waiting while the executor is saturated: logins are not shed for the import.
+     */
+    private Future<String> submitHash(Supplier<String> hash) {
+        while (true) {
+            try {
+                return passwordHashingExecutor.submit(hash);
+            } catch (AppServiceUnavailableException e) {
+                try {
+                    Thread.sleep(SATURATED_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new AppServiceUnavailableException("TeacherImport", "Teacher import interrupted", 60);
+                }
+            }
+        }
+    }
+
+    private static String await(Future<String> hash) {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppServiceUnavailableException("TeacherImport", "Teacher import interrupted", 60);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private List<TeacherImportErrorDTO> validate(Row row) {
+        List<TeacherImportErrorDTO> errors = new ArrayList<>();
+        for (ConstraintViolation<TeacherInsertDTO> violation : validator.validate(row.dto())) {
+            errors.add(new TeacherImportErrorDTO(row.number(), violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        // The insert DTO allows a null password (the pattern only applies to non-null values)
+        if (row.dto().userInsertDTO() != null && row.dto().userInsertDTO().password() == null) {
+            errors.add(new TeacherImportErrorDTO(row.number(), "userInsertDTO.password", "Password is required"));
+        }
+        errors.sort(Comparator.comparing(TeacherImportErrorDTO::field));
+        return errors;
+    }
+
+    private RowSource csvSource(CsvReader csv) throws IOException, AppObjectInvalidArgumentException {
+        List<String> header = csv.readRecord();
+        if (header == null) return () -> null;
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = CSV_COLUMNS.stream()
+                .filter(column -> !OPTIONAL_CSV_COLUMNS.contains(column))
+                .filter(column -> !columns.containsKey(column.toLowerCase(Locale.ROOT)))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new AppObjectInvalidArgumentException("TeacherImport", "Missing CSV columns: " + String.join(", ", missing));
+        }
+
+        return () -> {
+            List<String> record;
+            do {
+                record = csv.readRecord();
+                if (record == null) return null;
+            } while (record.size() == 1 && record.get(0).isBlank());     // empty line
+
+            List<String> fields = record;
+            long number = csv.getRecordNumber() - 1;
+            Function<String, String> value = column -> {
+                Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+                if (index == null || index >= fields.size()) return null;
+                String v = fields.get(index).trim();
+                return v.isEmpty() ? null : v;
+            };
+            return toRow(number, value);
+        };
+    }
+
+    private Row toRow(long number, Function<String, String> value) {
+        String field = null;
+        try {
+            field = "dateOfBirth";
+            LocalDate dateOfBirth = value.apply(field) == null ? null : LocalDate.parse(value.apply(field));
+            field = "gender";
+            GenderType gender = value.apply(field) == null ? null : GenderType.valueOf(value.apply(field).toUpperCase(Locale.ROOT));
+            field = "role";
+            Role role = value.apply(field) == null ? Role.TEACHER : Role.valueOf(value.apply(field).toUpperCase(Locale.ROOT));
+            field = "isActive";
+            Boolean isActive = value.apply(field) == null ? Boolean.TRUE : parseBoolean(value.apply(field));
+
+            UserInsertDTO user = new UserInsertDTO(value.apply("firstname"), value.apply("lastname"),
+                    value.apply("username"), value.apply("password"), value.apply("vat"),
+                    value.apply("fatherName"), value.apply("fatherLastname"), value.apply("motherName"),
+                    value.apply("motherLastname"), dateOfBirth, gender, role);
+            PersonalInfoInsertDTO personalInfo = new PersonalInfoInsertDTO(value.apply("amka"),
+                    value.apply("identityNumber"), value.apply("placeOfBirth"), value.apply("municipalityOfRegistration"));
+            return new Row(number, new TeacherInsertDTO(isActive, user, personalInfo), null);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return new Row(number, null, new TeacherImportErrorDTO(number, field, "Invalid value " + value.apply(field)));
+        }
+    }
+
+    private RowSource ndjsonSource(BufferedReader reader) {
+        long[] lineNumber = {0};
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return null;
+                lineNumber[0]++;
+            } while (line.isBlank());
+
+            long number = lineNumber[0];
+            try {
+                TeacherInsertDTO dto = objectMapper.readValue(line, TeacherInsertDTO.class);
+                if (dto == null) return new Row(number, null, new TeacherImportErrorDTO(number, null, "Empty row"));
+                return new Row(number, dto, null);
+            } catch (JsonProcessingException e) {
+                return new Row(number, null, new TeacherImportErrorDTO(number, null, "Invalid JSON: " + e.getOriginalMessage()));
+            }
+        };
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException(value);
+    }
+
+    private static List<String> values(List<Row> rows, Function<TeacherInsertDTO, String> getter) {
+        return rows.stream().map(row -> getter.apply(row.dto())).filter(Objects::nonNull).distinct().toList();
+    }
+
+    private static Set<String> lowerCase(Set<String> values) {
+        Set<String> lowerCased = new HashSet<>();
+        values.forEach(v -> lowerCased.add(v.toLowerCase(Locale.ROOT)));
+        return lowerCased;
+    }
+
+    private static final class ImportReport {
+        private final int maxErrors;
+        private final List<TeacherImportErrorDTO> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+        private boolean errorsTruncated;
+
+        private ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void rowFailed(List<TeacherImportErrorDTO> rowErrors) {
+            failed++;
+            for (TeacherImportErrorDTO error : rowErrors) {
+                if (errors.size() < maxErrors) errors.add(error);
+                else errorsTruncated = true;
+            }
+        }
+    }
+}
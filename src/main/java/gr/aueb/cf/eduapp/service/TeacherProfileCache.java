@@ -0,0 +1,169 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.cache.WTinyLfuCache;
+import gr.aueb.cf.eduapp.dto.PersonalInfoReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserReadOnlyDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Read-through cache of {@link TeacherReadOnlyDTO} by teacher uuid, bounded by the estimated
+ * heap size of its entries ({@code max-weight-bytes}, 0 disables it). A hit touches
+ * neither the database nor the connection pool.
+ * <p>
+ * Teacher writes evict the teacher after commit. A load that was running while an eviction
+ * happened is returned but not cached, so a value read before a write is never cached after it.
+ * Profiles are also served for at most {@code ttl-ms}, to cover writes made by other instances,
+ * and never when older than a version the caller has already read from the database.
+ * Hits, misses and evictions are published as {@code teachers.profile.cache.*} metrics.
+ */
+@Service
+@Slf4j
+public class TeacherProfileCache {
+
+    // Assumed average entry size, sizes the frequency sketch
+    private static final int AVERAGE_ENTRY_BYTES = 512;
+
+    /**
+     * A profile with the last modification time of the rows it was read from, null if unknown.
+     */
+    public record Profile(TeacherReadOnlyDTO teacher, Instant lastModified) {
+
+        public boolean olderThan(Instant version) {
+            return version != null && lastModified != null && lastModified.isBefore(version);
+        }
+    }
+
+    private record Entry(Profile profile, long expiresAtNanos) {}
+
+    private final WTinyLfuCache<String, Entry> cache;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Object writeLock = new Object();
+    // Bumped by every eviction, guarded by writeLock
+    private long generation;
+
+    public TeacherProfileCache(@Value("${app.teachers.profile-cache.max-weight-bytes:33554432}") long maxWeightBytes,
+                               @Value("${app.teachers.profile-cache.ttl-ms:60000}") long ttlMillis,
+                               MeterRegistry meterRegistry) {
+        this.enabled = maxWeightBytes > 0 && ttlMillis > 0;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.cache = new WTinyLfuCache<>(Math.max(1, maxWeightBytes),
+                (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxWeightBytes / AVERAGE_ENTRY_BYTES)),
+                (uuid, entry) -> 64 + stringBytes(uuid) + estimateBytes(entry.profile().teacher()));
+
+        this.hits = Counter.builder("teachers.profile.cache.requests")
+                .description("Teacher profile lookups by uuid")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("teachers.profile.cache.requests")
+                .description("Teacher profile lookups by uuid")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("teachers.profile.cache.evictions", cache, WTinyLfuCache::evictionCount)
+                .description("Teacher profiles evicted to stay within the size bound")
+                .register(meterRegistry);
+        Gauge.builder("teachers.profile.cache.size", cache, WTinyLfuCache::size)
+                .register(meterRegistry);
+        Gauge.builder("teachers.profile.cache.weight", cache, WTinyLfuCache::weightedSize)
+                .description("Estimated heap bytes of the cached profiles")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached profile, or the one {@code loader} returns, which is then cached.
+     * Exceptions of the loader are thrown as they are and nothing is cached.
+     *
+     * @param notOlderThan  a version of the teacher already read, e.g. to answer with its ETag:
+     *                      an older cached profile is reloaded. Null accepts any.
+     */
+    public <E extends Exception> Profile get(String uuid, Instant notOlderThan, Loader<E> loader) throws E {
+        if (!enabled) return loader.load();
+
+        Entry cached = cache.get(uuid);
+        if (cached != null && System.nanoTime() - cached.expiresAtNanos() < 0
+                && !cached.profile().olderThan(notOlderThan)) {
+            hits.increment();
+            return cached.profile();
+        }
+        misses.increment();
+
+        long loadGeneration;
+        synchronized (writeLock) {
+            loadGeneration = generation;
+        }
+        Profile loaded = loader.load();
+        synchronized (writeLock) {
+            // An expired or outdated entry is replaced, or dropped when an eviction happened during the load
+            if (generation == loadGeneration) {
+                cache.put(uuid, new Entry(loaded, System.nanoTime() + ttlNanos));
+            } else if (cached != null) {
+                cache.invalidate(uuid);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts the teacher once the current transaction commits, or now without one.
+     */
+    public void evictAfterCommit(String uuid) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(uuid);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(uuid);
+            }
+        });
+    }
+
+    public void evict(String uuid) {
+        synchronized (writeLock) {
+            generation++;
+            cache.invalidate(uuid);
+        }
+        log.debug("Teacher profile with uuid={} evicted", uuid);
+    }
+
+    @FunctionalInterface
+    public interface Loader<E extends Exception> {
+        Profile load() throws E;
+    }
+
+    /**
+     * Rough heap size: object headers and fields, plus two bytes per char of each string
+     * (ignoring compact strings, so it errs on the high side).
+     */
+    static int estimateBytes(TeacherReadOnlyDTO teacher) {
+        int bytes = 4 * 48 + stringBytes(teacher.uuid());
+        UserReadOnlyDTO user = teacher.userReadOnlyDTO();
+        if (user != null) {
+            bytes += stringBytes(user.firstname()) + stringBytes(user.lastname()) + stringBytes(user.vat());
+        }
+        PersonalInfoReadOnlyDTO personalInfo = teacher.personalInfoReadOnlyDTO();
+        if (personalInfo != null) {
+            bytes += stringBytes(personalInfo.amka()) + stringBytes(personalInfo.identityNumber());
+        }
+        return bytes;
+    }
+
+    static int stringBytes(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+}
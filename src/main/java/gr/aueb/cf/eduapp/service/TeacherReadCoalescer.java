@@ -0,0 +1,75 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.cache.SingleFlight;
+import gr.aueb.cf.eduapp.core.exceptions.AppServiceUnavailableException;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherSearchKey;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Request coalescing for teacher reads, see {@link SingleFlight}. When many clients ask for
+ * the same teacher or the same search at the same moment, one query runs and they all get
+ * its result (or its exception). A caller that waited longer than {@code timeout-ms} for
+ * another caller's query gets a 503.
+ * <p>
+ * Published as {@code teachers.reads} metrics: queries executed and callers that shared one.
+ */
+@Service
+public class TeacherReadCoalescer {
+
+    private final SingleFlight<String, TeacherProfileCache.Profile> lookups;
+    private final SingleFlight<TeacherSearchKey, Paginated<TeacherReadOnlyDTO>> searches;
+    private final boolean enabled;
+
+    public TeacherReadCoalescer(@Value("${app.teachers.coalescing.enabled:true}") boolean enabled,
+                                @Value("${app.teachers.coalescing.timeout-ms:5000}") long timeoutMillis,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.lookups = new SingleFlight<>(timeoutMillis);
+        this.searches = new SingleFlight<>(timeoutMillis);
+
+        register(meterRegistry, "uuid", lookups);
+        register(meterRegistry, "search", searches);
+    }
+
+    public <E extends Exception> TeacherProfileCache.Profile getOne(String uuid,
+                                                                    SingleFlight.Call<TeacherProfileCache.Profile, E> call)
+            throws E {
+        return execute(lookups, uuid, call);
+    }
+
+    public Paginated<TeacherReadOnlyDTO> search(TeacherSearchKey key,
+                                                SingleFlight.Call<Paginated<TeacherReadOnlyDTO>, RuntimeException> call) {
+        return execute(searches, key, call);
+    }
+
+    private <K, V, E extends Exception> V execute(SingleFlight<K, V> flight, K key, SingleFlight.Call<V, E> call)
+            throws E {
+        if (!enabled) return call.call();
+        try {
+            return flight.execute(key, call);
+        } catch (TimeoutException e) {
+            throw new AppServiceUnavailableException("TeacherRead", "Timed out waiting for an identical request", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppServiceUnavailableException("TeacherRead", "Interrupted waiting for an identical request", 1);
+        }
+    }
+
+    private static void register(MeterRegistry meterRegistry, String operation, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("teachers.reads", flight, SingleFlight::executionCount)
+                .description("Teacher reads, by whether they ran a query or shared the one of a concurrent identical read")
+                .tags("operation", operation, "result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("teachers.reads", flight, SingleFlight::sharedCount)
+                .description("Teacher reads, by whether they ran a query or shared the one of a concurrent identical read")
+                .tags("operation", operation, "result", "shared")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,148 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.cache.WTinyLfuCache;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherSearchKey;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Result pages of teacher searches by {@link TeacherSearchKey}, bounded by the estimated heap
+ * size of the pages ({@code max-weight-bytes}, 0 disables it). A hit runs neither the page
+ * query nor the count.
+ * <p>
+ * Every teacher write bumps a generation once it commits and pages of older generations are
+ * not served, so one write invalidates all pages at once and a page loaded while a write
+ * committed is never served after it. Pages are also served for at most {@code ttl-ms}, to cover
+ * writes made by other instances. Lookups are published as {@code teachers.search.cache.*} metrics.
+ */
+@Service
+@Slf4j
+public class TeacherSearchCache {
+
+    // Assumed average page size, sizes the frequency sketch
+    private static final int AVERAGE_ENTRY_BYTES = 8192;
+
+    private record Entry(Paginated<TeacherReadOnlyDTO> page, long generation, long expiresAtNanos) {}
+
+    private final WTinyLfuCache<TeacherSearchKey, Entry> cache;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public TeacherSearchCache(@Value("${app.teachers.search-cache.max-weight-bytes:16777216}") long maxWeightBytes,
+                              @Value("${app.teachers.search-cache.ttl-ms:30000}") long ttlMillis,
+                              MeterRegistry meterRegistry) {
+        this.enabled = maxWeightBytes > 0 && ttlMillis > 0;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.cache = new WTinyLfuCache<>(Math.max(1, maxWeightBytes),
+                (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxWeightBytes / AVERAGE_ENTRY_BYTES)),
+                TeacherSearchCache::estimateBytes);
+
+        this.hits = Counter.builder("teachers.search.cache.requests")
+                .description("Teacher searches served from the search cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("teachers.search.cache.requests")
+                .description("Teacher searches served from the search cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("teachers.search.cache.hit.ratio", this, TeacherSearchCache::hitRatio)
+                .description("Share of teacher searches served from the search cache since startup")
+                .register(meterRegistry);
+        FunctionCounter.builder("teachers.search.cache.evictions", cache, WTinyLfuCache::evictionCount)
+                .description("Search pages evicted to stay within the size bound")
+                .register(meterRegistry);
+        Gauge.builder("teachers.search.cache.size", cache, WTinyLfuCache::size)
+                .register(meterRegistry);
+        Gauge.builder("teachers.search.cache.weight", cache, WTinyLfuCache::weightedSize)
+                .description("Estimated heap bytes of the cached pages")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached page of the search, or the one {@code loader} returns, which is then cached.
+     * Exceptions of the loader are thrown as they are and nothing is cached.
+     */
+    public <E extends Exception> Paginated<TeacherReadOnlyDTO> get(TeacherSearchKey key, Loader<E> loader) throws E {
+        if (!enabled) return loader.load();
+
+        long loadGeneration = generation.get();
+        Entry entry = cache.get(key);
+        if (entry != null && entry.generation() == loadGeneration && System.nanoTime() - entry.expiresAtNanos() < 0) {
+            hits.increment();
+            return entry.page();
+        }
+        misses.increment();
+
+        Paginated<TeacherReadOnlyDTO> loaded = loader.load();
+        // Stale pages are replaced, or dropped when a write committed during the load
+        if (generation.get() == loadGeneration) {
+            cache.put(key, new Entry(loaded, loadGeneration, System.nanoTime() + ttlNanos));
+        } else if (entry != null) {
+            cache.invalidate(key);
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalidates all pages once the current transaction commits, or now without one.
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAll();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateAll();
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        long current = generation.incrementAndGet();
+        log.debug("Teacher search pages invalidated, generation={}", current);
+    }
+
+    @FunctionalInterface
+    public interface Loader<E extends Exception> {
+        Paginated<TeacherReadOnlyDTO> load() throws E;
+    }
+
+    private double hitRatio() {
+        double requests = hits.count() + misses.count();
+        return requests == 0 ? 0 : hits.count() / requests;
+    }
+
+    /**
+     * Rough heap size: the key, the page and its list, plus each teacher as the profile cache sizes it.
+     */
+    private static int estimateBytes(TeacherSearchKey key, Entry entry) {
+        int bytes = 4 * 48 + TeacherProfileCache.stringBytes(key.filter().uuid())
+                + TeacherProfileCache.stringBytes(key.filter().userVat())
+                + TeacherProfileCache.stringBytes(key.filter().userAmka())
+                + TeacherProfileCache.stringBytes(key.sortBy());
+        if (entry.page().getData() != null) {
+            bytes += 16 + 8 * entry.page().getData().size();
+            for (TeacherReadOnlyDTO teacher : entry.page().getData()) {
+                bytes += TeacherProfileCache.estimateBytes(teacher);
+            }
+        }
+        return bytes;
+    }
+}
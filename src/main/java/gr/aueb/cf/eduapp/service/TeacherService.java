@@ -1,11 +1,23 @@
 package gr.aueb.cf.eduapp.service;
 
+import gr.aueb.cf.eduapp.authentication.RefreshTokenService;
+import gr.aueb.cf.eduapp.authentication.UserSecurityRegistry;
+import gr.aueb.cf.eduapp.core.UniqueConstraintRegistry;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.KeysetPaginated;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherCursor;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilterKey;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.filters.TeacherSearchKey;
+import gr.aueb.cf.eduapp.core.filters.TeacherSortField;
 import gr.aueb.cf.eduapp.core.specifications.TeacherSpecification;
+import gr.aueb.cf.eduapp.dto.AttachmentFileDTO;
+import gr.aueb.cf.eduapp.dto.ResourceVersionDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
@@ -13,8 +25,11 @@ import gr.aueb.cf.eduapp.mapper.Mapper;
 import gr.aueb.cf.eduapp.model.Attachment;
 import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
 import gr.aueb.cf.eduapp.repository.PersonalInfoRepository;
+import gr.aueb.cf.eduapp.repository.TeacherKeysetRow;
 import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import gr.aueb.cf.eduapp.repository.TeacherVersion;
 import gr.aueb.cf.eduapp.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -22,23 +37,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
 import org.springframework.context.support.ApplicationObjectSupport;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Slf4j
@@ -49,14 +70,37 @@ public class TeacherService implements ITeacherService {
     private final UserRepository userRepository;
     private final PersonalInfoRepository personalInfoRepository;
     private final Mapper mapper;
+    private final UserSecurityRegistry userSecurityRegistry;
+    private final RefreshTokenService refreshTokenService;
+    private final IAvailabilityService availabilityService;
+    private final IAttachmentStorageService attachmentStorageService;
+    private final IUploadService uploadService;
+    private final TeacherCountCache teacherCountCache;
+    private final TeacherProfileCache teacherProfileCache;
+    private final TeacherReadCoalescer teacherReadCoalescer;
+    private final TeacherSearchCache teacherSearchCache;
 
     @Autowired
     public TeacherService(TeacherRepository teacherRepository, UserRepository userRepository,
-                          PersonalInfoRepository personalInfoRepository, Mapper mapper) {
+                          PersonalInfoRepository personalInfoRepository, Mapper mapper,
+                          UserSecurityRegistry userSecurityRegistry, RefreshTokenService refreshTokenService,
+                          IAvailabilityService availabilityService,
+                          IAttachmentStorageService attachmentStorageService, IUploadService uploadService,
+                          TeacherCountCache teacherCountCache, TeacherProfileCache teacherProfileCache,
+                          TeacherReadCoalescer teacherReadCoalescer, TeacherSearchCache teacherSearchCache) {
         this.teacherRepository = teacherRepository;
         this.userRepository = userRepository;
         this.personalInfoRepository = personalInfoRepository;
         this.mapper = mapper;
+        this.userSecurityRegistry = userSecurityRegistry;
+        this.refreshTokenService = refreshTokenService;
+        this.availabilityService = availabilityService;
+        this.attachmentStorageService = attachmentStorageService;
+        this.uploadService = uploadService;
+        this.teacherCountCache = teacherCountCache;
+        this.teacherProfileCache = teacherProfileCache;
+        this.teacherReadCoalescer = teacherReadCoalescer;
+        this.teacherSearchCache = teacherSearchCache;
     }
 
     @Override
@@ -64,52 +108,28 @@ public class TeacherService implements ITeacherService {
     public TeacherReadOnlyDTO saveTeacher(TeacherInsertDTO teacherInsertDTO, MultipartFile amkaFile)
             throws AppObjectAlreadyExists, IOException {
 
-        if (userRepository.findByVat(teacherInsertDTO.userInsertDTO().vat()).isPresent()) {
-            throw new AppObjectAlreadyExists("VAT", "User with vat " + teacherInsertDTO.userInsertDTO().vat() + " already exists");
-        }
-
-        if (personalInfoRepository.findByAmka(teacherInsertDTO.personalInfoInsertDTO().amka()).isPresent()) {
-            throw new AppObjectAlreadyExists("AMKA", "User with AMKA " + teacherInsertDTO.personalInfoInsertDTO().amka() + " already exists");
-        }
-
-        if (userRepository.findByUsername(teacherInsertDTO.userInsertDTO().username()).isPresent()) {
-            throw new AppObjectAlreadyExists("Username", "User with username " + teacherInsertDTO.userInsertDTO().username() + " already exists");
-        }
-
-        if (personalInfoRepository.findByIdentityNumber(teacherInsertDTO.personalInfoInsertDTO().identityNumber()).isPresent()) {
-            throw new AppObjectAlreadyExists("IdentityNumber", "User with identity number " + teacherInsertDTO.personalInfoInsertDTO().identityNumber() + " already exists");
-        }
-
+        // No select-before-insert: vat, username, AMKA and identity number are checked
+        // by their unique constraints on insert, see UniqueConstraintRegistry
         Teacher teacher = mapper.mapToTeacherEntity(teacherInsertDTO);
 
-        if (amkaFile != null && !amkaFile.isEmpty()) {                  // Any non-database operation will NOT be rolled back
-            saveAmkaFile(teacher.getPersonalInfo(), amkaFile);          // change to saveAmkaFileAndGetPath
+        // The blob reference rolls back with the transaction, see IAttachmentStorageService
+        if (amkaFile != null && !amkaFile.isEmpty()) {
+            saveAmkaFile(teacher.getPersonalInfo(), amkaFile);
         }
 
-        // Register cleanup for rollback
-
-        // TransactionSynchronizationManager.registerSynchronization(...) is a Spring transaction hook.
-        // It lets you register a callback (a TransactionSynchronization) that Spring will call when the
-        // current transaction finishes (afterCompletion(status)
-        // either successfully (commit) or unsuccessfully (rollback).
-        // If status == STATUS_COMMITTED → the transaction was committed.
-        //If status == STATUS_ROLLED_BACK → the transaction was rolled back.
-
-//        TransactionSynchronizationManager.registerSynchronization(
-//                (TransactionSynchronization) status -> {
-//                    if (status == STATUS_ROLLED_BACK) {
-//                        try {
-//                            Files.deleteIfExists(filePath);
-//                        } catch (IOException e) {
-//                            throw new UncheckedIOException("Failed to delete file after rollback", e);
-//                        }
-//                    }
-//                }
-//        );
-
         // Saves teacher (cascades to User and PersonalInfo)
-        Teacher savedTeacher = teacherRepository.save(teacher);     // Exception
-
+        Teacher savedTeacher;
+        try {
+            savedTeacher = teacherRepository.saveAndFlush(teacher);
+        } catch (DataIntegrityViolationException e) {
+            // The blob reference rolls back with the transaction, the blob itself is purged when unreferenced
+            throw toAlreadyExists(e, teacherInsertDTO);
+        }
+        availabilityService.registerTakenAfterCommit(teacherInsertDTO.userInsertDTO().username(),
+                teacherInsertDTO.userInsertDTO().vat(), teacherInsertDTO.personalInfoInsertDTO().amka(),
+                teacherInsertDTO.personalInfoInsertDTO().identityNumber());
+        teacherCountCache.invalidateAfterCommit();
+        teacherSearchCache.invalidateAfterCommit();
 
         log.info("Teacher with amka={} saved.", teacherInsertDTO.personalInfoInsertDTO().amka());
         return mapper.mapToTeacherReadOnlyDTO(savedTeacher);
@@ -138,91 +158,246 @@ public class TeacherService implements ITeacherService {
         }
 
         Teacher teacherToUpdate = mapper.mapToTeacherEntity(teacherUpdateDTO);
+
+        // Role or active flag change -> new security version, tokens issued before are rejected
+        User existingUser = existingTeacher.getUser();
+        boolean securityChanged = !Objects.equals(existingUser.getRole(), teacherUpdateDTO.userUpdateDTO().role())
+                || !Objects.equals(existingUser.getIsActive(), teacherUpdateDTO.isActive());
+        if (securityChanged) {
+            userRepository.incrementSecurityVersion(existingUser.getId());
+            userSecurityRegistry.evictAfterCommit(existingUser.getId());
+        }
+        // Deactivated -> signed out of every session, as with a forced sign-out
+        if (Boolean.TRUE.equals(existingUser.getIsActive()) && !Boolean.TRUE.equals(teacherUpdateDTO.isActive())) {
+            refreshTokenService.revokeAll(existingUser.getId());
+        }
         if (amkaFile != null && !amkaFile.isEmpty()) {
-            Files.deleteIfExists(Paths.get(existingTeacher.getPersonalInfo().getAmkaFile().getFilePath()));
-            saveAmkaFile(teacherToUpdate.getPersonalInfo(), amkaFile);          // change to saveAmkaFileAndGetPath
+            // Released in this transaction: the old file stays if the update fails
+            attachmentStorageService.release(existingTeacher.getPersonalInfo().getAmkaFile());
+            saveAmkaFile(teacherToUpdate.getPersonalInfo(), amkaFile);
         }
 
-        // Register cleanup for rollback
-//        TransactionSynchronizationManager.registerSynchronization(
-//                (TransactionSynchronization) status -> {
-//                    if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
-//                        try {
-//                            Files.deleteIfExists(filePath);                   // get file path from above
-//                        } catch (IOException e) {
-//                            throw new UncheckedIOException("Failed to delete file after rollback", e);
-//                        }
-//                    }
-//                }
-//        );
-
         // Saves teacher (cascades to User and PersonalInfo)
         Teacher updatedTeacher = teacherRepository.save(teacherToUpdate);
+        availabilityService.registerTakenAfterCommit(teacherUpdateDTO.userUpdateDTO().username(),
+                teacherUpdateDTO.userUpdateDTO().vat(), teacherUpdateDTO.personalInfoUpdateDTO().amka(),
+                teacherUpdateDTO.personalInfoUpdateDTO().identityNumber());
+        // Vat, AMKA and the active flag are filters, so counts may change
+        teacherCountCache.invalidateAfterCommit();
+        teacherSearchCache.invalidateAfterCommit();
+        teacherProfileCache.evictAfterCommit(existingTeacher.getUuid());
         log.info("Teacher with id={} saved.", teacherUpdateDTO.personalInfoUpdateDTO().id());
         return mapper.mapToTeacherReadOnlyDTO(updatedTeacher);
     }
 
     @Override
     public TeacherReadOnlyDTO getOneTeacher(String uuid) throws AppObjectNotFoundException {
-        return teacherRepository
-                .findByUuid(uuid)
-                .map(mapper::mapToTeacherReadOnlyDTO)
-                .orElseThrow(() ->
-                    new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+        return getOneTeacher(uuid, null);
+    }
+
+    @Override
+    public TeacherReadOnlyDTO getOneTeacher(String uuid, Instant notOlderThan) throws AppObjectNotFoundException {
+        return teacherProfileCache.get(uuid, notOlderThan, () -> {
+            // Cache misses for the same teacher at the same moment share one query, which may
+            // have started before the write the caller's version comes from
+            TeacherProfileCache.Profile profile = teacherReadCoalescer.getOne(uuid, () -> loadProfile(uuid));
+            return profile.olderThan(notOlderThan) ? loadProfile(uuid) : profile;
+        }).teacher();
+    }
+
+    private TeacherProfileCache.Profile loadProfile(String uuid) throws AppObjectNotFoundException {
+        Teacher teacher = teacherRepository.findByUuid(uuid)
+                .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+        PersonalInfo personalInfo = teacher.getPersonalInfo();
+        LocalDateTime lastModified = new TeacherVersion(teacher.getUpdatedAt(), teacher.getUser().getUpdatedAt(),
+                personalInfo == null ? null : personalInfo.getUpdatedAt()).lastModified();
+        return new TeacherProfileCache.Profile(mapper.mapToTeacherReadOnlyDTO(teacher),
+                lastModified == null ? null : toInstant(lastModified));
+    }
+
+    @Override
+    public ResourceVersionDTO getTeacherVersion(String uuid) throws AppObjectNotFoundException {
+        LocalDateTime lastModified = teacherRepository.findVersionByUuid(uuid)
+                .map(TeacherVersion::lastModified)
+                .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+        // Every write moves updated_at forward, and the uuid is in the URL, so the time alone tells versions apart
+        return new ResourceVersionDTO("\"" + versionTag(lastModified) + "\"", toInstant(lastModified));
+    }
+
+    @Override
+    public AttachmentFileDTO getAmkaFile(String uuid) throws AppObjectNotFoundException {
+        Teacher teacher = teacherRepository.findByUuid(uuid)
+                .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+
+        Attachment amkaFile = teacher.getPersonalInfo() == null ? null : teacher.getPersonalInfo().getAmkaFile();
+        if (amkaFile == null) {
+            throw new AppObjectNotFoundException("Attachment", "Teacher with uuid:" + uuid + " has no AMKA file");
+        }
+
+        BlobLocation location = attachmentStorageService.resolve(amkaFile).orElse(null);
+        if (location == null) {
+            log.error("AMKA file of teacher with uuid={} missing from storage, attachment id={}", uuid, amkaFile.getId());
+            throw new AppObjectNotFoundException("Attachment", "AMKA file of teacher with uuid:" + uuid + " not found");
+        }
+
+        String eTag = amkaFile.getContentHash() != null ? amkaFile.getContentHash() : amkaFile.getSavedName();
+        return new AttachmentFileDTO(amkaFile.getFilename(), amkaFile.getContentType(), eTag,
+                location.file(), location.offset(), location.length(), location.reader());
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public TeacherReadOnlyDTO attachAmkaUpload(String uuid, String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException {
+        Teacher teacher = teacherRepository.findByUuid(uuid)
+                .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+
+        Attachment amkaFile = uploadService.completeUpload(uploadId, owner);
+        attachmentStorageService.release(teacher.getPersonalInfo().getAmkaFile());
+        teacher.getPersonalInfo().setAmkaFile(amkaFile);
+
+        Teacher updatedTeacher = teacherRepository.save(teacher);
+        log.info("AMKA file of teacher with uuid={} replaced by upload {}", uuid, uploadId);
+        return mapper.mapToTeacherReadOnlyDTO(updatedTeacher);
     }
 
     @Override
 //    public Page<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size) {
-    public Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size) {
+    public Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size, CountMode count) {
         String defaultSort = "id";
         Pageable pageable = PageRequest.of(page, size, Sort.by(defaultSort).ascending());
         log.debug("Paginated teachers were returned successfully with page={} and size={}", page, size);
 //        return teacherRepository.findAll(pageable).map(mapper::mapToTeacherReadOnlyDTO);
-        var paginatedTeachers = teacherRepository.findAll(pageable);
-        return Paginated.fromPage(paginatedTeachers.map(mapper::mapToTeacherReadOnlyDTO));
+        return paginate(TeacherFilterKey.UNFILTERED, Specification.unrestricted(), pageable, count);
     }
 
     @Override
     public Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters) {
-        var filtered = teacherRepository.findAll(getSpecsFromFilters(teacherFilters), teacherFilters.getPageable());
+        CountMode count = Objects.requireNonNullElse(teacherFilters.getCount(), CountMode.EXACT);
+        TeacherSearchKey key = TeacherSearchKey.of(teacherFilters, count);
+        // Cache misses for the same search at the same moment share one query
+        var filtered = teacherSearchCache.get(key, () -> teacherReadCoalescer.search(key,
+                () -> paginate(key.filter(), getSpecsFromFilters(teacherFilters), teacherFilters.getPageable(), count)));
         log.debug("Filtered and paginated teachers were returned successfully with page={} and size={}", teacherFilters.getPage(),
                 teacherFilters.getPageSize());
 //        return new Paginated<>(filtered.map(mapper::mapToTeacherReadOnlyDTO));
-        return Paginated.fromPage(filtered.map(mapper::mapToTeacherReadOnlyDTO));
+        return filtered;
     }
 
+    @Override
+    public ResourceVersionDTO getPaginatedTeachersVersion(int page, int size, CountMode count) {
+        return collectionVersion("teachers?page=" + page + "&size=" + size + "&count=" + count);
+    }
 
-    private void saveAmkaFile(PersonalInfo personalInfo, MultipartFile amkaFile)
-            throws IOException {
+    @Override
+    public ResourceVersionDTO getTeachersFilteredVersion(TeacherFilters teacherFilters) {
+        CountMode count = Objects.requireNonNullElse(teacherFilters.getCount(), CountMode.EXACT);
+        return collectionVersion(TeacherSearchKey.of(teacherFilters, count).toString());
+    }
 
-        String originalFilename = amkaFile.getOriginalFilename();
-        String savedName = UUID.randomUUID().toString() + getFileExtension(originalFilename);
+    /**
+     * The latest write to any teacher, plus a digest of the page asked for, since search
+     * pages of different filters share a URL.
+     */
+    private ResourceVersionDTO collectionVersion(String listing) {
+        LocalDateTime lastModified = teacherRepository.findLatestVersion().lastModified();
+        String digest = DigestUtils.md5DigestAsHex(listing.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        String version = lastModified == null ? "0" : versionTag(lastModified);
+        return new ResourceVersionDTO("W/\"" + version + "-" + digest + "\"",
+                lastModified == null ? null : toInstant(lastModified));
+    }
 
-        String uploadDirectory = "uploads/";
-        Path filePath = Paths.get(uploadDirectory + savedName);
+    // Microseconds, the precision of the updated_at columns, in base 36
+    private static String versionTag(LocalDateTime lastModified) {
+        long micros = lastModified.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastModified.getNano() / 1_000;
+        return Long.toString(micros, 36);
+    }
 
-        Files.createDirectories(filePath.getParent());
-//        Files.write(filePath, amkaFile.getBytes());
-        amkaFile.transferTo(filePath);  // safe for large files, more efficient
+    // Auditing stamps updated_at with the local time of the server
+    private static Instant toInstant(LocalDateTime lastModified) {
+        return lastModified.atZone(ZoneId.systemDefault()).toInstant();
+    }
 
-        Attachment attachment = new Attachment();
-        attachment.setFilename(originalFilename);
-        attachment.setSavedName(savedName);
-        attachment.setFilePath(filePath.toString());
-        attachment.setContentType(amkaFile.getContentType());
-        attachment.setExtension(getFileExtension(originalFilename));
+    private Paginated<TeacherReadOnlyDTO> paginate(TeacherFilterKey key, Specification<Teacher> specification,
+                                                   Pageable pageable, CountMode count) {
+        List<TeacherReadOnlyDTO> content = teacherRepository.findReadOnlyDTOs(specification, pageable);
+        if (count == CountMode.NONE) return Paginated.withoutTotal(content, pageable);
+        // The count is skipped when the page itself shows the total (first or last page)
+        return Paginated.fromPage(PageableExecutionUtils.getPage(content, pageable,
+                () -> teacherCountCache.count(key, specification, count)));
+    }
 
-        personalInfo.setAmkaFile(attachment);
-        log.info("Attachment for teacher with amka={} saved", personalInfo.getAmka());
+    @Override
+    public KeysetPaginated<TeacherReadOnlyDTO> getTeachersKeysetPaginated(TeacherFilters teacherFilters)
+            throws AppObjectInvalidArgumentException {
+        TeacherSortField sortField = TeacherSortField.of(teacherFilters.getSortBy())
+                .orElseThrow(() -> new AppObjectInvalidArgumentException("Sort",
+                        "Teachers cannot be sorted by " + teacherFilters.getSortBy()));
+        Sort.Direction direction = teacherFilters.getSortDirection();
+        TeacherCursor after = decodeCursor(teacherFilters.getCursor(), sortField, direction);
+
+        int pageSize = teacherFilters.getPageSize();
+        Specification<Teacher> specification = getSpecsFromFilters(teacherFilters);
+        // One row more than the page tells whether there is a next page, without a count
+        List<TeacherKeysetRow> rows = teacherRepository.findReadOnlyDTOsAfter(specification, sortField, direction,
+                after, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) rows = rows.subList(0, pageSize);
+
+        String nextCursor = null;
+        if (hasNext) {
+            TeacherKeysetRow last = rows.get(rows.size() - 1);
+            nextCursor = new TeacherCursor(sortField, direction, last.teacher().id(), last.sortValue()).encode();
+        }
+        Long total = teacherCountCache.count(TeacherFilterKey.of(teacherFilters), specification,
+                Objects.requireNonNullElse(teacherFilters.getCount(), CountMode.NONE));
+        log.debug("Keyset page of teachers returned with sortBy={} and size={}", sortField.getPath(), pageSize);
+
+        return KeysetPaginated.<TeacherReadOnlyDTO>builder()
+                .data(rows.stream().map(TeacherKeysetRow::teacher).toList())
+                .pageSize(pageSize)
+                .numberOfElements(rows.size())
+                .nextCursor(nextCursor)
+                .totalElements(total)
+                .build();
     }
 
-    private String getFileExtension(String filename) {
-        if (filename != null && filename.contains(".")) {
-            return filename.substring(filename.lastIndexOf("."));
+    private static TeacherCursor decodeCursor(String token, TeacherSortField sortField, Sort.Direction direction)
+            throws AppObjectInvalidArgumentException {
+        if (token == null || token.isBlank()) return null;
+        TeacherCursor cursor;
+        try {
+            cursor = TeacherCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Cursor is malformed");
+        }
+        if (cursor.sortField() != sortField || cursor.direction() != direction) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Cursor was issued for another sort");
         }
-        return "";
+        return cursor;
+    }
+
+
+    private void saveAmkaFile(PersonalInfo personalInfo, MultipartFile amkaFile)
+            throws IOException {
+
+        // Content-addressed: an identical file already stored is referenced, not written again
+        personalInfo.setAmkaFile(attachmentStorageService.store(amkaFile));
+        log.info("Attachment for teacher with amka={} saved", personalInfo.getAmka());
     }
 
+    private AppObjectAlreadyExists toAlreadyExists(DataIntegrityViolationException e, TeacherInsertDTO dto) {
+        UniqueConstraintRegistry.UniqueField field = UniqueConstraintRegistry.resolve(e).orElseThrow(() -> e);
+        String value = switch (field.code()) {
+            case "VAT" -> dto.userInsertDTO().vat();
+            case "Username" -> dto.userInsertDTO().username();
+            case "AMKA" -> dto.personalInfoInsertDTO().amka();
+            case "IdentityNumber" -> dto.personalInfoInsertDTO().identityNumber();
+            default -> "";
+        };
+        return new AppObjectAlreadyExists(field.code(), "User with " + field.label() + " " + value + " already exists");
+    }
 
     private Specification<Teacher> getSpecsFromFilters(TeacherFilters teacherFilters) {
         return TeacherSpecification.trStringFieldLike("uuid", teacherFilters.getUuid())
@@ -0,0 +1,305 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.dto.UploadSessionInsertDTO;
+import gr.aueb.cf.eduapp.dto.UploadSessionReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.model.UploadSession;
+import gr.aueb.cf.eduapp.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Every upload has a partial file of its full size (sparse until written), and every chunk
+ * is streamed from the request straight to its offset in that file: nothing is buffered
+ * whole or spooled to a temporary file. On completion the partial file is hashed and
+ * copied into attachment storage (see {@link IAttachmentStorageService#store(Path, String, String)}),
+ * and deleted once the completion commits.
+ * <p>
+ * No transaction is open while a chunk is transferred, so slow clients hold no database
+ * connection. Instead every write is counted on the session row before it starts and until it
+ * ends, and completion is refused while writes are counted: the partial file does not change
+ * while it is hashed and copied. A write that starts during a completion waits for its row lock
+ * and then finds no session. Every write stops at {@code chunk-timeout-ms}, so the count of a
+ * writer that died is ignored after that. A chunk is recorded as received only once it has been
+ * written completely. Uploads not completed before they expire are deleted with their partial file.
+ */
+@Service
+@Slf4j
+public class UploadService implements IUploadService {
+
+    private static final int PURGE_BATCH_SIZE = 500;
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final IAttachmentStorageService attachmentStorageService;
+    private final AttachmentLayout layout;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxSize;
+    private final int defaultChunkSize;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long sessionTtlMillis;
+    private final long chunkTimeoutMillis;
+
+    public UploadService(UploadSessionRepository uploadSessionRepository,
+                         IAttachmentStorageService attachmentStorageService, AttachmentLayout layout,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.uploads.max-size:104857600}") long maxSize,
+                         @Value("${app.uploads.chunk-size:1048576}") int defaultChunkSize,
+                         @Value("${app.uploads.min-chunk-size:65536}") int minChunkSize,
+                         @Value("${app.uploads.max-chunk-size:8388608}") int maxChunkSize,
+                         @Value("${app.uploads.session-ttl-ms:86400000}") long sessionTtlMillis,
+                         @Value("${app.uploads.chunk-timeout-ms:600000}") long chunkTimeoutMillis) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.attachmentStorageService = attachmentStorageService;
+        this.layout = layout;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxSize = maxSize;
+        this.defaultChunkSize = defaultChunkSize;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.sessionTtlMillis = sessionTtlMillis;
+        this.chunkTimeoutMillis = chunkTimeoutMillis;
+    }
+
+    @Override
+    public UploadSessionReadOnlyDTO createUpload(UploadSessionInsertDTO dto, String owner)
+            throws AppObjectInvalidArgumentException, IOException {
+        if (dto.size() > maxSize) {
+            throw new AppObjectInvalidArgumentException("Upload", "Upload size " + dto.size()
+                    + " exceeds the maximum of " + maxSize + " bytes");
+        }
+
+        int chunkSize = dto.chunkSize() == null ? defaultChunkSize
+                : Math.max(minChunkSize, Math.min(maxChunkSize, dto.chunkSize()));
+        UploadSession session = new UploadSession(owner, dto.filename(), dto.contentType(), dto.size(), chunkSize,
+                LocalDateTime.now().plusNanos(sessionTtlMillis * 1_000_000L));
+
+        Path file = layout.partialUploadPath(session.getUuid());
+        Files.createDirectories(file.getParent());
+        try (RandomAccessFile partial = new RandomAccessFile(file.toFile(), "rw")) {
+            partial.setLength(dto.size());
+        }
+
+        UploadSession saved = uploadSessionRepository.save(session);
+        log.info("Upload {} of {} bytes in {} chunks created by {}", saved.getUuid(), saved.getSize(),
+                saved.getChunkCount(), owner);
+        return toReadOnlyDTO(saved);
+    }
+
+    @Override
+    public UploadSessionReadOnlyDTO getUpload(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        return toReadOnlyDTO(find(uploadId, owner));
+    }
+
+    @Override
+    public UploadSessionReadOnlyDTO writeChunk(String uploadId, int chunk, InputStream content, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException {
+        UploadSession session = find(uploadId, owner);
+        if (chunk < 0 || chunk >= session.getChunkCount()) {
+            throw new AppObjectInvalidArgumentException("Chunk", "Chunk " + chunk + " out of range, upload "
+                    + uploadId + " has " + session.getChunkCount() + " chunks");
+        }
+
+        // Taken before the start is recorded: the write ends before the start plus the timeout
+        long deadline = System.nanoTime() + chunkTimeoutMillis * 1_000_000L;
+        Integer started = transactionTemplate.execute(tx -> uploadSessionRepository.startWrite(uploadId, LocalDateTime.now()));
+        if (started == null || started == 0) throw notFound(uploadId);        // completed or cancelled meanwhile
+
+        try {
+            write(uploadId, chunk, content, session.chunkOffset(chunk), session.chunkLength(chunk), deadline);
+
+            UploadSessionReadOnlyDTO status;
+            try {
+                // Added to the loaded collection, not merged: chunks recorded meanwhile by other requests are kept
+                status = transactionTemplate.execute(tx -> uploadSessionRepository.findById(uploadId)
+                        .map(current -> {
+                            current.getReceivedChunks().add(chunk);
+                            return toReadOnlyDTO(current);
+                        })
+                        .orElse(null));
+            } catch (DataIntegrityViolationException e) {
+                // The same chunk recorded concurrently by a retry
+                return getUpload(uploadId, owner);
+            }
+            if (status == null) throw notFound(uploadId);       // cancelled or expired meanwhile
+            return status;
+        } finally {
+            // Only once the chunk is recorded: completion sees the write or the chunk, never neither
+            transactionTemplate.executeWithoutResult(tx -> uploadSessionRepository.endWrite(uploadId));
+        }
+    }
+
+    @Override
+    public void cancelUpload(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        uploadSessionRepository.delete(find(uploadId, owner));
+        deletePartialFile(uploadId);
+        log.info("Upload {} cancelled", uploadId);
+    }
+
+    @Override
+    public Attachment completeUpload(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException,
+            IOException {
+        UploadSession session = uploadSessionRepository.findByUuidForUpdate(uploadId)
+                .orElseThrow(() -> notFound(uploadId));
+        check(session, owner);
+
+        if (session.getActiveWrites() > 0 && LocalDateTime.now()
+                .isBefore(session.getLastWriteStartedAt().plusNanos(chunkTimeoutMillis * 1_000_000L))) {
+            throw new AppObjectInvalidArgumentException("Upload", "Upload " + uploadId
+                    + " has chunks still being written");
+        }
+
+        List<Integer> missingChunks = missingChunks(session);
+        if (!missingChunks.isEmpty()) {
+            throw new AppObjectInvalidArgumentException("Upload", "Upload " + uploadId + " is missing "
+                    + missingChunks.size() + " of " + session.getChunkCount() + " chunks");
+        }
+
+        Attachment attachment = attachmentStorageService.store(layout.partialUploadPath(uploadId),
+                session.getFilename(), session.getContentType());
+        uploadSessionRepository.delete(session);
+        deletePartialFileAfterCommit(uploadId);
+        log.info("Upload {} completed, {} bytes", uploadId, session.getSize());
+        return attachment;
+    }
+
+    /**
+     * Deletes uploads past their expiry, with their partial files.
+     *
+     * @return the number of uploads deleted
+     */
+    @Scheduled(initialDelayString = "${app.uploads.purge-interval-ms:3600000}",
+            fixedDelayString = "${app.uploads.purge-interval-ms:3600000}")
+    public int purgeExpired() {
+        List<String> expired = uploadSessionRepository.findExpired(LocalDateTime.now(), PageRequest.of(0, PURGE_BATCH_SIZE));
+
+        int purged = 0;
+        for (String uploadId : expired) {
+            transactionTemplate.executeWithoutResult(status ->
+                    uploadSessionRepository.findById(uploadId).ifPresent(uploadSessionRepository::delete));
+            deletePartialFile(uploadId);
+            purged++;
+        }
+
+        if (purged > 0) log.info("{} expired uploads purged", purged);
+        return purged;
+    }
+
+    private UploadSession find(String uploadId, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        UploadSession session = uploadSessionRepository.findById(uploadId).orElseThrow(() -> notFound(uploadId));
+        check(session, owner);
+        return session;
+    }
+
+    private static void check(UploadSession session, String owner)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException {
+        if (session.isExpired()) {
+            throw notFound(session.getUuid());
+        }
+        if (!session.getOwner().equals(owner)) {
+            throw new AppObjectNotAuthorizedException("Upload", "Upload " + session.getUuid()
+                    + " belongs to another user");
+        }
+    }
+
+    private static AppObjectNotFoundException notFound(String uploadId) {
+        return new AppObjectNotFoundException("Upload", "Upload with id:" + uploadId + " not found");
+    }
+
+    private static List<Integer> missingChunks(UploadSession session) {
+        return IntStream.range(0, session.getChunkCount())
+                .filter(chunk -> !session.getReceivedChunks().contains(chunk))
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * Writes the chunk at its offset, reading the request piece by piece. Nothing is written after
+     * the deadline, however slowly the client sends.
+     */
+    private void write(String uploadId, int chunk, InputStream content, long offset, long length, long deadline)
+            throws AppObjectInvalidArgumentException, IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_BUFFER_SIZE, length));
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(layout.partialUploadPath(uploadId), StandardOpenOption.WRITE)) {
+            ReadableByteChannel in = Channels.newChannel(content);
+            while (written < length) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - written));
+                if (in.read(buffer) < 0) break;         // end of the request body
+                if (System.nanoTime() - deadline > 0) {
+                    throw new AppObjectInvalidArgumentException("Chunk", "Chunk " + chunk + " of upload " + uploadId
+                            + " not received within " + chunkTimeoutMillis + " ms");
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, offset + written);
+                }
+            }
+        }
+        if (written != length || content.read() != -1) {
+            throw new AppObjectInvalidArgumentException("Chunk", "Chunk " + chunk + " of upload " + uploadId
+                    + " must be " + length + " bytes");
+        }
+    }
+
+    private static UploadSessionReadOnlyDTO toReadOnlyDTO(UploadSession session) {
+        return new UploadSessionReadOnlyDTO(session.getUuid(), session.getFilename(), session.getSize(),
+                session.getChunkSize(), session.getChunkCount(), missingChunks(session), session.getExpiresAt());
+    }
+
+    /**
+     * The partial file is still needed if the completion rolls back: deleted once it commits,
+     * or now without a transaction.
+     */
+    private void deletePartialFileAfterCommit(String uploadId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deletePartialFile(uploadId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deletePartialFile(uploadId);
+            }
+        });
+    }
+
+    private void deletePartialFile(String uploadId) {
+        try {
+            Files.deleteIfExists(layout.partialUploadPath(uploadId));
+        } catch (IOException e) {
+            log.warn("Partial file of upload {} could not be deleted", uploadId, e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- Keyset pagination seeks on (sort key, id) instead of skipping OFFSET rows, which only
+-- pays off when an index starts with the sort key. uuid, vat, amka and identity_number
+-- already have unique indexes and lastname has idx_users_lastname.
+CREATE INDEX idx_teachers_created_at_id ON teachers(created_at, id);
+CREATE INDEX idx_teachers_updated_at_id ON teachers(updated_at, id);
+CREATE INDEX idx_users_firstname ON users(firstname);
@@ -0,0 +1,4 @@
+-- Collection validators of the teacher listings read max(updated_at) of each table,
+-- which is a single index seek with these (teachers has idx_teachers_updated_at_id).
+CREATE INDEX idx_users_updated_at ON users(updated_at);
+CREATE INDEX idx_personal_information_updated_at ON personal_information(updated_at);
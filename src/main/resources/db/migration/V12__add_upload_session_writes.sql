@@ -0,0 +1,4 @@
+-- Chunk writes in progress per upload, and when the latest one started: completion waits for them
+-- (see UploadService). A count left behind by a crashed writer stops counting once the chunk timeout passes.
+ALTER TABLE upload_sessions ADD COLUMN active_writes INT NOT NULL DEFAULT 0;
+ALTER TABLE upload_sessions ADD COLUMN last_write_started_at DATETIME(6) NULL;
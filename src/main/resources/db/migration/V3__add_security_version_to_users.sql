@@ -0,0 +1,4 @@
+-- Per-user security version. Embedded in every access token as the "ver" claim.
+-- Incremented whenever the role or the active flag of the user changes,
+-- which invalidates all tokens issued before the change.
+ALTER TABLE users ADD COLUMN security_version BIGINT NOT NULL DEFAULT 0;
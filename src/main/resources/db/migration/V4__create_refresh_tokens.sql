@@ -0,0 +1,16 @@
+-- Rotating refresh tokens. Only the SHA-256 hash of the token is stored,
+-- looked up through the unique index on token_hash.
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    token_hash  VARCHAR(64) NOT NULL,
+    user_id     BIGINT      NOT NULL,
+    expires_at  DATETIME(6) NOT NULL,
+    revoked_at  DATETIME(6) NULL,
+    created_at  DATETIME(6) NOT NULL,
+    updated_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens(expires_at);
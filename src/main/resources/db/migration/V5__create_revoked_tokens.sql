@@ -0,0 +1,12 @@
+-- Access tokens revoked before expiry (logout), keyed by the token's jti.
+-- Rows are deleted once expires_at has passed.
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti         VARCHAR(36) NOT NULL,
+    user_id     BIGINT      NULL,
+    expires_at  DATETIME(6) NOT NULL,
+    created_at  DATETIME(6) NOT NULL,
+    updated_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (jti)
+);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
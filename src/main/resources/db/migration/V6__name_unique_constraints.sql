@@ -0,0 +1,48 @@
+-- Gives the unique constraints on users and personal_information stable names, so that
+-- a duplicate key error can be mapped back to its field (see UniqueConstraintRegistry).
+-- The existing indexes were created by Hibernate with generated names (UK...), so each one
+-- is looked up in information_schema and renamed, or created if it does not exist.
+
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'username'
+               AND non_unique = 0 AND seq_in_index = 1 AND index_name <> 'PRIMARY' LIMIT 1);
+SET @ddl := CASE
+    WHEN @idx IS NULL THEN 'ALTER TABLE users ADD CONSTRAINT uk_users_username UNIQUE (username)'
+    WHEN @idx = 'uk_users_username' THEN 'DO 0'
+    ELSE CONCAT('ALTER TABLE users RENAME INDEX `', @idx, '` TO uk_users_username') END;
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'vat'
+               AND non_unique = 0 AND seq_in_index = 1 AND index_name <> 'PRIMARY' LIMIT 1);
+SET @ddl := CASE
+    WHEN @idx IS NULL THEN 'ALTER TABLE users ADD CONSTRAINT uk_users_vat UNIQUE (vat)'
+    WHEN @idx = 'uk_users_vat' THEN 'DO 0'
+    ELSE CONCAT('ALTER TABLE users RENAME INDEX `', @idx, '` TO uk_users_vat') END;
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'personal_information' AND column_name = 'amka'
+               AND non_unique = 0 AND seq_in_index = 1 AND index_name <> 'PRIMARY' LIMIT 1);
+SET @ddl := CASE
+    WHEN @idx IS NULL THEN 'ALTER TABLE personal_information ADD CONSTRAINT uk_personal_information_amka UNIQUE (amka)'
+    WHEN @idx = 'uk_personal_information_amka' THEN 'DO 0'
+    ELSE CONCAT('ALTER TABLE personal_information RENAME INDEX `', @idx, '` TO uk_personal_information_amka') END;
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'personal_information' AND column_name = 'identity_number'
+               AND non_unique = 0 AND seq_in_index = 1 AND index_name <> 'PRIMARY' LIMIT 1);
+SET @ddl := CASE
+    WHEN @idx IS NULL THEN 'ALTER TABLE personal_information ADD CONSTRAINT uk_personal_information_identity_number UNIQUE (identity_number)'
+    WHEN @idx = 'uk_personal_information_identity_number' THEN 'DO 0'
+    ELSE CONCAT('ALTER TABLE personal_information RENAME INDEX `', @idx, '` TO uk_personal_information_identity_number') END;
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,42 @@
+-- Pooled table id generation for all entities (see IdSequences), replacing AUTO_INCREMENT ids.
+-- Ids known before the INSERT let Hibernate batch inserts (hibernate.jdbc.batch_size).
+-- A row holds the last id handed out, so it is seeded with MAX(id):
+-- the first block handed out is MAX(id) + 1 .. MAX(id) + 50.
+-- The AUTO_INCREMENT attribute of the id columns is left in place, it is simply not used anymore.
+CREATE TABLE IF NOT EXISTS id_sequences (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT,
+    PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'attachments', COALESCE(MAX(id), 0) FROM attachments
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'educational_units', COALESCE(MAX(id), 0) FROM educational_units
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'employees', COALESCE(MAX(id), 0) FROM employees
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'personal_information', COALESCE(MAX(id), 0) FROM personal_information
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'refresh_tokens', COALESCE(MAX(id), 0) FROM refresh_tokens
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'regions', COALESCE(MAX(id), 0) FROM regions
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'teachers', COALESCE(MAX(id), 0) FROM teachers
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_sequences (sequence_name, next_val)
+SELECT 'users', COALESCE(MAX(id), 0) FROM users
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
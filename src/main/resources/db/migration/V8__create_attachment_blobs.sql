@@ -0,0 +1,17 @@
+-- Content-addressed attachment storage: one row (and one file) per distinct content,
+-- keyed by its SHA-256, with the number of attachments referencing it.
+CREATE TABLE IF NOT EXISTS attachment_blobs (
+    content_hash VARCHAR(64) NOT NULL,
+    size         BIGINT      NOT NULL,
+    ref_count    INT         NOT NULL,
+    created_at   DATETIME(6) NOT NULL,
+    updated_at   DATETIME(6) NOT NULL,
+    PRIMARY KEY (content_hash)
+);
+
+CREATE INDEX idx_attachment_blobs_ref_count ON attachment_blobs(ref_count, updated_at);
+
+-- Attachments saved before keep content_hash NULL and their own file under file_path
+ALTER TABLE attachments ADD COLUMN content_hash VARCHAR(64) NULL;
+ALTER TABLE attachments ADD COLUMN size BIGINT NULL;
+CREATE INDEX idx_attachments_content_hash ON attachments(content_hash);
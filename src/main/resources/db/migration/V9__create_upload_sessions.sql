@@ -0,0 +1,24 @@
+-- Resumable chunked uploads: one row per upload in progress, and one row per chunk received.
+-- The content itself is written into a partial file under <attachments root>/partial.
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    uuid         VARCHAR(36)  NOT NULL,
+    owner        VARCHAR(255) NOT NULL,
+    filename     VARCHAR(255) NULL,
+    content_type VARCHAR(255) NULL,
+    size         BIGINT       NOT NULL,
+    chunk_size   INT          NOT NULL,
+    expires_at   DATETIME(6)  NOT NULL,
+    created_at   DATETIME(6)  NOT NULL,
+    updated_at   DATETIME(6)  NOT NULL,
+    PRIMARY KEY (uuid)
+);
+
+CREATE INDEX idx_upload_sessions_expires_at ON upload_sessions(expires_at);
+
+CREATE TABLE IF NOT EXISTS upload_session_chunks (
+    upload_session_uuid VARCHAR(36) NOT NULL,
+    chunk_number        INT         NOT NULL,
+    PRIMARY KEY (upload_session_uuid, chunk_number),
+    CONSTRAINT fk_upload_session_chunks_session FOREIGN KEY (upload_session_uuid) REFERENCES upload_sessions (uuid)
+        ON DELETE CASCADE
+);
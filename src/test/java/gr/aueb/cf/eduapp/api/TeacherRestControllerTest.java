@@ -2,13 +2,16 @@ package gr.aueb.cf.eduapp.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import gr.aueb.cf.eduapp.core.ErrorHandler;
+import gr.aueb.cf.eduapp.core.enums.ExportFormat;
 import gr.aueb.cf.eduapp.core.enums.GenderType;
 import gr.aueb.cf.eduapp.core.enums.Role;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
 import gr.aueb.cf.eduapp.dto.*;
 
+import gr.aueb.cf.eduapp.service.TeacherExportService;
 import gr.aueb.cf.eduapp.service.TeacherService;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -18,14 +21,26 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -33,6 +48,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc(addFilters = false) // disable JWT/security filters
 class TeacherRestControllerTest {
 
+    private static final ResourceVersionDTO VERSION =
+            new ResourceVersionDTO("\"v1\"", Instant.parse("2026-10-01T10:00:00.123Z"));
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -42,6 +60,9 @@ class TeacherRestControllerTest {
     @MockitoBean
     private TeacherService teacherService;
 
+    @MockitoBean
+    private TeacherExportService teacherExportService;
+
     @Test
     void getTeacherByUuid_shouldReturnOk() throws Exception {
 
@@ -50,15 +71,64 @@ class TeacherRestControllerTest {
         PersonalInfoReadOnlyDTO personalDto = new PersonalInfoReadOnlyDTO("AMKA123", "ID123");
         TeacherReadOnlyDTO teacherReadOnlyDTO = new TeacherReadOnlyDTO(1L, uuid, true, userReadOnlyDTO, personalDto);
 
-        when(teacherService.getOneTeacher(uuid)).thenReturn(teacherReadOnlyDTO);
+        when(teacherService.getOneTeacher(uuid, VERSION.lastModified())).thenReturn(teacherReadOnlyDTO);
+        when(teacherService.getTeacherVersion(uuid)).thenReturn(VERSION);
 
         // Assert
         mockMvc.perform(get("/api/teachers/{uuid}", uuid))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().string("Last-Modified", "Thu, 01 Oct 2026 10:00:00 GMT"))
                 .andExpect(jsonPath("$.uuid").value(uuid))   // $ is the root JSON
                 .andExpect(jsonPath("$.userReadOnlyDTO.firstname").value("Άννα"));
     }
 
+    @Test
+    void getTeacherByUuid_shouldReturnNotModified_withoutLoading() throws Exception {
+        when(teacherService.getTeacherVersion("uuid-123")).thenReturn(VERSION);
+
+        mockMvc.perform(get("/api/teachers/{uuid}", "uuid-123").header("If-None-Match", "\"v0\", \"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/teachers/{uuid}", "uuid-123")
+                        .header("If-Modified-Since", "Thu, 01 Oct 2026 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(teacherService, never()).getOneTeacher(any(), any());
+    }
+
+    @Test
+    void getTeacherByUuid_shouldReturnOk_whenChanged() throws Exception {
+        when(teacherService.getTeacherVersion("uuid-123")).thenReturn(VERSION);
+        when(teacherService.getOneTeacher("uuid-123", VERSION.lastModified()))
+                .thenReturn(new TeacherReadOnlyDTO(1L, "uuid-123", true, null, null));
+
+        mockMvc.perform(get("/api/teachers/{uuid}", "uuid-123").header("If-None-Match", "\"v0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uuid").value("uuid-123"));
+        // If-Modified-Since is ignored when If-None-Match is sent
+        mockMvc.perform(get("/api/teachers/{uuid}", "uuid-123").header("If-None-Match", "\"v0\"")
+                        .header("If-Modified-Since", "Thu, 01 Oct 2026 10:00:00 GMT"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/teachers/{uuid}", "uuid-123")
+                        .header("If-Modified-Since", "Thu, 01 Oct 2026 09:59:59 GMT"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void searchTeachers_shouldReturnNotModified_whenETagMatches() throws Exception {
+        ResourceVersionDTO version = new ResourceVersionDTO("W/\"v1-page\"", VERSION.lastModified());
+        when(teacherService.getTeachersFilteredVersion(any())).thenReturn(version);
+
+        mockMvc.perform(post("/api/teachers/search").contentType(MediaType.APPLICATION_JSON).content("{}")
+                        .header("If-None-Match", "W/\"v1-page\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"v1-page\""));
+
+        verify(teacherService, never()).getTeachersFilteredPaginated(any());
+    }
+
     @Test
     void getTeacherByUuid_shouldReturnNotFound() throws Exception {
 
@@ -170,4 +240,78 @@ class TeacherRestControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportTeachers_shouldStreamCsvAttachment() throws Exception {
+        when(teacherExportService.exportTeachers(any(), eq(ExportFormat.CSV), any())).thenAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(2);
+            output.write("id,uuid\r\n1,uuid-123\r\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/teachers/export").param("format", "csv").param("active", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"teachers.csv\""))
+                .andExpect(content().string("id,uuid\r\n1,uuid-123\r\n"));
+        verify(teacherExportService).exportTeachers(argThat(filters -> Boolean.TRUE.equals(filters.getActive())),
+                eq(ExportFormat.CSV), any());
+    }
+
+    @Test
+    void exportTeachers_shouldReturnBadRequest_forUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/teachers/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void downloadAmkaFile_shouldReturnFileWithETag(@TempDir Path dir) throws Exception {
+        when(teacherService.getAmkaFile("uuid-123")).thenReturn(amkaFile(dir, "0123456789"));
+
+        mockMvc.perform(get("/api/teachers/{uuid}/attachments/amka", "uuid-123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().contentType("application/pdf"))
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void downloadAmkaFile_shouldReturnPartialContent_forRange(@TempDir Path dir) throws Exception {
+        when(teacherService.getAmkaFile("uuid-123")).thenReturn(amkaFile(dir, "0123456789"));
+
+        mockMvc.perform(get("/api/teachers/{uuid}/attachments/amka", "uuid-123").header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mockMvc.perform(get("/api/teachers/{uuid}/attachments/amka", "uuid-123").header("Range", "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+
+        // Stale If-Range: the whole file
+        mockMvc.perform(get("/api/teachers/{uuid}/attachments/amka", "uuid-123")
+                        .header("Range", "bytes=2-5").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void downloadAmkaFile_shouldReturnNotModified_whenETagMatches(@TempDir Path dir) throws Exception {
+        when(teacherService.getAmkaFile("uuid-123")).thenReturn(amkaFile(dir, "0123456789"));
+
+        mockMvc.perform(get("/api/teachers/{uuid}/attachments/amka", "uuid-123").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    private static AttachmentFileDTO amkaFile(Path dir, String content) throws IOException {
+        Path file = Files.writeString(dir.resolve("abc123"), content);
+        return new AttachmentFileDTO("amka.pdf", "application/pdf", "abc123", file, 0, content.length(), null);
+    }
+}
@@ -0,0 +1,53 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tokens verified once are served from the verified-token cache: a tampered copy of a
+ * cached token must still go through the signature check.
+ */
+@SpringBootTest(classes = JwtService.class)
+class JwtServiceTest {
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void validateToken_repeatBearer_sameClaims() {
+        String token = jwtService.generateToken("cached@aueb.gr", "TEACHER");
+
+        JwtClaims first = jwtService.validateToken(token);
+        assertSame(first, jwtService.validateToken(token));
+        assertEquals("cached@aueb.gr", first.subject());
+    }
+
+    @Test
+    void validateToken_tamperedSignatureOfCachedToken_rejected() {
+        String token = jwtService.generateToken("tampered@aueb.gr", "TEACHER");
+        jwtService.validateToken(token);
+
+        String[] parts = token.split("\\.");
+        char c = parts[2].charAt(10);
+        String tampered = parts[0] + "." + parts[1] + "." + parts[2].substring(0, 10) + (c == 'A' ? 'B' : 'A')
+                + parts[2].substring(11);
+
+        assertThrows(JwtException.class, () -> jwtService.validateToken(tampered));
+    }
+
+    @Test
+    void validateToken_claimsOfAnotherTokenWithCachedSignature_rejected() {
+        String token = jwtService.generateToken("teacher@aueb.gr", "TEACHER");
+        String admin = jwtService.generateToken("teacher@aueb.gr", "SUPER_ADMIN");
+        jwtService.validateToken(token);
+
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + admin.split("\\.")[1] + "." + parts[2];
+
+        assertThrows(JwtException.class, () -> jwtService.validateToken(forged));
+    }
+}
@@ -0,0 +1,112 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.model.RefreshToken;
+import gr.aueb.cf.eduapp.repository.RefreshTokenRepository;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import gr.aueb.cf.eduapp.service.TeacherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: the revocations of a detected reuse are committed although the refresh fails.
+ */
+@SpringBootTest(properties = "app.security.bcrypt-strength=4")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class RefreshTokenServiceTest {
+
+    private static final String LASTNAME = "Ανανέωση";
+    private static final String USERNAME = "refresh@aueb.gr";
+    private static final String PASSWORD = "C0d1ngF@";
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @BeforeEach
+    void setup() throws Exception {
+        teacherService.saveTeacher(insertDTO(), null);
+    }
+
+    @AfterEach
+    void cleanup() {
+        refreshTokenRepository.deleteAll();
+        // Cascades to the users and personal info
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void refresh_rotatesToken() {
+        String first = login().refreshToken();
+
+        TokenRefreshResponseDTO refreshed = refreshTokenService.refresh(first);
+
+        assertNotEquals(first, refreshed.refreshToken());
+        assertEquals(USERNAME, jwtService.validateToken(refreshed.token()).subject());
+        assertNotNull(refreshTokenService.refresh(refreshed.refreshToken()).refreshToken());
+    }
+
+    @Test
+    void refresh_rotatedTokenReused_revokesAllOfTheUser() {
+        String first = login().refreshToken();
+        String otherSession = login().refreshToken();
+        String second = refreshTokenService.refresh(first).refreshToken();
+
+        // Replayed, e.g. stolen before the rotation
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(first));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(second));
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(otherSession));
+        assertTrue(refreshTokenRepository.findAll().stream().allMatch(RefreshToken::isRevoked));
+    }
+
+    @Test
+    void refresh_unknownToken_rejected() {
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh("unknown"));
+    }
+
+    private AuthenticationResponseDTO login() {
+        return authenticationService.authenticate(new AuthenticationRequestDTO(USERNAME, PASSWORD));
+    }
+
+    private static TeacherInsertDTO insertDTO() {
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Πρώτη").lastname(LASTNAME).username(USERNAME)
+                        .password(PASSWORD).vat("920000001")
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka("92000000100").identityNumber("RE1")
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.dto.LogoutRequestDTO;
+import gr.aueb.cf.eduapp.model.RevokedToken;
+import gr.aueb.cf.eduapp.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: revocations made by another node are only seen once committed and rebuilt.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TokenRevocationServiceTest {
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @AfterEach
+    void cleanup() {
+        revokedTokenRepository.deleteAll();
+    }
+
+    @Test
+    void logout_tokenRevoked() {
+        JwtClaims claims = claims();
+
+        authenticationService.logout(claims, new LogoutRequestDTO(null));
+
+        assertTrue(tokenRevocationService.isRevoked(claims.tokenId()));
+        assertFalse(tokenRevocationService.isRevoked(claims().tokenId()));
+        assertFalse(tokenRevocationService.isRevoked(null));
+    }
+
+    @Test
+    void rebuild_keepsRevocationsAndAddsOtherNodes() {
+        JwtClaims local = claims();
+        tokenRevocationService.revoke(local);
+
+        // Revoked by another node: in the filter of this one once it is rebuilt
+        String remote = UUID.randomUUID().toString();
+        revokedTokenRepository.save(new RevokedToken(remote, null, LocalDateTime.now().plusMinutes(15)));
+
+        tokenRevocationService.rebuild();
+
+        assertTrue(tokenRevocationService.isRevoked(local.tokenId()));
+        assertTrue(tokenRevocationService.isRevoked(remote));
+        assertFalse(tokenRevocationService.isRevoked(claims().tokenId()));
+    }
+
+    @Test
+    void purgeExpiredAndRebuild_dropsExpiredOnly() {
+        String expired = UUID.randomUUID().toString();
+        revokedTokenRepository.save(new RevokedToken(expired, null, LocalDateTime.now().minusMinutes(1)));
+        JwtClaims active = claims();
+        tokenRevocationService.revoke(active);
+
+        tokenRevocationService.purgeExpiredAndRebuild();
+
+        assertFalse(revokedTokenRepository.existsById(expired));
+        assertTrue(tokenRevocationService.isRevoked(active.tokenId()));
+    }
+
+    private static JwtClaims claims() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return new JwtClaims(UUID.randomUUID().toString(), "revoked@aueb.gr", "TEACHER", null, null, 0L,
+                now, now.plus(15, ChronoUnit.MINUTES));
+    }
+}
@@ -0,0 +1,56 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserSecurityRegistryTest {
+
+    private static final UserSecuritySnapshot ACTIVE = new UserSecuritySnapshot(1L, "a@aueb.gr", Role.TEACHER, "uuid", 0L, true);
+    private static final UserSecuritySnapshot INACTIVE = new UserSecuritySnapshot(1L, "a@aueb.gr", Role.TEACHER, "uuid", 1L, false);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void getSnapshot_cachedUntilEvicted() {
+        UserSecurityRegistry registry = new UserSecurityRegistry(userRepository, 100, 60_000);
+        when(userRepository.findSecuritySnapshotById(1L)).thenReturn(Optional.of(ACTIVE), Optional.of(INACTIVE));
+
+        assertSame(ACTIVE, registry.getSnapshot(1L).orElseThrow());
+        assertSame(ACTIVE, registry.getSnapshot(1L).orElseThrow());
+        verify(userRepository, times(1)).findSecuritySnapshotById(1L);
+
+        registry.evict(1L);
+        assertSame(INACTIVE, registry.getSnapshot(1L).orElseThrow());
+    }
+
+    @Test
+    void getSnapshot_evictedDuringLoad_notCached() {
+        UserSecurityRegistry registry = new UserSecurityRegistry(userRepository, 100, 60_000);
+        // The row is read, then the change that makes it stale commits and evicts
+        when(userRepository.findSecuritySnapshotById(1L)).thenAnswer(invocation -> {
+            registry.evict(1L);
+            return Optional.of(ACTIVE);
+        }).thenReturn(Optional.of(INACTIVE));
+
+        assertSame(ACTIVE, registry.getSnapshot(1L).orElseThrow());     // returned to the racing request only
+        assertSame(INACTIVE, registry.getSnapshot(1L).orElseThrow());
+        assertSame(INACTIVE, registry.getSnapshot(1L).orElseThrow());
+        verify(userRepository, times(2)).findSecuritySnapshotById(1L);
+    }
+
+    @Test
+    void getSnapshot_expired_reloaded() {
+        // A change made through another instance is not evicted here, the ttl bounds how long it goes unseen
+        UserSecurityRegistry registry = new UserSecurityRegistry(userRepository, 100, 0);
+        when(userRepository.findSecuritySnapshotById(1L)).thenReturn(Optional.of(ACTIVE), Optional.of(INACTIVE));
+
+        assertSame(ACTIVE, registry.getSnapshot(1L).orElseThrow());
+        assertSame(INACTIVE, registry.getSnapshot(1L).orElseThrow());
+    }
+}
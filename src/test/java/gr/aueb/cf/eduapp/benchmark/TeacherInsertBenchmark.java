@@ -0,0 +1,123 @@
+package gr.aueb.cf.eduapp.benchmark;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import gr.aueb.cf.eduapp.service.TeacherService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts per second for teacher creation, one per transaction through {@link TeacherService}
+ * and many per transaction through the repository. Run with {@code gradle benchmark}.
+ * <p>
+ * BCrypt runs at the lowest cost so that the numbers show persistence, not hashing.
+ * Absolute numbers depend on the database (H2 here, unless a datasource is configured);
+ * the JDBC statement count per teacher does not.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "app.security.bcrypt-strength=4",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherInsertBenchmark {
+
+    private static final int SINGLE_INSERTS = 300;
+    private static final int BULK_INSERTS = 3000;
+    private static final String LASTNAME = "Benchmark";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private Mapper mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanup() {
+        teacherRepository.deleteAllInBatch(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void singleTeacherCreation() throws Exception {
+        for (int i = 0; i < 20; i++) teacherService.saveTeacher(insertDTO("w", i), null);     // warm up
+
+        Statistics statistics = statistics();
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_INSERTS; i++) {
+            teacherService.saveTeacher(insertDTO("s", i), null);
+        }
+        report("single (one transaction per teacher)", SINGLE_INSERTS, start, statistics);
+    }
+
+    @Test
+    void bulkTeacherCreation() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Teacher> teachers = new ArrayList<>(BULK_INSERTS);
+        for (int i = 0; i < BULK_INSERTS; i++) {
+            teachers.add(mapper.mapToTeacherEntity(insertDTO("b", i)));
+        }
+
+        Statistics statistics = statistics();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> teacherRepository.saveAll(teachers));
+        report("bulk (saveAll, one transaction)", BULK_INSERTS, start, statistics);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static void report(String name, int teachers, long start, Statistics statistics) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-40s %6d teachers in %6.2f s = %8.0f teachers/s, %6.3f JDBC statements prepared per teacher%n",
+                name, teachers, seconds, teachers / seconds, (double) statistics.getPrepareStatementCount() / teachers);
+    }
+
+    private static TeacherInsertDTO insertDTO(String run, int i) {
+        String n = String.format("%s%08d", run.equals("s") ? "1" : run.equals("b") ? "2" : "3", i);
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Bench").lastname(LASTNAME).username(run + i + "@bench.gr")
+                        .password("C0d1ngF@").vat(n)
+                        .fatherName("F").fatherLastname("F").motherName("M").motherLastname("M")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.MALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka(n + "00").identityNumber("BM" + n)
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package gr.aueb.cf.eduapp.benchmark;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.filters.TeacherCursor;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.filters.TeacherSortField;
+import gr.aueb.cf.eduapp.model.PersonalInfo;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.TeacherJDBCRepository;
+import gr.aueb.cf.eduapp.service.TeacherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Latency of page 1 and page 10,000 of the teacher listing, by OFFSET and by keyset
+ * pagination. Run with {@code gradle benchmark}.
+ * <p>
+ * OFFSET reads and throws away every row before the page, and runs a count on top, so its
+ * deep pages get slower with the table; a keyset page seeks to the cursor and costs the
+ * same at any depth. Absolute numbers depend on the database (H2 here, unless a
+ * datasource is configured).
+ * <p>
+ * The rows are inserted with plain (unquoted) SQL, so it runs on the h2-mysql test profile.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "app.teachers.search-cache.ttl-ms=0")     // time the queries, not cache hits
+@ActiveProfiles({"dev", "h2-mysql"})
+class TeacherKeysetBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int TEACHERS = PAGE_SIZE * DEEP_PAGE + PAGE_SIZE;
+    private static final int INSERT_BATCH = 5_000;
+    private static final int RUNS = 25;
+    private static final String LASTNAME = "KeysetBenchmark";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherJDBCRepository teacherJDBCRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setup() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < TEACHERS; from += INSERT_BATCH) {
+            List<Teacher> teachers = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < Math.min(from + INSERT_BATCH, TEACHERS); i++) teachers.add(teacher(i));
+            transactionTemplate.executeWithoutResult(status -> teacherJDBCRepository.insertBatch(teachers));
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM teachers WHERE user_id IN (SELECT id FROM users WHERE lastname = ?)", LASTNAME);
+        jdbcTemplate.update("DELETE FROM users WHERE lastname = ?", LASTNAME);
+        jdbcTemplate.update("DELETE FROM personal_information WHERE identity_number LIKE 'KB%'");
+    }
+
+    @Test
+    void firstAndDeepPage() throws Exception {
+        // The cursor a client would hold after reading DEEP_PAGE - 1 pages
+        long lastIdBefore = jdbcTemplate.queryForObject("SELECT id FROM teachers ORDER BY id LIMIT 1 OFFSET ?",
+                Long.class, (DEEP_PAGE - 1) * PAGE_SIZE - 1);
+        String deepCursor = new TeacherCursor(TeacherSortField.ID, Sort.Direction.ASC, lastIdBefore, lastIdBefore).encode();
+
+        report("offset, page 1", time(() -> teacherService.getTeachersFilteredPaginated(offsetFilters(0))));
+        report("offset, page " + DEEP_PAGE, time(() -> teacherService.getTeachersFilteredPaginated(offsetFilters(DEEP_PAGE - 1))));
+        report("keyset, page 1", time(() -> teacherService.getTeachersKeysetPaginated(keysetFilters(null))));
+        report("keyset, page " + DEEP_PAGE, time(() -> teacherService.getTeachersKeysetPaginated(keysetFilters(deepCursor))));
+    }
+
+    private static TeacherFilters offsetFilters(int page) {
+        TeacherFilters filters = TeacherFilters.builder().build();
+        filters.setPage(page);
+        filters.setPageSize(PAGE_SIZE);
+        return filters;
+    }
+
+    private static TeacherFilters keysetFilters(String cursor) {
+        TeacherFilters filters = TeacherFilters.builder().build();
+        filters.setCursor(cursor);
+        filters.setPageSize(PAGE_SIZE);
+        return filters;
+    }
+
+    private interface Page {
+        void read() throws Exception;
+    }
+
+    private static long[] time(Page page) throws Exception {
+        for (int i = 0; i < 5; i++) page.read();      // warm up
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            page.read();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void report(String name, long[] nanos) {
+        System.out.printf("%-25s median %8.2f ms, p90 %8.2f ms over %d runs of %d teachers%n",
+                name, nanos[nanos.length / 2] / 1e6, nanos[nanos.length * 9 / 10] / 1e6, nanos.length, PAGE_SIZE);
+    }
+
+    private static Teacher teacher(int i) {
+        String n = String.format("4%08d", i);
+
+        User user = new User();
+        user.setFirstname("Bench");
+        user.setLastname(LASTNAME);
+        user.setUsername("k" + i + "@bench.gr");
+        user.setPassword("not-a-hash");
+        user.setVat(n);
+        user.setFatherName("F");
+        user.setFatherLastname("F");
+        user.setMotherName("M");
+        user.setMotherLastname("M");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setGender(GenderType.MALE);
+        user.setRole(Role.TEACHER);
+        user.setIsActive(true);
+
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setAmka(n + "00");
+        personalInfo.setIdentityNumber("KB" + n);
+        personalInfo.setPlaceOfBirth("Athens");
+        personalInfo.setMunicipalityOfRegistration("Athens");
+
+        Teacher teacher = new Teacher();
+        teacher.setIsActive(true);
+        teacher.setUser(user);
+        teacher.setPersonalInfo(personalInfo);
+        return teacher;
+    }
+}
@@ -0,0 +1,46 @@
+package gr.aueb.cf.eduapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(2, 4, 5000, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void encode_matchesOnTheExecutor() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, executor);
+
+        String hash = encoder.encode("C0d1ngF@");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("C0d1ngF@", hash));
+        assertFalse(encoder.matches("wrong", hash));
+    }
+
+    @Test
+    void upgradeEncoding_costChanged_rehash() {
+        String hash = new BoundedPasswordEncoder(4, executor).encode("C0d1ngF@");
+
+        assertFalse(new BoundedPasswordEncoder(4, executor).upgradeEncoding(hash));
+        assertTrue(new BoundedPasswordEncoder(5, executor).upgradeEncoding(hash));      // raised
+        assertTrue(new BoundedPasswordEncoder(4, executor).upgradeEncoding(
+                new BoundedPasswordEncoder(5, executor).encode("C0d1ngF@")));           // lowered
+    }
+
+    @Test
+    void upgradeEncoding_notBcrypt_noRehash() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, executor);
+
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("{noop}secret"));
+    }
+}
@@ -0,0 +1,217 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.authentication.AuthenticationService;
+import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.authentication.RefreshTokenService;
+import gr.aueb.cf.eduapp.authentication.TokenRevocationService;
+import gr.aueb.cf.eduapp.authentication.UserSecurityRegistry;
+import gr.aueb.cf.eduapp.authentication.UserSecuritySnapshot;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.RefreshTokenRepository;
+import gr.aueb.cf.eduapp.repository.RevokedTokenRepository;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import gr.aueb.cf.eduapp.service.TeacherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Through the security filter chain: a token that is rejected is answered with 401.
+ * Not transactional: security snapshots are evicted when a user write commits.
+ */
+@SpringBootTest(properties = "app.security.bcrypt-strength=4")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class JwtAuthenticationFilterTest {
+
+    private static final String LASTNAME = "Φίλτρο";
+    private static final String USERNAME = "filter@aueb.gr";
+    private static final String PASSWORD = "C0d1ngF@";
+
+    // Any authenticated user may ask, an unknown upload is 404
+    private static final String URL = "/api/uploads/00000000-0000-0000-0000-000000000000";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserSecurityRegistry userSecurityRegistry;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private String uuid;
+
+    @BeforeEach
+    void setup() throws Exception {
+        uuid = teacherService.saveTeacher(insertDTO(), null).uuid();
+    }
+
+    @AfterEach
+    void cleanup() {
+        refreshTokenRepository.deleteAll();
+        revokedTokenRepository.deleteAll();
+        // Cascades to the users and personal info
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void validToken_authenticated() throws Exception {
+        request(login()).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void revokedToken_unauthorized() throws Exception {
+        String token = login();
+        request(token).andExpect(status().isNotFound());
+
+        tokenRevocationService.revoke(jwtService.validateToken(token));
+
+        request(token).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void malformedToken_unauthorized() throws Exception {
+        request("not.a.token").andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void securityVersionBumped_earlierTokenUnauthorized() throws Exception {
+        String token = login();
+        request(token).andExpect(status().isNotFound());        // the snapshot is cached now
+
+        authenticationService.forceSignOut(USERNAME);
+
+        request(token).andExpect(status().isUnauthorized());
+        request(login()).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void userDeactivated_unauthorized() throws Exception {
+        String token = login();
+        request(token).andExpect(status().isNotFound());
+
+        teacherService.updateTeacher(updateDTO(false), null);
+
+        request(token).andExpect(status().isUnauthorized());
+        // Even with the current version in its claims
+        UserSecuritySnapshot snapshot = userSecurityRegistry.getSnapshot(userId()).orElseThrow();
+        assertEquals(1L, snapshot.currentVersion());
+        request(jwtService.generateToken(snapshot)).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void userDeactivated_refreshTokensRevoked() throws Exception {
+        String refreshToken = authenticationService.authenticate(new AuthenticationRequestDTO(USERNAME, PASSWORD)).refreshToken();
+
+        teacherService.updateTeacher(updateDTO(false), null);
+        teacherService.updateTeacher(updateDTO(true), null);
+
+        // Reactivating does not bring the sessions back
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(refreshToken));
+        request(login()).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void updateTeacher_securityVersionBumpedOnceAndKept() throws Exception {
+        authenticationService.forceSignOut(USERNAME);
+        String token = login();
+
+        // Neither role nor active flag changed: the version stays, and so does the token
+        teacherService.updateTeacher(updateDTO(true), null);
+        assertEquals(1L, userRepository.findById(userId()).orElseThrow().getSecurityVersion());
+        request(token).andExpect(status().isNotFound());
+
+        teacherService.updateTeacher(updateDTO(false), null);
+        assertEquals(2L, userRepository.findById(userId()).orElseThrow().getSecurityVersion());
+    }
+
+    private String login() {
+        return authenticationService.authenticate(new AuthenticationRequestDTO(USERNAME, PASSWORD)).token();
+    }
+
+    private ResultActions request(String token) throws Exception {
+        return mockMvc.perform(get(URL).header("Authorization", "Bearer " + token));
+    }
+
+    private Long userId() {
+        return userRepository.findByUsername(USERNAME).orElseThrow().getId();
+    }
+
+    private TeacherUpdateDTO updateDTO(boolean active) {
+        Teacher teacher = teacherRepository.findByUuid(uuid).orElseThrow();
+        return TeacherUpdateDTO.builder()
+                .id(teacher.getId()).uuid(uuid).isActive(active)
+                .userUpdateDTO(UserUpdateDTO.builder()
+                        .id(teacher.getUser().getId())
+                        .firstname("Δεύτερη").lastname(LASTNAME).username(USERNAME)
+                        .password(PASSWORD).vat(teacher.getUser().getVat())
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoUpdateDTO(PersonalInfoUpdateDTO.builder()
+                        .id(teacher.getPersonalInfo().getId())
+                        .amka(teacher.getPersonalInfo().getAmka())
+                        .identityNumber(teacher.getPersonalInfo().getIdentityNumber())
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+
+    private static TeacherInsertDTO insertDTO() {
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Πρώτη").lastname(LASTNAME).username(USERNAME)
+                        .password(PASSWORD).vat("910000001")
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka("91000000100").identityNumber("FI1")
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package gr.aueb.cf.eduapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedTokenBucketsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void tryConsume_emptyBucket_refillsOverTime() {
+        KeyedTokenBuckets buckets = new KeyedTokenBuckets(2, 0.5, 100);        // a token every 2 s
+        long now = 0;
+
+        assertEquals(0, buckets.tryConsume("key", now));
+        assertEquals(0, buckets.tryConsume("key", now));
+        assertEquals(2, buckets.tryConsume("key", now));
+        assertEquals(1, buckets.tryConsume("key", now + SECOND));
+
+        assertEquals(0, buckets.tryConsume("key", now + 2 * SECOND));
+        assertEquals(2, buckets.tryConsume("key", now + 2 * SECOND));
+
+        // Never more than the capacity, however long it waited
+        now += 3600 * SECOND;
+        assertEquals(0, buckets.tryConsume("key", now));
+        assertEquals(0, buckets.tryConsume("key", now));
+        assertTrue(buckets.tryConsume("key", now) > 0);
+    }
+
+    @Test
+    void refund_givesTokenBack_upToCapacity() {
+        KeyedTokenBuckets buckets = new KeyedTokenBuckets(1, 0.01, 100);
+        assertEquals(0, buckets.tryConsume("key", 0));
+        buckets.refund("key", 0);
+        buckets.refund("key", 0);
+
+        assertEquals(0, buckets.tryConsume("key", 0));
+        assertTrue(buckets.tryConsume("key", 0) > 0);
+
+        buckets.refund("missing", 0);
+        assertEquals(1, buckets.size());
+    }
+
+    @Test
+    void evictFull_onlyRefilledBuckets() {
+        KeyedTokenBuckets buckets = new KeyedTokenBuckets(2, 1, 100);
+        buckets.tryConsume("a", 0);
+        buckets.tryConsume("b", 0);
+        buckets.tryConsume("b", 0);
+
+        buckets.evictFull(SECOND);
+        assertEquals(1, buckets.size());        // "b" still misses a token
+
+        buckets.evictFull(2 * SECOND);
+        assertEquals(0, buckets.size());
+    }
+
+    @Test
+    void tryConsume_atMaxEntries_keyNotTracked() {
+        KeyedTokenBuckets buckets = new KeyedTokenBuckets(1, 0.01, 2);
+        buckets.tryConsume("a", 0);
+        buckets.tryConsume("b", 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, buckets.tryConsume("c", 0));
+        }
+        assertEquals(2, buckets.size());
+        assertTrue(buckets.tryConsume("a", 0) > 0);
+    }
+}
@@ -0,0 +1,76 @@
+package gr.aueb.cf.eduapp.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The limiter keeps its buckets for the whole context: every test uses its own usernames and IPs.
+ */
+@SpringBootTest(properties = {
+        "app.security.bcrypt-strength=4",
+        "app.security.login-rate-limit.username.capacity=2",
+        "app.security.login-rate-limit.username.per-minute=1",
+        "app.security.login-rate-limit.ip.capacity=3",
+        "app.security.login-rate-limit.ip.per-minute=1"
+})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class LoginRateLimiterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void sameUsername_fromManyIps_throttled() throws Exception {
+        login("Throttled@aueb.gr", "10.0.0.1").andExpect(status().isUnauthorized());
+        login("throttled@aueb.gr", "10.0.0.2").andExpect(status().isUnauthorized());
+
+        // The same username in another case is the same bucket
+        login(" THROTTLED@aueb.gr", "10.0.0.3")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"));
+        login("other@aueb.gr", "10.0.0.3").andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void sameIp_manyUsernames_throttled() throws Exception {
+        login("ip1@aueb.gr", "10.0.1.1").andExpect(status().isUnauthorized());
+        login("ip2@aueb.gr", "10.0.1.1").andExpect(status().isUnauthorized());
+        login("ip3@aueb.gr", "10.0.1.1").andExpect(status().isUnauthorized());
+
+        login("ip4@aueb.gr", "10.0.1.1").andExpect(status().isTooManyRequests());
+        login("ip4@aueb.gr", "10.0.1.2").andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void lockedUsername_doesNotDrainIpBudget() throws Exception {
+        login("locked@aueb.gr", "10.0.2.1").andExpect(status().isUnauthorized());
+        login("locked@aueb.gr", "10.0.2.2").andExpect(status().isUnauthorized());
+
+        for (int i = 0; i < 5; i++) {
+            login("locked@aueb.gr", "10.0.2.3").andExpect(status().isTooManyRequests());
+        }
+        login("shared1@aueb.gr", "10.0.2.3").andExpect(status().isUnauthorized());
+        login("shared2@aueb.gr", "10.0.2.3").andExpect(status().isUnauthorized());
+        login("shared3@aueb.gr", "10.0.2.3").andExpect(status().isUnauthorized());
+        login("shared4@aueb.gr", "10.0.2.3").andExpect(status().isTooManyRequests());
+    }
+
+    private ResultActions login(String username, String clientIp) throws Exception {
+        return mockMvc.perform(post("/api/auth/authenticate")
+                .header("X-Forwarded-For", clientIp)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\": \"" + username + "\", \"password\": \"wrong\"}"));
+    }
+}
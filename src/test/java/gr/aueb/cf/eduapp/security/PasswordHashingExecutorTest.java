@@ -0,0 +1,103 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (executor != null) executor.shutdown();
+    }
+
+    @Test
+    void submit_queueFull_rejected() throws Exception {
+        executor = new PasswordHashingExecutor(1, 1, 5000, meterRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> {
+            running.countDown();
+            return held("first");
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(() -> held("queued"));
+
+        AppServiceUnavailableException e = assertThrows(AppServiceUnavailableException.class,
+                () -> executor.execute(() -> "rejected"));
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, rejected());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals("accepted", executor.execute(() -> "accepted"));
+    }
+
+    @Test
+    void execute_timedOutWhileRunning_interrupted() {
+        executor = new PasswordHashingExecutor(1, 1, 50, meterRegistry);
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        assertThrows(AppServiceUnavailableException.class, () -> executor.execute(() -> {
+            held("slow");
+            interrupted.set(Thread.currentThread().isInterrupted());
+            return "slow";
+        }));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (!interrupted.get()) Thread.sleep(10);
+        });
+        assertEquals(1, timeouts());
+        assertEquals(0, rejected());
+    }
+
+    @Test
+    void execute_timedOutWhileQueued_neverRuns() throws Exception {
+        executor = new PasswordHashingExecutor(1, 1, 50, meterRegistry);
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<String> first = executor.submit(() -> held("first"));
+
+        assertThrows(AppServiceUnavailableException.class, () -> executor.execute(() -> {
+            ran.set(true);
+            return "queued";
+        }));
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("after", executor.execute(() -> "after"));
+        assertFalse(ran.get());
+        assertEquals(1, timeouts());
+    }
+
+    private String held(String result) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private double timeouts() {
+        return meterRegistry.get("auth.password.hashing.timeouts").counter().count();
+    }
+
+    private double rejected() {
+        return meterRegistry.get("auth.password.hashing.rejected").counter().count();
+    }
+}
@@ -0,0 +1,106 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.repository.AttachmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class AttachmentLayoutMigratorTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String SAVED_NAME = "3f2a7c1e-5b6d-4e8f-9a0b-1c2d3e4f5a6b.pdf";
+
+    @TempDir
+    static Path root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.attachments.root", root::toString);
+        registry.add("app.attachments.migration.enabled", () -> "false");
+        registry.add("app.attachments.migration.batch-size", () -> "2");
+        registry.add("app.attachments.migration.max-files-per-second", () -> "0");
+    }
+
+    @Autowired
+    private AttachmentLayoutMigrator migrator;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Autowired
+    private AttachmentStorageService attachmentStorageService;
+
+    @AfterEach
+    void cleanup() throws IOException {
+        attachmentRepository.deleteAll();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) Files.delete(file);
+        }
+    }
+
+    @Test
+    void migrate_movesFlatFilesIntoLayout_andUpdatesPaths() throws Exception {
+        Path legacyFile = Files.writeString(root.resolve(SAVED_NAME), "legacy");
+        Files.createDirectories(root.resolve("blobs"));
+        Path flatBlob = Files.writeString(root.resolve("blobs").resolve(HASH), "test");
+
+        Attachment legacy = attachmentRepository.save(attachment(SAVED_NAME, legacyFile, null));
+        Attachment firstBlobRef = attachmentRepository.save(attachment(HASH, flatBlob, HASH));
+        Attachment secondBlobRef = attachmentRepository.save(attachment(HASH, flatBlob, HASH));
+        attachmentRepository.save(attachment("gone.pdf", root.resolve("gone.pdf"), null));
+
+        AttachmentLayoutMigrator.MigrationResult result = migrator.migrate();
+
+        assertEquals(new AttachmentLayoutMigrator.MigrationResult(4, 2, 3, 1), result);
+
+        Path legacyTarget = root.resolve("3f/2a").resolve(SAVED_NAME);
+        Path blobTarget = root.resolve("blobs/9f/86").resolve(HASH);
+        assertEquals("legacy", Files.readString(legacyTarget));
+        assertEquals("test", Files.readString(blobTarget));
+        assertFalse(Files.exists(legacyFile));
+        assertFalse(Files.exists(flatBlob));
+
+        assertEquals(legacyTarget.toString(), attachmentRepository.findById(legacy.getId()).orElseThrow().getFilePath());
+        assertEquals(blobTarget.toString(), attachmentRepository.findById(firstBlobRef.getId()).orElseThrow().getFilePath());
+        assertEquals(blobTarget.toString(), attachmentRepository.findById(secondBlobRef.getId()).orElseThrow().getFilePath());
+
+        // Already in place: nothing to do, the missing file is reported again
+        assertEquals(new AttachmentLayoutMigrator.MigrationResult(4, 0, 0, 1), migrator.migrate());
+    }
+
+    @Test
+    void resolve_fileMovedButPathNotUpdated_foundInLayout() throws Exception {
+        Path blobTarget = Files.createDirectories(root.resolve("blobs/9f/86")).resolve(HASH);
+        Files.writeString(blobTarget, "test");
+
+        Attachment notUpdated = attachment(HASH, root.resolve("blobs").resolve(HASH), HASH);
+
+        assertEquals(blobTarget, attachmentStorageService.resolve(notUpdated).orElseThrow().file());
+    }
+
+    private static Attachment attachment(String savedName, Path filePath, String contentHash) {
+        Attachment attachment = new Attachment();
+        attachment.setFilename("amka.pdf");
+        attachment.setSavedName(savedName);
+        attachment.setFilePath(filePath.toString());
+        attachment.setContentType("application/pdf");
+        attachment.setExtension(".pdf");
+        attachment.setContentHash(contentHash);
+        return attachment;
+    }
+}
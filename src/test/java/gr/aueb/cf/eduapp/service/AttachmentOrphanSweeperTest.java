@@ -0,0 +1,122 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.model.AttachmentBlob;
+import gr.aueb.cf.eduapp.repository.AttachmentBlobRepository;
+import gr.aueb.cf.eduapp.repository.AttachmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class AttachmentOrphanSweeperTest {
+
+    private static final String ORPHAN_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String KNOWN_HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String ORPHAN_SAVED_NAME = "3f2a7c1e-5b6d-4e8f-9a0b-1c2d3e4f5a6b.pdf";
+    private static final String KNOWN_SAVED_NAME = "7c1e3f2a-5b6d-4e8f-9a0b-1c2d3e4f5a6b.pdf";
+
+    @TempDir
+    static Path root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.attachments.root", root::toString);
+        registry.add("app.attachments.migration.enabled", () -> "false");
+        registry.add("app.attachments.sweeper.max-files-per-second", () -> "0");
+        registry.add("app.attachments.sweeper.batch-size", () -> "2");
+    }
+
+    @Autowired
+    private AttachmentOrphanSweeper sweeper;
+
+    @Autowired
+    private AttachmentLayout layout;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @AfterEach
+    void cleanup() throws IOException {
+        attachmentRepository.deleteAll();
+        attachmentBlobRepository.deleteAll();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) Files.delete(file);
+        }
+    }
+
+    @Test
+    void sweep_adoptsOrphanBlobsAndDeletesOrphanFiles() throws Exception {
+        Path orphanBlob = oldFile(layout.blobPath(ORPHAN_HASH));
+        Path knownBlob = oldFile(layout.blobPath(KNOWN_HASH));
+        attachmentBlobRepository.saveAndFlush(new AttachmentBlob(KNOWN_HASH, 4));
+        Path tempFile = oldFile(layout.blobPath(KNOWN_HASH).resolveSibling("upload-123.tmp"));
+        Path orphanLegacy = oldFile(layout.legacyPath(ORPHAN_SAVED_NAME));
+        Path knownLegacy = oldFile(layout.legacyPath(KNOWN_SAVED_NAME));
+        attachmentRepository.saveAndFlush(legacyAttachment(KNOWN_SAVED_NAME));
+        Path orphanPartial = oldFile(layout.partialUploadPath("0b9c2a4e-1111-2222-3333-444455556666"));
+        Path recentOrphan = Files.writeString(root.resolve("recent.pdf"), "recent");
+
+        AttachmentOrphanSweeper.SweepResult result = sweeper.sweep();
+
+        assertEquals(1, result.adopted());
+        assertEquals(3, result.deleted());
+        assertEquals(0, result.failed());
+        assertTrue(Files.exists(orphanBlob));       // purged later, through its row
+        assertEquals(0, attachmentBlobRepository.findById(ORPHAN_HASH).orElseThrow().getRefCount());
+        assertTrue(Files.exists(knownBlob));
+        assertFalse(Files.exists(tempFile));
+        assertFalse(Files.exists(orphanLegacy));
+        assertTrue(Files.exists(knownLegacy));
+        assertFalse(Files.exists(orphanPartial));
+        assertTrue(Files.exists(recentOrphan));
+        assertFalse(Files.exists(root.resolve(".sweep-checkpoint")));
+    }
+
+    @Test
+    void sweep_resumesAfterCheckpoint() throws Exception {
+        oldFile(layout.blobPath(ORPHAN_HASH));
+        Path orphanLegacy = oldFile(layout.legacyPath(ORPHAN_SAVED_NAME));
+        Files.writeString(root.resolve(".sweep-checkpoint"), "blobs/zz");
+
+        AttachmentOrphanSweeper.SweepResult result = sweeper.sweep();
+
+        assertEquals(0, result.adopted());          // blob units were swept before the checkpoint
+        assertEquals(1, result.deleted());
+        assertFalse(Files.exists(orphanLegacy));
+        assertFalse(attachmentBlobRepository.existsById(ORPHAN_HASH));
+        assertFalse(Files.exists(root.resolve(".sweep-checkpoint")));
+    }
+
+    private static Path oldFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "test");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+        return path;
+    }
+
+    private static Attachment legacyAttachment(String savedName) {
+        Attachment attachment = new Attachment();
+        attachment.setFilename("amka.pdf");
+        attachment.setSavedName(savedName);
+        attachment.setFilePath(root.resolve(savedName).toString());
+        return attachment;
+    }
+}
@@ -0,0 +1,161 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.model.AttachmentBlob;
+import gr.aueb.cf.eduapp.repository.AttachmentBlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: every store and release commits in its own transaction, as in a request.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class AttachmentStorageServiceTest {
+
+    @TempDir
+    static Path root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.attachments.root", root::toString);
+        registry.add("app.attachments.unreferenced-grace-ms", () -> "0");
+    }
+
+    @Autowired
+    private AttachmentStorageService attachmentStorageService;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() throws IOException {
+        attachmentBlobRepository.deleteAll();
+        if (Files.isDirectory(root.resolve("blobs"))) {
+            try (Stream<Path> files = Files.walk(root.resolve("blobs"))) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void store_sameContentTwice_storedOnceAndCountedTwice() throws Exception {
+        Attachment first = storeCommitted(file("first.pdf", "same content"));
+        Path blob = Path.of(first.getFilePath());
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(0));
+
+        Attachment second = storeCommitted(file("second.pdf", "same content"));
+
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals("second.pdf", second.getFilename());
+        assertEquals(12L, second.getSize());
+        assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(blob));     // not written again
+        assertEquals(1, blobFileCount());
+        assertEquals(2, refCount(first.getContentHash()));
+    }
+
+    @Test
+    void store_hashIsSha256OfContent() throws Exception {
+        Attachment attachment = storeCommitted(file("a.txt", "abc"));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", attachment.getContentHash());
+        assertEquals("abc", Files.readString(Path.of(attachment.getFilePath())));
+        assertEquals(root.resolve("blobs/ba/78").resolve(attachment.getContentHash()), Path.of(attachment.getFilePath()));
+    }
+
+    @Test
+    void release_lastReference_purgedWithFile() throws Exception {
+        Attachment first = storeCommitted(file("first.pdf", "released"));
+        Attachment second = storeCommitted(file("second.pdf", "released"));
+
+        inTransaction(() -> attachmentStorageService.release(first));
+        assertEquals(0, attachmentStorageService.purgeUnreferenced());
+        assertEquals(1, refCount(first.getContentHash()));
+
+        inTransaction(() -> attachmentStorageService.release(second));
+        assertEquals(1, attachmentStorageService.purgeUnreferenced());
+
+        assertFalse(attachmentBlobRepository.existsById(first.getContentHash()));
+        assertFalse(Files.exists(Path.of(first.getFilePath())));
+    }
+
+    @Test
+    void store_rolledBack_referenceUndoneAndBlobPurgedAtOnce() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Attachment[] stored = new Attachment[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            stored[0] = storeUnchecked(file("rolled-back.pdf", "rolled back"));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(attachmentBlobRepository.existsById(stored[0].getContentHash()));
+        assertFalse(Files.exists(Path.of(stored[0].getFilePath())));
+        assertEquals(0, attachmentStorageService.purgeUnreferenced());
+    }
+
+    @Test
+    void store_rolledBack_blobReferencedElsewhereKept() throws Exception {
+        Attachment committed = storeCommitted(file("kept.pdf", "shared content"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            storeUnchecked(file("rolled-back.pdf", "shared content"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, refCount(committed.getContentHash()));
+        assertTrue(Files.exists(Path.of(committed.getFilePath())));
+    }
+
+    private Attachment storeCommitted(MockMultipartFile file) {
+        return new TransactionTemplate(transactionManager).execute(status -> storeUnchecked(file));
+    }
+
+    private Attachment storeUnchecked(MockMultipartFile file) {
+        try {
+            return attachmentStorageService.store(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+
+    private int refCount(String contentHash) {
+        return attachmentBlobRepository.findById(contentHash).map(AttachmentBlob::getRefCount).orElse(-1);
+    }
+
+    private long blobFileCount() throws IOException {
+        try (Stream<Path> files = Files.walk(root.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("amkaFile", name, "application/pdf", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
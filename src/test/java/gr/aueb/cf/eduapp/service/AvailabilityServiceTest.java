@@ -0,0 +1,73 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: values are registered in the filters after commit.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class AvailabilityServiceTest {
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    private Long teacherId;
+
+    @AfterEach
+    void cleanup() {
+        if (teacherId != null) teacherRepository.deleteById(teacherId);
+    }
+
+    @Test
+    void checkAvailability_registeredValuesTaken_othersFree() throws Exception {
+        UserInsertDTO userInsertDTO = UserInsertDTO.builder()
+                .firstname("Αθανάσιος").lastname("Ανδρούτσος")
+                .username("available@aueb.gr")
+                .password("C0d1ngF@").vat("555555555")
+                .fatherName("Κωνσταντίνος").fatherLastname("Ανδρούτσος")
+                .motherName("Νίκη").motherLastname("Σαμαρά")
+                .dateOfBirth(LocalDate.of(1990, 3, 2))
+                .gender(GenderType.MALE).role(Role.TEACHER)
+                .build();
+        PersonalInfoInsertDTO personalInfoInsertDTO = PersonalInfoInsertDTO.builder()
+                .amka("55555555555").identityNumber("E5555555")
+                .placeOfBirth("Athens").municipalityOfRegistration("Kypseli")
+                .build();
+        TeacherInsertDTO teacherInsertDTO = TeacherInsertDTO.builder()
+                .isActive(true).userInsertDTO(userInsertDTO)
+                .personalInfoInsertDTO(personalInfoInsertDTO)
+                .build();
+
+        AvailabilityReadOnlyDTO before = availabilityService.checkAvailability(
+                "available@aueb.gr", "555555555", "55555555555", "E5555555", null);
+        assertEquals(new AvailabilityReadOnlyDTO(true, true, true, true), before);
+
+        teacherId = teacherService.saveTeacher(teacherInsertDTO, null).id();
+
+        AvailabilityReadOnlyDTO after = availabilityService.checkAvailability(
+                "available@aueb.gr", "555555555", "55555555555", "E5555555", null);
+        assertEquals(new AvailabilityReadOnlyDTO(false, false, false, false), after);
+
+        AvailabilityReadOnlyDTO other = availabilityService.checkAvailability("other@aueb.gr", null, "66666666666", null, null);
+        assertEquals(new AvailabilityReadOnlyDTO(true, null, true, null), other);
+    }
+}
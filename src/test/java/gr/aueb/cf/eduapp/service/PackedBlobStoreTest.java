@@ -0,0 +1,146 @@
+package gr.aueb.cf.eduapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private PackedBlobStore store;
+
+    @BeforeEach
+    void open() throws IOException {
+        store = newStore();
+        store.open();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void append_blobsReadBackFromTheirRegion() throws Exception {
+        String first = append("first blob");
+        String second = append("second");
+
+        assertEquals("first blob", read(store.locate(first).orElseThrow()));
+        assertEquals("second", read(store.locate(second).orElseThrow()));
+        assertEquals(store.locate(first).orElseThrow().file(), store.locate(second).orElseThrow().file());
+        assertTrue(store.accepts(64));
+        assertFalse(store.accepts(1024));
+    }
+
+    @Test
+    void append_contentNotMatchingHash_rejectedAndTruncated() throws Exception {
+        String hash = append("kept");
+        long sizeBefore = Files.size(store.locate(hash).orElseThrow().file());
+
+        byte[] content = "tampered".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> store.append(sha256("original"), new ByteArrayInputStream(content), content.length));
+
+        assertEquals(sizeBefore, Files.size(store.locate(hash).orElseThrow().file()));
+        assertFalse(store.contains(sha256("original")));
+    }
+
+    @Test
+    void reopen_cleanAndAfterCrash_sameBlobs() throws Exception {
+        String kept = append("kept");
+        String deleted = append("deleted");
+        assertTrue(store.delete(deleted));
+
+        store.close();
+        store = newStore();
+        store.open();
+        assertEquals("kept", read(store.locate(kept).orElseThrow()));
+        assertFalse(store.contains(deleted));
+
+        // Crash: index not closed cleanly, and a record cut short at the end of the segment
+        Path segment = store.locate(kept).orElseThrow().file();
+        long validSize = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[20]), validSize);
+        }
+        Path index = segment.resolveSibling("index.dat");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 16);     // clean flag
+        }
+
+        PackedBlobStore recovered = newStore();
+        recovered.open();
+        try {
+            assertEquals("kept", read(recovered.locate(kept).orElseThrow()));
+            assertFalse(recovered.contains(deleted));
+            assertEquals(validSize, Files.size(segment));
+        } finally {
+            recovered.close();
+        }
+        store = newStore();
+        store.open();
+    }
+
+    @Test
+    void compact_mostlyDeletedSegment_liveBlobsMovedAndSegmentRetired() throws Exception {
+        String live = append("live blob");
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.delete(append("garbage number " + i + " with some padding")));
+        }
+        Path oldSegment = store.locate(live).orElseThrow().file();
+        append("x".repeat(200));                // fills the segment, the next append rolls over
+        append("in the next segment");
+
+        assertEquals(1, store.compact());
+
+        BlobLocation moved = store.locate(live).orElseThrow();
+        assertNotEquals(oldSegment, moved.file());
+        assertEquals("live blob", read(moved));
+        assertTrue(Files.exists(oldSegment));       // retired, deleted after the grace period
+        store.compact();
+        assertFalse(Files.exists(oldSegment));
+    }
+
+    private PackedBlobStore newStore() {
+        return new PackedBlobStore(root.toString(), "packed", 512, 512, 0.5, 0);
+    }
+
+    private String append(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+        store.append(hash, new ByteArrayInputStream(bytes), bytes.length);
+        return hash;
+    }
+
+    private static String read(BlobLocation location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) location.length());
+        try (FileChannel channel = FileChannel.open(location.file(), StandardOpenOption.READ)) {
+            channel.read(buffer, location.offset());
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
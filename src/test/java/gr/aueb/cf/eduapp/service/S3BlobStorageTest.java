@@ -0,0 +1,287 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against {@link FakeS3}, an in-memory stand-in for an S3-compatible store (like MinIO)
+ * that checks every request is signed and its payload hash matches the body.
+ */
+class S3BlobStorageTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private FakeS3 s3;
+    private S3BlobStorage storage;
+
+    @BeforeEach
+    void start() throws IOException {
+        s3 = new FakeS3();
+        storage = new S3BlobStorage("http://localhost:" + s3.port(), "us-east-1", "attachments",
+                "access", "secret", "blobs/", PART_SIZE, 3, 2000, 10000);
+    }
+
+    @AfterEach
+    void stop() {
+        storage.close();
+        s3.stop();
+    }
+
+    @Test
+    void write_smallBlob_storedWithSinglePut() throws Exception {
+        byte[] content = "small blob".getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+
+        assertFalse(storage.contains(hash));
+        storage.write(hash, new ByteArrayInputStream(content), content.length);
+
+        assertTrue(storage.contains(hash));
+        assertArrayEquals(content, s3.objects.get("attachments/blobs/" + hash));
+        assertEquals(0, s3.partsUploaded.get());
+        assertEquals("s3://attachments/blobs/" + hash, storage.pathOf(hash));
+    }
+
+    @Test
+    void write_largeBlob_uploadsPartsInParallel() throws Exception {
+        byte[] content = randomBytes(3 * PART_SIZE + 1234);
+        String hash = sha256(content);
+
+        storage.write(hash, new ByteArrayInputStream(content), content.length);
+
+        assertArrayEquals(content, s3.objects.get("attachments/blobs/" + hash));
+        assertEquals(4, s3.partsUploaded.get());
+        assertTrue(s3.maxConcurrentParts.get() > 1, "parts were not uploaded in parallel");
+        assertTrue(s3.maxConcurrentParts.get() <= 3);
+        assertTrue(s3.uploads.isEmpty());
+    }
+
+    @Test
+    void write_largeBlobNotMatchingHash_abortedAndNothingStored() {
+        byte[] content = randomBytes(2 * PART_SIZE + 1);
+        String hash = sha256("something else".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> storage.write(hash, new ByteArrayInputStream(content), content.length));
+
+        assertFalse(s3.objects.containsKey("attachments/blobs/" + hash));
+        assertTrue(s3.uploads.isEmpty(), "multipart upload not aborted");
+    }
+
+    @Test
+    void write_smallBlobNotMatchingHash_rejected() {
+        byte[] content = "tampered".getBytes(StandardCharsets.UTF_8);
+        String hash = sha256("original".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> storage.write(hash, new ByteArrayInputStream(content), content.length));
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    @Test
+    void locate_readsRequestedRange() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+        storage.write(hash, new ByteArrayInputStream(content), content.length);
+
+        BlobLocation location = storage.locate(hash).orElseThrow();
+        assertNull(location.file());
+        assertEquals(10, location.length());
+        try (InputStream in = location.reader().open(3, 4)) {
+            assertEquals("3456", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(storage.locate(sha256(new byte[0])).isEmpty());
+    }
+
+    @Test
+    void delete_removesObject() throws Exception {
+        byte[] content = "to delete".getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+        storage.write(hash, new ByteArrayInputStream(content), content.length);
+
+        assertTrue(storage.delete(hash));
+        assertFalse(storage.contains(hash));
+        assertFalse(storage.delete(hash));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] content) {
+        return S3RequestSigner.sha256Hex(content, 0, content.length);
+    }
+
+    /**
+     * Path-style S3: objects, multipart uploads (create, part, complete, abort), HEAD and ranged GET.
+     */
+    static class FakeS3 {
+
+        private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>([^<]+)</ETag>");
+
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        final AtomicInteger partsUploaded = new AtomicInteger();
+        final AtomicInteger maxConcurrentParts = new AtomicInteger();
+        private final AtomicInteger concurrentParts = new AtomicInteger();
+        private final HttpServer server;
+
+        FakeS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newFixedThreadPool(8));
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            // A part is in flight from its first byte to its response
+            boolean part = exchange.getRequestMethod().equals("PUT") && exchange.getRequestURI().getRawQuery() != null;
+            if (part) maxConcurrentParts.accumulateAndGet(concurrentParts.incrementAndGet(), Math::max);
+            try (exchange) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                String payloadHash = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+                if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=access/")
+                        || exchange.getRequestHeaders().getFirst("x-amz-date") == null) {
+                    respond(exchange, 403, "<Error><Code>AccessDenied</Code></Error>");
+                    return;
+                }
+                if (!S3RequestSigner.sha256Hex(body, 0, body.length).equals(payloadHash)) {
+                    respond(exchange, 400, "<Error><Code>XAmzContentSHA256Mismatch</Code></Error>");
+                    return;
+                }
+
+                String key = exchange.getRequestURI().getPath().substring(1);
+                Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+                switch (exchange.getRequestMethod()) {
+                    case "HEAD" -> head(exchange, key);
+                    case "GET" -> get(exchange, key);
+                    case "PUT" -> put(exchange, key, query, body);
+                    case "POST" -> post(exchange, key, query, body);
+                    case "DELETE" -> {
+                        if (query.containsKey("uploadId")) uploads.remove(query.get("uploadId"));
+                        else objects.remove(key);
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                    default -> respond(exchange, 405, "");
+                }
+            } finally {
+                if (part) concurrentParts.decrementAndGet();
+            }
+        }
+
+        private void head(HttpExchange exchange, String key) throws IOException {
+            byte[] object = objects.get(key);
+            if (object == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+            exchange.sendResponseHeaders(200, -1);
+        }
+
+        private void get(HttpExchange exchange, String key) throws IOException {
+            byte[] object = objects.get(key);
+            if (object == null) {
+                respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                return;
+            }
+            Matcher range = Pattern.compile("bytes=(\\d+)-(\\d+)").matcher(exchange.getRequestHeaders().getFirst("Range"));
+            assertTrue(range.matches());
+            int start = Integer.parseInt(range.group(1));
+            int end = Integer.parseInt(range.group(2));
+            byte[] slice = Arrays.copyOfRange(object, start, end + 1);
+            exchange.sendResponseHeaders(206, slice.length);
+            exchange.getResponseBody().write(slice);
+        }
+
+        private void put(HttpExchange exchange, String key, Map<String, String> query, byte[] body) throws IOException {
+            if (!query.containsKey("uploadId")) {
+                objects.put(key, body);
+                respond(exchange, 200, "");
+                return;
+            }
+
+            Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+            if (parts == null) {
+                respond(exchange, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+                return;
+            }
+            try {
+                Thread.sleep(300);      // a slow link, so parallel parts overlap
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            parts.put(Integer.parseInt(query.get("partNumber")), body);
+            partsUploaded.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", "\"" + S3RequestSigner.sha256Hex(body, 0, body.length) + "\"");
+            respond(exchange, 200, "");
+        }
+
+        private void post(HttpExchange exchange, String key, Map<String, String> query, byte[] body) throws IOException {
+            if (query.containsKey("uploads")) {
+                String uploadId = UUID.randomUUID().toString();
+                uploads.put(uploadId, new ConcurrentHashMap<>());
+                respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                return;
+            }
+
+            Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            Matcher part = PART.matcher(new String(body, StandardCharsets.UTF_8));
+            while (part.find()) {
+                byte[] bytes = parts.get(Integer.parseInt(part.group(1)));
+                assertEquals("\"" + S3RequestSigner.sha256Hex(bytes, 0, bytes.length) + "\"", part.group(2));
+                object.write(bytes);
+            }
+            objects.put(key, object.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult><Key>" + key + "</Key></CompleteMultipartUploadResult>");
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new TreeMap<>();
+            if (rawQuery == null) return query;
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                query.put(equals < 0 ? parameter : parameter.substring(0, equals),
+                        equals < 0 ? "" : parameter.substring(equals + 1));
+            }
+            return query;
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) exchange.getResponseBody().write(bytes);
+        }
+    }
+}
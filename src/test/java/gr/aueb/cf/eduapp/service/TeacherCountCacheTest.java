@@ -0,0 +1,117 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilterKey;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: the cache is invalidated when a teacher write commits.
+ */
+@SpringBootTest(properties = {
+        "app.security.bcrypt-strength=4",
+        "app.teachers.count-cache.ttl-ms=600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherCountCacheTest {
+
+    private static final String LASTNAME = "Καταμέτρηση";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private Mapper mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        // Cascades to the users and personal info
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void exactCount_cachedUntilTeacherWrite() throws Exception {
+        teacherService.saveTeacher(insertDTO(1), null);
+        long before = teacherRepository.count();
+        assertEquals(before, teacherService.getPaginatedTeachers(0, 1, CountMode.EXACT).getTotalElements());
+
+        // Written around the service: the cached count stays
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> teacherRepository.save(mapper.mapToTeacherEntity(insertDTO(2))));
+        assertEquals(before, teacherService.getPaginatedTeachers(0, 1, CountMode.EXACT).getTotalElements());
+
+        // Written through the service: invalidated on commit
+        teacherService.saveTeacher(insertDTO(3), null);
+        assertEquals(before + 2, teacherService.getPaginatedTeachers(0, 1, CountMode.EXACT).getTotalElements());
+    }
+
+    @Test
+    void exactCount_cachedPerFilter() throws Exception {
+        teacherService.saveTeacher(insertDTO(4), null);
+        TeacherFilters byVat = TeacherFilters.builder().userVat(vat(4)).build();
+        TeacherFilters blankUuid = TeacherFilters.builder().userVat(vat(4)).uuid(" ").build();
+        byVat.setPageSize(1);
+        blankUuid.setPageSize(1);
+        assertEquals(TeacherFilterKey.of(byVat), TeacherFilterKey.of(blankUuid));
+
+        // Page 2 of a one-row result cannot tell the total itself, so it is counted
+        byVat.setPage(1);
+        assertEquals(1L, teacherService.getTeachersFilteredPaginated(byVat).getTotalElements());
+        TeacherFilters byOtherVat = TeacherFilters.builder().userVat(vat(5)).build();
+        byOtherVat.setPage(1);
+        assertEquals(0L, teacherService.getTeachersFilteredPaginated(byOtherVat).getTotalElements());
+    }
+
+    @Test
+    void estimate_withoutFilters_fromTableStatistics() throws Exception {
+        teacherService.saveTeacher(insertDTO(6), null);
+
+        Long estimate = teacherService.getPaginatedTeachers(1, 1, CountMode.ESTIMATE).getTotalElements();
+
+        assertNotNull(estimate);
+        assertTrue(estimate >= 1);
+    }
+
+    private static TeacherInsertDTO insertDTO(int i) {
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Μέτρηση").lastname(LASTNAME).username("count" + i + "@aueb.gr")
+                        .password("C0d1ngF@").vat(vat(i))
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka(vat(i) + "00").identityNumber("CC" + i)
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+
+    private static String vat(int i) {
+        return String.format("6%08d", i);
+    }
+}
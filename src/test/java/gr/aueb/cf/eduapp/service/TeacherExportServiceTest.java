@@ -0,0 +1,165 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.eduapp.core.csv.CsvReader;
+import gr.aueb.cf.eduapp.core.enums.ExportFormat;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.PersonalInfo;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The export reads plain (unquoted) SQL, so it runs on the h2-mysql test profile. The
+ * export joins the test transaction, so it sees the rows written in it.
+ */
+@SpringBootTest(properties = {
+        "app.teachers.export.fetch-size=2",
+        "app.teachers.search-cache.ttl-ms=0"
+})
+@ActiveProfiles({"dev", "h2-mysql"})
+@Transactional
+class TeacherExportServiceTest {
+
+    private static final int TEACHERS = 7;
+
+    @Autowired
+    private TeacherExportService teacherExportService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < TEACHERS; i++) {
+            teacherRepository.save(teacher(i, i % 2 == 0, "Export " + i));
+        }
+        Teacher withoutPersonalInfo = teacher(TEACHERS, true, "Χωρίς, \"στοιχεία\"");
+        withoutPersonalInfo.setPersonalInfo(null);
+        teacherRepository.save(withoutPersonalInfo);
+        entityManager.flush();
+    }
+
+    @Test
+    void ndjson_oneTeacherPerLine_inIdOrder() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = teacherExportService.exportTeachers(TeacherFilters.builder().build(), ExportFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(TEACHERS + 1, rows);
+        assertEquals(TEACHERS + 1, lines.length);
+        List<TeacherReadOnlyDTO> teachers = new ArrayList<>();
+        for (String line : lines) teachers.add(objectMapper.readValue(line, TeacherReadOnlyDTO.class));
+        assertEquals(teachers.stream().sorted(Comparator.comparing(TeacherReadOnlyDTO::id)).toList(), teachers);
+        assertEquals(searched(TeacherFilters.builder().build()), teachers);
+        assertNull(teachers.get(TEACHERS).personalInfoReadOnlyDTO());
+
+        // Byte for byte: every line is the bare JSON object and ends with a newline, nothing in between
+        StringBuilder expected = new StringBuilder();
+        for (TeacherReadOnlyDTO teacher : teachers) expected.append(objectMapper.writeValueAsString(teacher)).append('\n');
+        assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    @Test
+    void csv_headerAndQuotedFields() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        teacherExportService.exportTeachers(TeacherFilters.builder().build(), ExportFormat.CSV, output);
+
+        CsvReader csv = new CsvReader(new StringReader(output.toString(StandardCharsets.UTF_8)));
+        assertEquals(TeacherExportService.CSV_COLUMNS, csv.readRecord());
+        List<List<String>> records = new ArrayList<>();
+        for (List<String> record = csv.readRecord(); record != null; record = csv.readRecord()) records.add(record);
+        assertEquals(TEACHERS + 1, records.size());
+        assertEquals(List.of("Export 0", "Path", vat(0), amka(0), "EX0"), records.get(0).subList(3, 8));
+        List<String> withoutPersonalInfo = records.get(TEACHERS);
+        assertEquals("Χωρίς, \"στοιχεία\"", withoutPersonalInfo.get(3));
+        assertEquals(List.of("", ""), withoutPersonalInfo.subList(6, 8));
+    }
+
+    @Test
+    void filters_selectAsSearch() throws Exception {
+        String uuid = searched(TeacherFilters.builder().userVat(vat(3)).build()).get(0).uuid();
+        List<TeacherFilters> filters = List.of(
+                TeacherFilters.builder().active(false).build(),
+                TeacherFilters.builder().active(true).userAmka(amka(4)).build(),
+                TeacherFilters.builder().userVat(vat(5)).build(),
+                TeacherFilters.builder().uuid(uuid.substring(4, 16).toLowerCase()).build(),
+                TeacherFilters.builder().uuid(" ").userVat("").build());
+
+        for (TeacherFilters filter : filters) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            teacherExportService.exportTeachers(filter, ExportFormat.NDJSON, output);
+
+            List<TeacherReadOnlyDTO> exported = new ArrayList<>();
+            for (String line : output.toString(StandardCharsets.UTF_8).lines().toList()) {
+                exported.add(objectMapper.readValue(line, TeacherReadOnlyDTO.class));
+            }
+            assertEquals(searched(filter), exported);
+        }
+    }
+
+    private List<TeacherReadOnlyDTO> searched(TeacherFilters filters) {
+        filters.setPageSize(TEACHERS + 1);
+        return teacherService.getTeachersFilteredPaginated(filters).getData();
+    }
+
+    private static Teacher teacher(int i, boolean active, String firstname) {
+        User user = new User();
+        user.setFirstname(firstname);
+        user.setLastname("Path");
+        user.setUsername("export" + i + "_" + UUID.randomUUID());
+        user.setPassword("secret");
+        user.setVat(vat(i));
+        user.setIsActive(active);
+
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setAmka(amka(i));
+        personalInfo.setIdentityNumber("EX" + i);
+        personalInfo.setPlaceOfBirth("Athens");
+        personalInfo.setMunicipalityOfRegistration("Athens");
+
+        Teacher teacher = new Teacher();
+        teacher.setIsActive(true);
+        teacher.setUser(user);
+        teacher.setPersonalInfo(personalInfo);
+        return teacher;
+    }
+
+    private static String vat(int i) {
+        return String.format("9%08d", i);
+    }
+
+    private static String amka(int i) {
+        return String.format("9%010d", i);
+    }
+}
@@ -0,0 +1,199 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.ImportFormat;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.model.IdSequences;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherJDBCRepository;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Not transactional: the import commits batch by batch. A batch size of 2 makes
+ * duplicates span batches.
+ * <p>
+ * The import writes plain (unquoted) SQL, so it runs on the h2-mysql test profile.
+ */
+@SpringBootTest(properties = {
+        "app.teacher-import.batch-size=2",
+        "app.teacher-import.bcrypt-strength=4",
+        "app.security.bcrypt-strength=4"
+})
+@ActiveProfiles({"dev", "h2-mysql"})
+class TeacherImportServiceTest {
+
+    private static final String LASTNAME = "Εισαγωγή";
+
+    @Autowired
+    private TeacherImportService teacherImportService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private TeacherJDBCRepository teacherJDBCRepository;
+
+    @AfterEach
+    void cleanup() {
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void importTeachers_csv_importsValidRowsAndReportsTheRest() throws Exception {
+        String csv = """
+                firstname,lastname,username,password,vat,fatherName,fatherLastname,motherName,motherLastname,dateOfBirth,gender,amka,identityNumber,placeOfBirth,municipalityOfRegistration
+                Άννα,%1$s,anna.import@aueb.gr,C0d1ngF@,700000001,Νίκος,%1$s,Μαρία,Παππά,1990-03-02,FEMALE,70000000001,IM000001,Athens,Kypseli
+                "Γιώργος, Β.",%1$s,george.import@aueb.gr,C0d1ngF@,700000002,Νίκος,%1$s,Μαρία,Παππά,1985-01-20,MALE,70000000002,IM000002,Athens,Kypseli
+                Ελένη,%1$s,eleni.import@aueb.gr,C0d1ngF@,12345,Νίκος,%1$s,Μαρία,Παππά,1985-01-20,FEMALE,70000000003,IM000003,Athens,Kypseli
+                Κώστας,%1$s,kostas.import@aueb.gr,C0d1ngF@,700000001,Νίκος,%1$s,Μαρία,Παππά,1985-01-20,MALE,70000000004,IM000004,Athens,Kypseli
+                Μάρκος,%1$s,markos.import@aueb.gr,C0d1ngF@,700000005,Νίκος,%1$s,Μαρία,Παππά,not-a-date,MALE,70000000005,IM000005,Athens,Kypseli
+
+                Σοφία,%1$s,sofia.import@aueb.gr,C0d1ngF@,700000006,Νίκος,%1$s,Μαρία,Παππά,1992-07-11,FEMALE,70000000006,IM000006,Athens,Kypseli
+                """.formatted(LASTNAME);
+
+        long hashesBefore = hashes();
+        TeacherImportResultDTO result = teacherImportService.importTeachers(stream(csv), ImportFormat.CSV);
+
+        assertEquals(6, result.rows());
+        assertEquals(3, result.imported());
+        assertEquals(3, result.failed());
+        assertFalse(result.errorsTruncated());
+
+        List<String> errorFields = result.errors().stream().map(TeacherImportErrorDTO::field).toList();
+        assertEquals(List.of("userInsertDTO.vat", "userInsertDTO.vat", "dateOfBirth"), errorFields);
+        assertTrue(result.errors().get(1).message().contains("already exists"));     // same vat as row 1, next batch
+
+        List<Teacher> imported = teacherRepository.findByUserLastname(LASTNAME);
+        assertEquals(3, imported.size());
+        assertTrue(imported.stream().anyMatch(t -> t.getUser().getFirstname().equals("Γιώργος, Β.")));
+        assertTrue(imported.stream().allMatch(t -> t.getUser().getPassword().startsWith("$2")));
+        assertEquals(3, hashes() - hashesBefore);      // on the shared hashing executor, valid rows only
+    }
+
+    @Test
+    void importTeachers_ndjson_reportsInvalidJsonAndInFileDuplicates() throws Exception {
+        String row = """
+                {"isActive":true,"userInsertDTO":{"firstname":"Άννα","lastname":"%s","username":"%s","password":"C0d1ngF@",\
+                "vat":"%s","fatherName":"Νίκος","fatherLastname":"Π","motherName":"Μαρία","motherLastname":"Π",\
+                "dateOfBirth":"1990-03-02","gender":"FEMALE","role":"TEACHER"},"personalInfoInsertDTO":{"amka":"%s",\
+                "identityNumber":"%s","placeOfBirth":"Athens","municipalityOfRegistration":"Kypseli"}}
+                """;
+        String ndjson = row.formatted(LASTNAME, "n1.import@aueb.gr", "710000001", "71000000001", "IN000001")
+                + row.formatted(LASTNAME, "n2.import@aueb.gr", "710000002", "71000000001", "IN000002")   // same AMKA, same batch
+                + "{not json\n"
+                + row.formatted(LASTNAME, "n3.import@aueb.gr", "710000003", "71000000003", "IN000003");
+
+        TeacherImportResultDTO result = teacherImportService.importTeachers(stream(ndjson), ImportFormat.NDJSON);
+
+        assertEquals(4, result.rows());
+        assertEquals(2, result.imported());
+        assertEquals(2, result.failed());
+        assertEquals("personalInfoInsertDTO.amka", result.errors().get(0).field());
+        assertEquals(2, result.errors().get(0).row());
+        assertEquals(3, result.errors().get(1).row());
+    }
+
+    @Test
+    void importTeachers_sharesIdSequenceWithHibernate() throws Exception {
+        Long before = teacherService.saveTeacher(insertDTO("720000001", "72000000001", "IS000001"), null).id();
+
+        String csv = "firstname,lastname,username,password,vat,fatherName,fatherLastname,motherName,motherLastname,"
+                + "dateOfBirth,gender,amka,identityNumber,placeOfBirth,municipalityOfRegistration\n"
+                + "Άννα,%1$s,s2.import@aueb.gr,C0d1ngF@,720000002,Ν,Π,Μ,Π,1990-03-02,FEMALE,72000000002,IS000002,Athens,Kypseli\n"
+                        .formatted(LASTNAME);
+        assertEquals(1, teacherImportService.importTeachers(stream(csv), ImportFormat.CSV).imported());
+
+        // Hibernate uses up its cached block and takes the next one after the import's
+        int saved = IdSequences.ALLOCATION_SIZE + 10;
+        for (int i = 0; i < saved; i++) {
+            teacherService.saveTeacher(insertDTO(String.format("73%07d", i), String.format("73%09d", i), "IS7" + i), null);
+        }
+
+        List<Teacher> teachers = teacherRepository.findByUserLastname(LASTNAME);
+        assertEquals(saved + 2, teachers.size());
+        assertEquals(saved + 2, teachers.stream().map(Teacher::getId).distinct().count());
+        assertEquals(saved + 2, teachers.stream().map(t -> t.getUser().getId()).distinct().count());
+        assertEquals(saved + 2, teachers.stream().map(t -> t.getPersonalInfo().getId()).distinct().count());
+        assertTrue(teachers.stream().anyMatch(t -> t.getId().equals(before)));
+    }
+
+    @Test
+    void importTeachers_valueTakenAfterDuplicateCheck_reportsRow() throws Exception {
+        // A registration commits between the duplicate check of the batch and its insert
+        doAnswer(invocation -> {
+            Object existing = invocation.callRealMethod();
+            teacherService.saveTeacher(insertDTO("740000002", "74000000009", "IR000009"), null);
+            return existing;
+        }).doCallRealMethod().when(teacherJDBCRepository).findExistingIdentityNumbers(anyCollection());
+
+        String csv = "firstname,lastname,username,password,vat,fatherName,fatherLastname,motherName,motherLastname,"
+                + "dateOfBirth,gender,amka,identityNumber,placeOfBirth,municipalityOfRegistration\n"
+                + "Άννα,%1$s,r1.import@aueb.gr,C0d1ngF@,740000001,Ν,Π,Μ,Π,1990-03-02,FEMALE,74000000001,IR000001,Athens,Kypseli\n"
+                        .formatted(LASTNAME)
+                + "Άννα,%1$s,r2.import@aueb.gr,C0d1ngF@,740000002,Ν,Π,Μ,Π,1990-03-02,FEMALE,74000000002,IR000002,Athens,Kypseli\n"
+                        .formatted(LASTNAME);
+
+        TeacherImportResultDTO result = teacherImportService.importTeachers(stream(csv), ImportFormat.CSV);
+
+        // The batch fails on the unique constraint and is retried row by row
+        assertEquals(1, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(2, result.errors().get(0).row());
+        assertEquals("userInsertDTO.vat", result.errors().get(0).field());
+        assertEquals(2, teacherRepository.findByUserLastname(LASTNAME).size());
+    }
+
+    @Test
+    void importTeachers_csvMissingColumns_throwsException() {
+        assertThrows(AppObjectInvalidArgumentException.class,
+                () -> teacherImportService.importTeachers(stream("firstname,lastname\nA,B\n"), ImportFormat.CSV));
+    }
+
+    private static TeacherInsertDTO insertDTO(String vat, String amka, String identityNumber) {
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Άννα").lastname(LASTNAME).username(vat + ".import@aueb.gr")
+                        .password("C0d1ngF@").vat(vat)
+                        .fatherName("Ν").fatherLastname("Π").motherName("Μ").motherLastname("Π")
+                        .dateOfBirth(LocalDate.of(1990, 3, 2)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka(amka).identityNumber(identityNumber)
+                        .placeOfBirth("Athens").municipalityOfRegistration("Kypseli")
+                        .build())
+                .build();
+    }
+
+    private long hashes() {
+        return meterRegistry.get("auth.password.hashing").timer().count();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,211 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.cache.WTinyLfuCache;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: profiles are evicted when a teacher write commits.
+ */
+@SpringBootTest(properties = {
+        "app.security.bcrypt-strength=4",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherProfileCacheTest {
+
+    private static final String LASTNAME = "Προφίλ";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void getOneTeacher_secondReadFromCache() throws Exception {
+        String uuid = teacherService.saveTeacher(insertDTO(1), null).uuid();
+        TeacherReadOnlyDTO first = teacherService.getOneTeacher(uuid);
+        double hits = requests("hit");
+        Statistics statistics = statistics();
+
+        TeacherReadOnlyDTO second = teacherService.getOneTeacher(uuid);
+
+        assertEquals(first, second);
+        assertEquals(hits + 1, requests("hit"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updateTeacher_evictsAfterCommit() throws Exception {
+        String uuid = teacherService.saveTeacher(insertDTO(2), null).uuid();
+        assertEquals("Πρώτη", teacherService.getOneTeacher(uuid).userReadOnlyDTO().firstname());
+
+        teacherService.updateTeacher(updateDTO(uuid, "Δεύτερη"), null);
+
+        assertEquals("Δεύτερη", teacherService.getOneTeacher(uuid).userReadOnlyDTO().firstname());
+    }
+
+    @Test
+    void getOneTeacher_cachedProfileOlderThanVersion_reloaded() throws Exception {
+        String uuid = teacherService.saveTeacher(insertDTO(3), null).uuid();
+        teacherService.getOneTeacher(uuid);
+
+        // Written around the service, e.g. by another instance: nothing evicts the profile
+        Thread.sleep(10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status ->
+                teacherRepository.findByUuid(uuid).orElseThrow().getUser().setFirstname("Δεύτερη"));
+        assertEquals("Πρώτη", teacherService.getOneTeacher(uuid).userReadOnlyDTO().firstname());
+
+        ResourceVersionDTO version = teacherService.getTeacherVersion(uuid);
+
+        assertEquals("Δεύτερη", teacherService.getOneTeacher(uuid, version.lastModified()).userReadOnlyDTO().firstname());
+        assertEquals("Δεύτερη", teacherService.getOneTeacher(uuid).userReadOnlyDTO().firstname());
+    }
+
+    @Test
+    void getOneTeacher_notFoundNotCached() throws Exception {
+        double misses = requests("miss");
+
+        assertThrows(AppObjectNotFoundException.class, () -> teacherService.getOneTeacher("missing"));
+        assertThrows(AppObjectNotFoundException.class, () -> teacherService.getOneTeacher("missing"));
+
+        assertEquals(misses + 2, requests("miss"));
+    }
+
+    @Test
+    void get_reloadsAfterTtl() throws Exception {
+        TeacherProfileCache cache = new TeacherProfileCache(1 << 20, 50, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        TeacherProfileCache.Loader<RuntimeException> loader = () -> {
+            loads.incrementAndGet();
+            return new TeacherProfileCache.Profile(new TeacherReadOnlyDTO(1L, "uuid", true,
+                    new UserReadOnlyDTO("Πρώτη", LASTNAME, "500000000"), new PersonalInfoReadOnlyDTO("50000000000", "PR0")),
+                    null);
+        };
+
+        cache.get("uuid", null, loader);
+        cache.get("uuid", null, loader);
+        assertEquals(1, loads.get());
+
+        // Not evicted by a write of this instance, e.g. updated by another one
+        Thread.sleep(100);
+        cache.get("uuid", null, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void wTinyLfu_keepsFrequentEntriesThroughScan() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(100, 100, (key, value) -> 1);
+        for (int i = 0; i < 50; i++) cache.put("hot" + i, "v");
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 50; i++) cache.get("hot" + i);
+        }
+
+        // A scan of keys each requested once: a plain LRU would end up holding only these
+        for (int i = 0; i < 1000; i++) {
+            cache.get("scan" + i);
+            cache.put("scan" + i, "v");
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 50; i++) if (cache.get("hot" + i) != null) hot++;
+        assertEquals(50, hot);
+        assertTrue(cache.weightedSize() <= 100);
+        assertTrue(cache.evictionCount() >= 950);
+    }
+
+    @Test
+    void wTinyLfu_boundedByWeight() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(1000, 10, (key, value) -> value.length());
+        for (int i = 0; i < 100; i++) cache.put("k" + i, "x".repeat(1 + i % 50));
+
+        assertTrue(cache.weightedSize() <= 1000);
+        cache.put("huge", "x".repeat(1001));
+        assertNull(cache.get("huge"));
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("teachers.profile.cache.requests").tag("result", result).counter().count();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private TeacherUpdateDTO updateDTO(String uuid, String firstname) {
+        Teacher teacher = teacherRepository.findByUuid(uuid).orElseThrow();
+        return TeacherUpdateDTO.builder()
+                .id(teacher.getId()).uuid(uuid).isActive(true)
+                .userUpdateDTO(UserUpdateDTO.builder()
+                        .id(teacher.getUser().getId())
+                        .firstname(firstname).lastname(LASTNAME).username(teacher.getUser().getUsername())
+                        .password("C0d1ngF@").vat(teacher.getUser().getVat())
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoUpdateDTO(PersonalInfoUpdateDTO.builder()
+                        .id(teacher.getPersonalInfo().getId())
+                        .amka(teacher.getPersonalInfo().getAmka())
+                        .identityNumber(teacher.getPersonalInfo().getIdentityNumber())
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+
+    private static TeacherInsertDTO insertDTO(int i) {
+        String n = String.format("5%08d", i);
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Πρώτη").lastname(LASTNAME).username("profile" + i + "@aueb.gr")
+                        .password("C0d1ngF@").vat(n)
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka(n + "00").identityNumber("PR" + i)
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.exceptions.AppServiceUnavailableException;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.filters.TeacherSearchKey;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeacherReadCoalescerTest {
+
+    private static final int CALLERS = 16;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalSearches_shareOneQuery() throws Exception {
+        TeacherReadCoalescer coalescer = new TeacherReadCoalescer(true, 5000, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        TeacherFilters filters = TeacherFilters.builder().active(true).build();
+
+        List<Future<Paginated<TeacherReadOnlyDTO>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            // Equal keys from separate filter objects, one of them with a blank uuid
+            TeacherFilters same = TeacherFilters.builder().active(true).uuid(i % 2 == 0 ? null : " ").build();
+            results.add(executor.submit(() -> coalescer.search(TeacherSearchKey.of(same, CountMode.EXACT), () -> {
+                queries.incrementAndGet();
+                await(release);
+                return Paginated.withoutTotal(List.of(), filters.getPageable());
+            })));
+        }
+        awaitShared("search", CALLERS - 1);
+        release.countDown();
+
+        Paginated<TeacherReadOnlyDTO> first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Paginated<TeacherReadOnlyDTO>> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void failure_propagatesToEveryCaller() throws Exception {
+        TeacherReadCoalescer coalescer = new TeacherReadCoalescer(true, 5000, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<TeacherProfileCache.Profile>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.getOne("uuid", () -> {
+                await(release);
+                throw new AppObjectNotFoundException("Teacher", "Teacher with uuid:uuid not found");
+            })));
+        }
+        awaitShared("uuid", CALLERS - 1);
+        release.countDown();
+
+        for (Future<TeacherProfileCache.Profile> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AppObjectNotFoundException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void waitingTooLong_serviceUnavailable() throws Exception {
+        TeacherReadCoalescer coalescer = new TeacherReadCoalescer(true, 50, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<TeacherProfileCache.Profile> leader = executor.submit(() -> coalescer.getOne("slow", () -> {
+            await(release);
+            return null;
+        }));
+        awaitExecuted("uuid", 1);
+
+        assertThrows(AppServiceUnavailableException.class, () -> coalescer.getOne("slow", () -> null));
+
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void sequentialCalls_notCached() throws Exception {
+        TeacherReadCoalescer coalescer = new TeacherReadCoalescer(true, 5000, meterRegistry);
+        AtomicInteger queries = new AtomicInteger();
+
+        coalescer.getOne("uuid", () -> { queries.incrementAndGet(); return null; });
+        coalescer.getOne("uuid", () -> { queries.incrementAndGet(); return null; });
+
+        assertEquals(2, queries.get());
+    }
+
+    private void awaitShared(String operation, int callers) throws InterruptedException {
+        awaitCount(operation, "shared", callers);
+    }
+
+    private void awaitExecuted(String operation, int calls) throws InterruptedException {
+        awaitCount(operation, "executed", calls);
+    }
+
+    private void awaitCount(String operation, String result, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("teachers.reads").tags("operation", operation, "result", result)
+                .functionCounter().count() < count) {
+            assertTrue(System.nanoTime() < deadline, "callers did not join in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.filters.TeacherSearchKey;
+import gr.aueb.cf.eduapp.dto.*;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: the cache is invalidated when a teacher write commits.
+ */
+@SpringBootTest(properties = {
+        "app.security.bcrypt-strength=4",
+        "app.teachers.search-cache.ttl-ms=600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherSearchCacheTest {
+
+    private static final String LASTNAME = "Αναζήτηση";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private Mapper mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanup() {
+        // Cascades to the users and personal info
+        teacherRepository.deleteAll(teacherRepository.findByUserLastname(LASTNAME));
+    }
+
+    @Test
+    void equalFilters_secondSearchFromCache() throws Exception {
+        teacherService.saveTeacher(insertDTO(1), null);
+        Paginated<TeacherReadOnlyDTO> first = teacherService.getTeachersFilteredPaginated(
+                TeacherFilters.builder().userVat(vat(1)).build());
+        double hits = requests("hit");
+        Statistics statistics = statistics();
+
+        // Same canonical filters: a blank uuid is no filter
+        Paginated<TeacherReadOnlyDTO> second = teacherService.getTeachersFilteredPaginated(
+                TeacherFilters.builder().userVat(vat(1)).uuid(" ").build());
+
+        assertSame(first, second);
+        assertEquals(1, second.getNumberOfElements());
+        assertEquals(hits + 1, requests("hit"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void page_cachedUntilTeacherWrite() throws Exception {
+        TeacherFilters byVat = TeacherFilters.builder().userVat(vat(2)).build();
+        assertEquals(0, teacherService.getTeachersFilteredPaginated(byVat).getNumberOfElements());
+
+        // Written around the service: the cached page stays
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> teacherRepository.save(mapper.mapToTeacherEntity(insertDTO(2))));
+        assertEquals(0, teacherService.getTeachersFilteredPaginated(byVat).getNumberOfElements());
+
+        // Written through the service, even another teacher: every page is invalidated on commit
+        teacherService.saveTeacher(insertDTO(3), null);
+        assertEquals(1, teacherService.getTeachersFilteredPaginated(byVat).getNumberOfElements());
+    }
+
+    @Test
+    void loadDuringWrite_notCached() {
+        TeacherSearchCache cache = new TeacherSearchCache(1 << 20, 600000, new SimpleMeterRegistry());
+        TeacherSearchKey key = TeacherSearchKey.of(TeacherFilters.builder().build(), CountMode.EXACT);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(key, () -> {
+            loads.incrementAndGet();
+            cache.invalidateAll();
+            return page(0);
+        });
+        cache.get(key, () -> { loads.incrementAndGet(); return page(0); });
+        cache.get(key, () -> { loads.incrementAndGet(); return page(0); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void boundedByWeight() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TeacherSearchCache cache = new TeacherSearchCache(64 * 1024, 600000, registry);
+
+        for (int page = 0; page < 200; page++) {
+            TeacherFilters filters = TeacherFilters.builder().active(true).build();
+            filters.setPage(page);
+            int n = page;
+            cache.get(TeacherSearchKey.of(filters, CountMode.NONE), () -> page(n));
+        }
+
+        assertTrue(registry.get("teachers.search.cache.weight").gauge().value() <= 64 * 1024);
+        assertTrue(registry.get("teachers.search.cache.evictions").functionCounter().count() > 0);
+        assertEquals(0, registry.get("teachers.search.cache.hit.ratio").gauge().value());
+    }
+
+    private static Paginated<TeacherReadOnlyDTO> page(int page) {
+        List<TeacherReadOnlyDTO> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(new TeacherReadOnlyDTO((long) i, "uuid-" + page + "-" + i, true,
+                    new UserReadOnlyDTO("Όνομα", LASTNAME, vat(i)), new PersonalInfoReadOnlyDTO(vat(i) + "00", "AN" + i)));
+        }
+        return Paginated.<TeacherReadOnlyDTO>builder().data(data).currentPage(page).pageSize(10)
+                .numberOfElements(data.size()).build();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("teachers.search.cache.requests").tag("result", result).counter().count();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static TeacherInsertDTO insertDTO(int i) {
+        return TeacherInsertDTO.builder()
+                .isActive(true)
+                .userInsertDTO(UserInsertDTO.builder()
+                        .firstname("Εύρεση").lastname(LASTNAME).username("search" + i + "@aueb.gr")
+                        .password("C0d1ngF@").vat(vat(i))
+                        .fatherName("Π").fatherLastname("Π").motherName("Μ").motherLastname("Μ")
+                        .dateOfBirth(LocalDate.of(1990, 1, 1)).gender(GenderType.FEMALE).role(Role.TEACHER)
+                        .build())
+                .personalInfoInsertDTO(PersonalInfoInsertDTO.builder()
+                        .amka(vat(i) + "00").identityNumber("SE" + i)
+                        .placeOfBirth("Athens").municipalityOfRegistration("Athens")
+                        .build())
+                .build();
+    }
+
+    private static String vat(int i) {
+        return String.format("8%08d", i);
+    }
+}
@@ -0,0 +1,118 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent registrations that collide on one unique field. Not transactional:
+ * every registration has to commit (or fail) in its own transaction, as in production.
+ */
+@SpringBootTest(properties = "app.security.bcrypt-strength=4")     // hashing cost is not under test
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    private final List<Long> createdTeacherIds = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        teacherRepository.deleteAllById(createdTeacherIds);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"VAT", "Username", "AMKA", "IdentityNumber"})
+    void concurrentRegistrations_sameField_oneSucceedsOthersConflict(String field) throws Exception {
+        String run = String.valueOf(ThreadLocalRandom.current().nextLong(100_000_000L, 999_999_999L));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        List<String> conflictCodes = new CopyOnWriteArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                TeacherInsertDTO dto = insertDTO(run, i, field);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        createdTeacherIds.add(teacherService.saveTeacher(dto, null).id());
+                        succeeded.incrementAndGet();
+                    } catch (AppObjectAlreadyExists e) {
+                        conflictCodes.add(e.getCode());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // Any other exception (would be a 500) fails the test here
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, succeeded.get());
+        assertEquals(THREADS - 1, conflictCodes.size());
+        conflictCodes.forEach(code -> assertEquals(field + "AlreadyExists", code));
+
+        List<Teacher> registered = teacherRepository.findAllById(createdTeacherIds);
+        assertEquals(1, registered.size());
+    }
+
+    /**
+     * Every registration gets unique values except for the shared field.
+     */
+    private static TeacherInsertDTO insertDTO(String run, int i, String sharedField) {
+        String unique = run + i;
+        String shared = run + "0";
+
+        UserInsertDTO userInsertDTO = UserInsertDTO.builder()
+                .firstname("Αθανάσιος").lastname("Ανδρούτσος")
+                .username("user" + (sharedField.equals("Username") ? shared : unique) + "@aueb.gr")
+                .password("C0d1ngF@")
+                .vat(sharedField.equals("VAT") ? shared : unique)
+                .fatherName("Κωνσταντίνος").fatherLastname("Ανδρούτσος")
+                .motherName("Νίκη").motherLastname("Σαμαρά")
+                .dateOfBirth(LocalDate.of(1990, 3, 2))
+                .gender(GenderType.MALE).role(Role.TEACHER)
+                .build();
+        PersonalInfoInsertDTO personalInfoInsertDTO = PersonalInfoInsertDTO.builder()
+                .amka(sharedField.equals("AMKA") ? shared : unique)
+                .identityNumber("ID" + (sharedField.equals("IdentityNumber") ? shared : unique))
+                .placeOfBirth("Athens").municipalityOfRegistration("Kypseli")
+                .build();
+        return TeacherInsertDTO.builder()
+                .isActive(true).userInsertDTO(userInsertDTO)
+                .personalInfoInsertDTO(personalInfoInsertDTO)
+                .build();
+    }
+}
@@ -0,0 +1,336 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.filters.CountMode;
+import gr.aueb.cf.eduapp.core.filters.KeysetPaginated;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.ResourceVersionDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.PersonalInfo;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The listing endpoints read a page as one joined projection plus, only when the page
+ * alone does not tell the total, one count. These tests pin the statement count so that
+ * a change that brings back per-row loading of users or personal info fails here.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN",
+        // Rows are written directly and rolled back, which the count and search caches do not see
+        "app.teachers.count-cache.ttl-ms=0",
+        "app.teachers.search-cache.ttl-ms=0"
+})
+@Transactional
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TeacherServiceReadPathTest {
+
+    private static final int TEACHERS = 12;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private long total;
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < TEACHERS; i++) {
+            teacherRepository.save(teacher(i, i % 3 != 0));
+        }
+        // Without personal info: still listed, through the left join
+        Teacher withoutPersonalInfo = teacher(TEACHERS, true);
+        withoutPersonalInfo.setPersonalInfo(null);
+        teacherRepository.save(withoutPersonalInfo);
+
+        total = teacherRepository.count();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void fullPage_selectAndCount() {
+        Statistics statistics = statistics();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getPaginatedTeachers(0, 5, CountMode.EXACT);
+
+        assertEquals(5, page.getData().size());
+        assertEquals(total, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void lastPage_countSkipped() {
+        int size = 5;
+        int last = (int) ((total - 1) / size);
+        Statistics statistics = statistics();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getPaginatedTeachers(last, size, CountMode.EXACT);
+
+        assertEquals(total - (long) last * size, page.getData().size());
+        assertEquals(total, page.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void noCount_selectOnly() {
+        Statistics statistics = statistics();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getPaginatedTeachers(1, 5, CountMode.NONE);
+
+        assertEquals(5, page.getData().size());
+        assertNull(page.getTotalElements());
+        assertNull(page.getTotalPages());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void filteredPage_projectsUserAndPersonalInfo() {
+        TeacherFilters filters = TeacherFilters.builder().userVat(vat(4)).userAmka(amka(4)).active(true).build();
+        Statistics statistics = statistics();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getTeachersFilteredPaginated(filters);
+
+        assertEquals(1, page.getData().size());
+        TeacherReadOnlyDTO dto = page.getData().get(0);
+        assertEquals("Read", dto.userReadOnlyDTO().firstname());
+        assertEquals(vat(4), dto.userReadOnlyDTO().vat());
+        assertEquals(amka(4), dto.personalInfoReadOnlyDTO().amka());
+        assertEquals("RP" + 4, dto.personalInfoReadOnlyDTO().identityNumber());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void filteredFullPage_selectAndCount() {
+        TeacherFilters filters = TeacherFilters.builder().active(false).build();
+        filters.setPageSize(2);
+        Statistics statistics = statistics();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getTeachersFilteredPaginated(filters);
+
+        assertEquals(2, page.getData().size());
+        assertEquals(TEACHERS / 3, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void teacherWithoutPersonalInfo_listed() {
+        TeacherFilters filters = TeacherFilters.builder().userVat(vat(TEACHERS)).build();
+
+        Paginated<TeacherReadOnlyDTO> page = teacherService.getTeachersFilteredPaginated(filters);
+
+        assertEquals(1, page.getData().size());
+        assertNull(page.getData().get(0).personalInfoReadOnlyDTO());
+    }
+
+    @Test
+    void keyset_walksAllPagesInSortOrder() throws Exception {
+        List<TeacherReadOnlyDTO> all = all();
+
+        assertEquals(sorted(all, TeacherReadOnlyDTO::id, false), walk("id", Sort.Direction.ASC));
+        assertEquals(sorted(all, TeacherReadOnlyDTO::id, true), walk("id", Sort.Direction.DESC));
+        assertEquals(sorted(all, t -> t.userReadOnlyDTO().vat(), true), walk("user.vat", Sort.Direction.DESC));
+        // Equal sort values: the id breaks the tie
+        assertEquals(sorted(all, TeacherReadOnlyDTO::isActive, false), walk("isActive", Sort.Direction.ASC));
+    }
+
+    @Test
+    void keyset_nullSortValues() throws Exception {
+        Function<TeacherReadOnlyDTO, String> amka =
+                t -> t.personalInfoReadOnlyDTO() == null ? null : t.personalInfoReadOnlyDTO().amka();
+        List<TeacherReadOnlyDTO> all = all();
+
+        // Nulls lowest: first when ascending, last when descending
+        List<TeacherReadOnlyDTO> ascending = walk("personalInfo.amka", Sort.Direction.ASC);
+        assertEquals(sorted(all, amka, false), ascending);
+        assertNull(ascending.get(0).personalInfoReadOnlyDTO());
+        List<TeacherReadOnlyDTO> descending = walk("personalInfo.amka", Sort.Direction.DESC);
+        assertEquals(sorted(all, amka, true), descending);
+        assertNull(descending.get(descending.size() - 1).personalInfoReadOnlyDTO());
+    }
+
+    @Test
+    void keyset_nextPageIsOneStatement() throws Exception {
+        TeacherFilters filters = keysetFilters("id", Sort.Direction.ASC, 4);
+        filters.setCursor(teacherService.getTeachersKeysetPaginated(filters).getNextCursor());
+        Statistics statistics = statistics();
+
+        KeysetPaginated<TeacherReadOnlyDTO> page = teacherService.getTeachersKeysetPaginated(filters);
+
+        assertEquals(4, page.getNumberOfElements());
+        assertNull(page.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void keyset_exactCount() throws Exception {
+        TeacherFilters filters = keysetFilters("id", Sort.Direction.ASC, 4);
+        filters.setActive(false);
+        filters.setCount(CountMode.EXACT);
+
+        KeysetPaginated<TeacherReadOnlyDTO> page = teacherService.getTeachersKeysetPaginated(filters);
+
+        assertEquals(TEACHERS / 3, page.getTotalElements());
+        assertEquals(4, page.getNumberOfElements());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void keyset_invalidSortOrCursor_throwsException() throws Exception {
+        TeacherFilters unsupported = keysetFilters("user.password", Sort.Direction.ASC, 4);
+        assertThrows(AppObjectInvalidArgumentException.class, () -> teacherService.getTeachersKeysetPaginated(unsupported));
+
+        TeacherFilters malformed = keysetFilters("id", Sort.Direction.ASC, 4);
+        malformed.setCursor("not a cursor");
+        assertThrows(AppObjectInvalidArgumentException.class, () -> teacherService.getTeachersKeysetPaginated(malformed));
+
+        TeacherFilters byVat = keysetFilters("user.vat", Sort.Direction.ASC, 4);
+        String vatCursor = teacherService.getTeachersKeysetPaginated(byVat).getNextCursor();
+        TeacherFilters byId = keysetFilters("id", Sort.Direction.ASC, 4);
+        byId.setCursor(vatCursor);
+        assertThrows(AppObjectInvalidArgumentException.class, () -> teacherService.getTeachersKeysetPaginated(byId));
+    }
+
+    @Test
+    void teacherVersion_probeOnly_changesWithAnyRowOfTheTeacher() throws Exception {
+        String uuid = teacherService.getTeachersFilteredPaginated(TeacherFilters.builder().userVat(vat(4)).build())
+                .getData().get(0).uuid();
+        Statistics statistics = statistics();
+
+        ResourceVersionDTO before = teacherService.getTeacherVersion(uuid);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(before.eTag().startsWith("\""));
+
+        // Only the user row changes, the teacher row keeps its updated_at
+        Teacher teacher = teacherRepository.findByUuid(uuid).orElseThrow();
+        teacher.getUser().setFirstname("Changed");
+        entityManager.flush();
+
+        ResourceVersionDTO after = teacherService.getTeacherVersion(uuid);
+        assertNotEquals(before.eTag(), after.eTag());
+        assertFalse(after.lastModified().isBefore(before.lastModified()));
+        assertThrows(AppObjectNotFoundException.class, () -> teacherService.getTeacherVersion("missing"));
+    }
+
+    @Test
+    void collectionVersion_perPage_changesWithAnyWrite() {
+        TeacherFilters active = TeacherFilters.builder().active(true).build();
+        TeacherFilters inactive = TeacherFilters.builder().active(false).build();
+        Statistics statistics = statistics();
+
+        ResourceVersionDTO before = teacherService.getTeachersFilteredVersion(active);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(before.eTag().startsWith("W/\""));
+        assertEquals(before, teacherService.getTeachersFilteredVersion(TeacherFilters.builder().active(true).uuid("").build()));
+        assertNotEquals(before.eTag(), teacherService.getTeachersFilteredVersion(inactive).eTag());
+        assertNotEquals(before.eTag(), teacherService.getPaginatedTeachersVersion(0, 5, CountMode.EXACT).eTag());
+
+        teacherRepository.save(teacher(TEACHERS + 1, false));
+        entityManager.flush();
+
+        assertNotEquals(before.eTag(), teacherService.getTeachersFilteredVersion(active).eTag());
+    }
+
+    private List<TeacherReadOnlyDTO> walk(String sortBy, Sort.Direction direction) throws Exception {
+        TeacherFilters filters = keysetFilters(sortBy, direction, 5);
+        List<TeacherReadOnlyDTO> teachers = new ArrayList<>();
+        KeysetPaginated<TeacherReadOnlyDTO> page;
+        do {
+            page = teacherService.getTeachersKeysetPaginated(filters);
+            teachers.addAll(page.getData());
+            filters.setCursor(page.getNextCursor());
+        } while (page.getNextCursor() != null);
+        return teachers;
+    }
+
+    private List<TeacherReadOnlyDTO> all() {
+        return teacherService.getPaginatedTeachers(0, (int) total, CountMode.NONE).getData();
+    }
+
+    /** Sorted by the key, nulls lowest, then by id in the same direction */
+    private static <K extends Comparable<K>> List<TeacherReadOnlyDTO> sorted(List<TeacherReadOnlyDTO> teachers,
+                                                                             Function<TeacherReadOnlyDTO, K> key,
+                                                                             boolean descending) {
+        Comparator<TeacherReadOnlyDTO> order = Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+        order = order.thenComparing(TeacherReadOnlyDTO::id);
+        return teachers.stream().sorted(descending ? order.reversed() : order).toList();
+    }
+
+    private static TeacherFilters keysetFilters(String sortBy, Sort.Direction direction, int pageSize) {
+        TeacherFilters filters = TeacherFilters.builder().build();
+        filters.setSortBy(sortBy);
+        filters.setSortDirection(direction);
+        filters.setPageSize(pageSize);
+        return filters;
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static Teacher teacher(int i, boolean active) {
+        User user = new User();
+        user.setFirstname("Read");
+        user.setLastname("Path");
+        user.setUsername("read" + i + "_" + UUID.randomUUID());
+        user.setPassword("secret");
+        user.setVat(vat(i));
+        user.setIsActive(active);
+
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setAmka(amka(i));
+        personalInfo.setIdentityNumber("RP" + i);
+        personalInfo.setPlaceOfBirth("Athens");
+        personalInfo.setMunicipalityOfRegistration("Athens");
+
+        Teacher teacher = new Teacher();
+        teacher.setIsActive(true);
+        teacher.setUser(user);
+        teacher.setPersonalInfo(personalInfo);
+        return teacher;
+    }
+
+    private static String vat(int i) {
+        return String.format("7%08d", i);
+    }
+
+    private static String amka(int i) {
+        return String.format("7%010d", i);
+    }
+}
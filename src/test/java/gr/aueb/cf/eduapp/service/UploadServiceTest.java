@@ -0,0 +1,294 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.dto.UploadSessionInsertDTO;
+import gr.aueb.cf.eduapp.dto.UploadSessionReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.Attachment;
+import gr.aueb.cf.eduapp.model.UploadSession;
+import gr.aueb.cf.eduapp.repository.AttachmentBlobRepository;
+import gr.aueb.cf.eduapp.repository.UploadSessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: every chunk commits on its own, as in a request.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class UploadServiceTest {
+
+    private static final String OWNER = "teacher1";
+    private static final int CHUNK_SIZE = 65536;
+
+    @TempDir
+    static Path root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.attachments.root", root::toString);
+        registry.add("app.uploads.min-chunk-size", () -> String.valueOf(CHUNK_SIZE));
+    }
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private AttachmentLayout layout;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        uploadSessionRepository.deleteAll();
+        attachmentBlobRepository.deleteAll();
+    }
+
+    @Test
+    void writeChunk_outOfOrderAndRetried_completesIntoAttachment() throws Exception {
+        byte[] content = content(2 * CHUNK_SIZE + 100);
+        UploadSessionReadOnlyDTO upload = create(content.length);
+        assertEquals(3, upload.chunkCount());
+        assertEquals(List.of(0, 1, 2), upload.missingChunks());
+
+        put(upload, 2, content);
+        put(upload, 0, content);
+        put(upload, 0, content);        // resent after a lost response
+        assertEquals(List.of(1), uploadService.getUpload(upload.uploadId(), OWNER).missingChunks());
+
+        UploadSessionReadOnlyDTO done = put(upload, 1, content);
+        assertTrue(done.missingChunks().isEmpty());
+
+        Attachment attachment = complete(upload);
+
+        assertEquals("scan.pdf", attachment.getFilename());
+        assertEquals((long) content.length, attachment.getSize());
+        assertArrayEquals(content, Files.readAllBytes(Path.of(attachment.getFilePath())));
+        assertFalse(Files.exists(layout.partialUploadPath(upload.uploadId())));     // deleted on commit
+        assertTrue(uploadSessionRepository.findById(upload.uploadId()).isEmpty());
+    }
+
+    @Test
+    void writeChunk_wrongLength_rejectedAndNotRecorded() throws Exception {
+        UploadSessionReadOnlyDTO upload = create(CHUNK_SIZE + 10);
+
+        assertThrows(AppObjectInvalidArgumentException.class, () -> uploadService.writeChunk(upload.uploadId(), 1,
+                new ByteArrayInputStream(new byte[5]), OWNER));
+        assertThrows(AppObjectInvalidArgumentException.class, () -> uploadService.writeChunk(upload.uploadId(), 1,
+                new ByteArrayInputStream(new byte[11]), OWNER));
+        assertThrows(AppObjectInvalidArgumentException.class, () -> uploadService.writeChunk(upload.uploadId(), 2,
+                new ByteArrayInputStream(new byte[10]), OWNER));
+
+        assertEquals(List.of(0, 1), uploadService.getUpload(upload.uploadId(), OWNER).missingChunks());
+    }
+
+    @Test
+    void completeUpload_missingChunks_rejected() throws Exception {
+        byte[] content = content(CHUNK_SIZE + 10);
+        UploadSessionReadOnlyDTO upload = create(content.length);
+        put(upload, 0, content);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> complete(upload));
+        assertInstanceOf(AppObjectInvalidArgumentException.class, e.getCause());
+        assertTrue(Files.exists(layout.partialUploadPath(upload.uploadId())));
+    }
+
+    @Test
+    void completeUpload_rolledBack_keepsPartialFile() throws Exception {
+        byte[] content = content(CHUNK_SIZE + 10);
+        UploadSessionReadOnlyDTO upload = create(content.length);
+        put(upload, 0, content);
+        put(upload, 1, content);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                uploadService.completeUpload(upload.uploadId(), OWNER);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();       // e.g. the attachment could not be persisted
+        });
+        assertTrue(Files.exists(layout.partialUploadPath(upload.uploadId())));
+
+        Attachment attachment = complete(upload);
+        assertArrayEquals(content, Files.readAllBytes(Path.of(attachment.getFilePath())));
+        assertFalse(Files.exists(layout.partialUploadPath(upload.uploadId())));
+    }
+
+    @Test
+    void completeUpload_whileChunkWritten_rejected() throws Exception {
+        byte[] content = content(CHUNK_SIZE + 10);
+        UploadSessionReadOnlyDTO upload = create(content.length);
+        put(upload, 0, content);
+        put(upload, 1, content);
+
+        // Chunk 0 resent, its body held back until released
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream body = held(new ByteArrayInputStream(Arrays.copyOf(content, CHUNK_SIZE)), release);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UploadSessionReadOnlyDTO> write = executor.submit(() ->
+                    uploadService.writeChunk(upload.uploadId(), 0, body, OWNER));
+            awaitActiveWrites(upload, 1);
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> complete(upload));
+            assertInstanceOf(AppObjectInvalidArgumentException.class, e.getCause());
+
+            release.countDown();
+            write.get(10, TimeUnit.SECONDS);
+            awaitActiveWrites(upload, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Attachment attachment = complete(upload);
+        assertArrayEquals(content, Files.readAllBytes(Path.of(attachment.getFilePath())));
+    }
+
+    @Test
+    void writeChunk_duringCompletion_notFound() throws Exception {
+        byte[] content = content(CHUNK_SIZE + 10);
+        UploadSessionReadOnlyDTO upload = create(content.length);
+        put(upload, 0, content);
+        put(upload, 1, content);
+
+        // The completion holds the row lock until released
+        CountDownLatch completed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Attachment> completion = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                try {
+                    Attachment attachment = uploadService.completeUpload(upload.uploadId(), OWNER);
+                    completed.countDown();
+                    release.await();
+                    return attachment;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+
+            Future<UploadSessionReadOnlyDTO> write = executor.submit(() -> put(upload, 0, content(CHUNK_SIZE + 10)));
+            Thread.sleep(200);
+            release.countDown();
+
+            Attachment attachment = completion.get(10, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> write.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(AppObjectNotFoundException.class, e.getCause());
+            assertArrayEquals(content, Files.readAllBytes(Path.of(attachment.getFilePath())));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void upload_otherUser_notAuthorized() throws Exception {
+        UploadSessionReadOnlyDTO upload = create(10);
+
+        assertThrows(AppObjectNotAuthorizedException.class, () -> uploadService.getUpload(upload.uploadId(), "other"));
+        assertThrows(AppObjectNotAuthorizedException.class, () -> uploadService.writeChunk(upload.uploadId(), 0,
+                new ByteArrayInputStream(new byte[10]), "other"));
+    }
+
+    @Test
+    void purgeExpired_deletesSessionAndPartialFile() throws Exception {
+        UploadSessionReadOnlyDTO upload = create(10);
+        UploadSession session = uploadSessionRepository.findById(upload.uploadId()).orElseThrow();
+        session.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        uploadSessionRepository.save(session);
+
+        assertThrows(AppObjectNotFoundException.class, () -> uploadService.getUpload(upload.uploadId(), OWNER));
+        assertEquals(1, uploadService.purgeExpired());
+        assertTrue(uploadSessionRepository.findById(upload.uploadId()).isEmpty());
+        assertFalse(Files.exists(layout.partialUploadPath(upload.uploadId())));
+    }
+
+    private UploadSessionReadOnlyDTO create(long size) throws Exception {
+        return uploadService.createUpload(new UploadSessionInsertDTO("scan.pdf", "application/pdf", size, CHUNK_SIZE), OWNER);
+    }
+
+    // Completed in the transaction that would persist the attachment
+    private Attachment complete(UploadSessionReadOnlyDTO upload) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return uploadService.completeUpload(upload.uploadId(), OWNER);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private UploadSessionReadOnlyDTO put(UploadSessionReadOnlyDTO upload, int chunk, byte[] content) throws Exception {
+        int from = chunk * upload.chunkSize();
+        int to = Math.min(content.length, from + upload.chunkSize());
+        return uploadService.writeChunk(upload.uploadId(), chunk,
+                new ByteArrayInputStream(Arrays.copyOfRange(content, from, to)), OWNER);
+    }
+
+    private void awaitActiveWrites(UploadSessionReadOnlyDTO upload, int activeWrites) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (uploadSessionRepository.findById(upload.uploadId()).orElseThrow().getActiveWrites() != activeWrites) {
+            assertTrue(System.nanoTime() < deadline, "active writes never reached " + activeWrites);
+            Thread.sleep(10);
+        }
+    }
+
+    // Nothing is read from the stream until released
+    private static InputStream held(InputStream in, CountDownLatch release) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return super.read(b, off, len);
+            }
+        };
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        byte[] pattern = "chunked upload ".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < length; i++) content[i] = pattern[i % pattern.length];
+        return content;
+    }
+}